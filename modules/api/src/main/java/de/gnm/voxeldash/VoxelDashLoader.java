@@ -5,17 +5,28 @@ import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.controller.AccountController;
 import de.gnm.voxeldash.api.controller.ActionRegistry;
 import de.gnm.voxeldash.api.controller.ApiKeyController;
+import de.gnm.voxeldash.api.controller.ConsoleHistory;
 import de.gnm.voxeldash.api.controller.ControllerManager;
+import de.gnm.voxeldash.api.controller.LiveStateTracker;
+import de.gnm.voxeldash.api.controller.LogArchive;
 import de.gnm.voxeldash.api.controller.PermissionController;
 import de.gnm.voxeldash.api.controller.ScheduleController;
 import de.gnm.voxeldash.api.controller.SSHController;
 import de.gnm.voxeldash.api.controller.SessionController;
 import de.gnm.voxeldash.api.controller.WidgetRegistry;
+import de.gnm.voxeldash.api.controller.WriteQueue;
 import de.gnm.voxeldash.api.entities.Feature;
 import de.gnm.voxeldash.api.event.EventDispatcher;
+import de.gnm.voxeldash.api.event.EventSubscription;
+import de.gnm.voxeldash.api.event.OverflowPolicy;
+import de.gnm.voxeldash.api.event.console.ConsoleMessageReceivedEvent;
 import de.gnm.voxeldash.api.handlers.BaseHandler;
+import de.gnm.voxeldash.api.handlers.CompressionHandler;
 import de.gnm.voxeldash.api.handlers.StaticHandler;
 import de.gnm.voxeldash.api.handlers.WebSocketHandler;
+import de.gnm.voxeldash.api.helper.ExecutionMode;
+import de.gnm.voxeldash.api.helper.ListenerConfig;
+import de.gnm.voxeldash.api.helper.RouteExecutor;
 import de.gnm.voxeldash.api.helper.ScheduleExecutor;
 import de.gnm.voxeldash.api.http.HTTPMethod;
 import de.gnm.voxeldash.api.http.RouteMeta;
@@ -29,8 +40,12 @@ import org.reflections.Reflections;
 import java.io.File;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class VoxelDashLoader {
+
+    private static final Logger LOG = Logger.getLogger("VoxelDashLoader");
     private final Map<Class<?>, BasePipe> pipes = new HashMap<>();
     private final List<Feature> availableFeatures = new ArrayList<>();
     private final ControllerManager controllerManager = new ControllerManager();
@@ -39,11 +54,28 @@ public class VoxelDashLoader {
     private final EventDispatcher eventDispatcher = new EventDispatcher();
     private final ActionRegistry actionRegistry = new ActionRegistry();
     private final WidgetRegistry widgetRegistry = new WidgetRegistry();
+    private final ConsoleHistory consoleHistory = new ConsoleHistory(ConsoleHistory.DEFAULT_CAPACITY);
     private String databaseFile = "voxeldash.db";
     private File serverRoot = new File(System.getProperty("user.dir"));
     private File logFile = new File("logs/latest.log");
+    private ExecutionMode executionMode = ExecutionMode.VIRTUAL;
+    private long writeFlushWindow = WriteQueue.DEFAULT_FLUSH_WINDOW;
+    private long compressionMinSize = CompressionHandler.DEFAULT_MIN_SIZE;
     private Undertow httpServer;
+    private RouteExecutor routeExecutor;
     private ScheduleExecutor scheduleExecutor;
+    private LogArchive logArchive;
+    private LiveStateTracker liveStateTracker;
+    private EventSubscription<ConsoleMessageReceivedEvent> logArchiveSubscription;
+    private long reportedArchiveDrops;
+
+    /**
+     * Basic constructor of the {@link VoxelDashLoader}
+     */
+    public VoxelDashLoader() {
+        eventDispatcher.subscribe(ConsoleMessageReceivedEvent.class, consoleHistory::append,
+                ConsoleHistory.DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST, null);
+    }
 
     /**
      * Registers a pipe with the given type
@@ -61,20 +93,34 @@ public class VoxelDashLoader {
     private void initialize() {
         registerRoutes();
 
+        consoleHistory.seed(logFile, ConsoleHistory.DEFAULT_CAPACITY);
+
+        File dataFolder = new File(databaseFile).getAbsoluteFile().getParentFile();
+        logArchive = new LogArchive(new File(dataFolder, "console-archive"));
+        reportedArchiveDrops = 0;
+        logArchiveSubscription = eventDispatcher.subscribe(ConsoleMessageReceivedEvent.class, this::archiveConsoleLine,
+                LogArchive.QUEUE_CAPACITY, OverflowPolicy.DROP_OLDEST, null);
+
         controllerManager.setConnection(String.format("jdbc:sqlite:%s", databaseFile));
+        controllerManager.getWriteQueue().setFlushWindow(writeFlushWindow);
+
+        routeExecutor = new RouteExecutor(executionMode);
+        routeHandler.setRouteExecutor(routeExecutor);
 
         PathHandler handler = new PathHandler()
-                .addPrefixPath("/api", routeHandler)
+                .addPrefixPath("/api", new CompressionHandler(routeHandler, compressionMinSize))
                 .addPrefixPath("/api/ws", new WebSocketProtocolHandshakeHandler(webSocketHandler))
                 .addPrefixPath("/", new StaticHandler());
 
-        httpServer = Undertow.builder().addHttpListener(7867, "0.0.0.0").setHandler(handler).build();
+        ListenerConfig listenerConfig = ListenerConfig.load(dataFolder);
+        httpServer = listenerConfig.apply(Undertow.builder()).setHandler(handler).build();
 
         controllerManager.registerController(AccountController.class);
 
         controllerManager.registerController(SessionController.class);
 
         controllerManager.registerController(PermissionController.class);
+        getController(AccountController.class).addDeleteListener(getController(PermissionController.class)::invalidateCache);
 
         controllerManager.registerController(SSHController.class);
         getController(SSHController.class).initialize(getController(AccountController.class), serverRoot);
@@ -87,6 +133,30 @@ public class VoxelDashLoader {
 
         scheduleExecutor = new ScheduleExecutor(this);
         scheduleExecutor.start();
+
+        liveStateTracker = new LiveStateTracker(this, LiveStateTracker.DEFAULT_INTERVAL);
+        liveStateTracker.start();
+    }
+
+    /**
+     * Archives a console line. Logs how many lines got dropped since the last warning,
+     * if the archive could not keep up with the console
+     *
+     * @param event The console message
+     */
+    private void archiveConsoleLine(ConsoleMessageReceivedEvent event) {
+        LogArchive archive = logArchive;
+        EventSubscription<ConsoleMessageReceivedEvent> subscription = logArchiveSubscription;
+        if (archive == null) return;
+
+        archive.append(event);
+
+        if (subscription == null) return;
+        long dropped = subscription.getDroppedEvents();
+        if (dropped > reportedArchiveDrops) {
+            LOG.warning("The console archive could not keep up, " + (dropped - reportedArchiveDrops) + " lines were not archived");
+            reportedArchiveDrops = dropped;
+        }
     }
 
     /**
@@ -109,10 +179,15 @@ public class VoxelDashLoader {
 
                     de.gnm.voxeldash.api.annotations.Method routeMethod = method.getAnnotation(de.gnm.voxeldash.api.annotations.Method.class);
 
-                    RouteMeta routeMeta = new RouteMeta(baseRoute, method, routeMethod != null ? routeMethod.value() : HTTPMethod.GET, routePath.value());
-                    routeHandler.registerRoute(routeMeta);
+                    try {
+                        RouteMeta routeMeta = new RouteMeta(baseRoute, method, routeMethod != null ? routeMethod.value() : HTTPMethod.GET, routePath.value());
+                        routeHandler.registerRoute(routeMeta);
+                    } catch (Exception e) {
+                        LOG.log(Level.SEVERE, "Failed to register the route " + clazz.getName() + "#" + method.getName(), e);
+                    }
                 }
-            } catch (Exception ignored) {
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE, "Failed to register the routes of " + clazz.getName(), e);
             }
         });
     }
@@ -145,12 +220,34 @@ public class VoxelDashLoader {
             scheduleExecutor.stop();
         }
 
+        if (liveStateTracker != null) {
+            liveStateTracker.stop();
+            liveStateTracker = null;
+        }
+
         pipes.clear();
 
         if (httpServer != null) {
             httpServer.stop();
             httpServer = null;
         }
+
+        webSocketHandler.close();
+
+        if (routeExecutor != null) {
+            routeExecutor.stop();
+            routeExecutor = null;
+        }
+
+        if (logArchive != null) {
+            eventDispatcher.unsubscribe(logArchiveSubscription);
+            logArchive.close();
+            logArchive = null;
+        }
+
+        eventDispatcher.shutdown();
+
+        controllerManager.close();
     }
 
     /**
@@ -191,6 +288,33 @@ public class VoxelDashLoader {
         return actionRegistry;
     }
 
+    /**
+     * Gets the history of recent console lines
+     *
+     * @return the console history
+     */
+    public ConsoleHistory getConsoleHistory() {
+        return consoleHistory;
+    }
+
+    /**
+     * Gets the searchable archive of all console lines
+     *
+     * @return the console archive, or null if the server is not running
+     */
+    public LogArchive getLogArchive() {
+        return logArchive;
+    }
+
+    /**
+     * Gets the tracker that publishes changes of the players, worlds and widgets
+     *
+     * @return the live state tracker, or null if the server is not running
+     */
+    public LiveStateTracker getLiveStateTracker() {
+        return liveStateTracker;
+    }
+
     /**
      * Gets the widget registry for dashboard widgets
      *
@@ -238,6 +362,36 @@ public class VoxelDashLoader {
         this.databaseFile = databaseFile;
     }
 
+    /**
+     * Sets the mode the API routes are executed in.
+     * Needs to be called before {@link #startup()}
+     *
+     * @param executionMode the execution mode
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * Sets how long database writes are collected before they get committed together.
+     * Needs to be called before {@link #startup()}
+     *
+     * @param writeFlushWindow the flush window in milliseconds
+     */
+    public void setWriteFlushWindow(long writeFlushWindow) {
+        this.writeFlushWindow = writeFlushWindow;
+    }
+
+    /**
+     * Sets the minimum size of API responses before they get compressed.
+     * Needs to be called before {@link #startup()}
+     *
+     * @param compressionMinSize the minimum size in bytes
+     */
+    public void setCompressionMinSize(long compressionMinSize) {
+        this.compressionMinSize = compressionMinSize;
+    }
+
     /**
      * Sets and creates the server root
      *
@@ -0,0 +1,22 @@
+package de.gnm.voxeldash.api.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Enables conditional requests (ETag / Last-Modified) for a route, so that clients
+ * which already have the current data get a '304 Not Modified' instead.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Fingerprint {
+
+    /**
+     * The name of a public method in the same route class that returns the time (in milliseconds)
+     * the data of the route was last modified, or a value &lt;= 0 if it is unknown.
+     * The method can either take no parameters or the same request type as the route.
+     * If this is set, the route itself is not executed for unchanged data.
+     * If it is empty, the fingerprint is computed from the response body instead, which only saves bandwidth.
+     */
+    String value() default "";
+
+}
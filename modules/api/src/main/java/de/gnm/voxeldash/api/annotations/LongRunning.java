@@ -0,0 +1,13 @@
+package de.gnm.voxeldash.api.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Marks a route that can block for a long time (e.g. backups, uploads or store downloads).
+ * These routes are executed separately from the regular routes, so they cannot starve them.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LongRunning {
+
+}
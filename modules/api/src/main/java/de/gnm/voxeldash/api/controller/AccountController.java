@@ -1,13 +1,20 @@
 package de.gnm.voxeldash.api.controller;
 
+import de.gnm.voxeldash.api.entities.Account;
 import org.apache.sshd.common.config.keys.loader.openssh.kdf.BCrypt;
 
-import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class AccountController extends BaseController {
 
-    public AccountController(Connection connection) {
-        super(connection);
+    private static final RowMapper<Account> ACCOUNT_MAPPER = resultSet ->
+            new Account(resultSet.getInt("id"), resultSet.getString("username"));
+
+    private final List<Runnable> deleteListeners = new CopyOnWriteArrayList<>();
+
+    public AccountController(ConnectionPool pool) {
+        super(pool);
 
         createTable();
     }
@@ -35,10 +42,11 @@ public class AccountController extends BaseController {
      * Get the user id of a user by the username
      *
      * @param username The username of the user
-     * @return the user id of the user
+     * @return the user id of the user, or -1 if the user does not exist
      */
     public int getUserId(String username) {
-        return (int) getSingleResult("SELECT id FROM accounts WHERE username = ?", username).get("id");
+        Integer id = getSingleResult("SELECT id FROM accounts WHERE username = ?", resultSet -> resultSet.getInt("id"), username);
+        return id != null ? id : -1;
     }
 
     /**
@@ -48,7 +56,18 @@ public class AccountController extends BaseController {
      * @return whether the account was deleted successfully
      */
     public boolean deleteAccount(String username) {
-        return executeUpdate("DELETE FROM accounts WHERE username = ?", username) > 0;
+        boolean deleted = executeUpdate("DELETE FROM accounts WHERE username = ?", username) > 0;
+        deleteListeners.forEach(Runnable::run);
+        return deleted;
+    }
+
+    /**
+     * Adds a listener that gets called after an account got deleted, e.g. to clear caches that depend on the accounts
+     *
+     * @param listener The listener
+     */
+    public void addDeleteListener(Runnable listener) {
+        deleteListeners.add(listener);
     }
 
     /**
@@ -58,7 +77,7 @@ public class AccountController extends BaseController {
      * @return whether the account exists
      */
     public boolean accountExists(String username) {
-        return getSingleResult("SELECT * FROM accounts WHERE username = ?", username) != null;
+        return getSingleResult("SELECT id FROM accounts WHERE username = ?", resultSet -> true, username) != null;
     }
 
     /**
@@ -69,9 +88,9 @@ public class AccountController extends BaseController {
      * @return whether the password is valid
      */
     public boolean isValidPassword(String username, String password) {
-        if (!accountExists(username)) return false;
+        String hashedPassword = getSingleResult("SELECT password FROM accounts WHERE username = ?", resultSet -> resultSet.getString("password"), username);
+        if (hashedPassword == null) return false;
 
-        String hashedPassword = (String) getSingleResult("SELECT password FROM accounts WHERE username = ?", username).get("password");
         return BCrypt.checkpw(password, hashedPassword);
     }
 
@@ -102,19 +121,15 @@ public class AccountController extends BaseController {
      * @return the username of the account
      */
     public String getUsernameById(int id) {
-        var result = getSingleResult("SELECT username FROM accounts WHERE id = ?", id);
-        if (result == null) return null;
-        return (String) result.get("username");
+        return getSingleResult("SELECT username FROM accounts WHERE id = ?", resultSet -> resultSet.getString("username"), id);
     }
 
     /**
      * Get all accounts
      * @return a list of all accounts with their id and username
      */
-    public java.util.List<java.util.Map<String, Object>> getAllAccounts() {
-        java.util.ArrayList<java.util.HashMap<String, Object>> results = getMultipleResults("SELECT id, username FROM accounts");
-        if (results == null) return new java.util.ArrayList<>();
-        return new java.util.ArrayList<>(results);
+    public List<Account> getAllAccounts() {
+        return getMultipleResults("SELECT id, username FROM accounts", ACCOUNT_MAPPER);
     }
 
     /**
@@ -122,9 +137,8 @@ public class AccountController extends BaseController {
      * @return true if at least one account exists
      */
     public boolean hasAnyAccounts() {
-        var result = getSingleResult("SELECT COUNT(*) as count FROM accounts");
-        if (result == null) return false;
-        return ((Number) result.get("count")).intValue() > 0;
+        Integer count = getSingleResult("SELECT COUNT(*) as count FROM accounts", resultSet -> resultSet.getInt("count"));
+        return count != null && count > 0;
     }
 
 }
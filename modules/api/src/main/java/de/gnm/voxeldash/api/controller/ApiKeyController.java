@@ -1,8 +1,5 @@
 package de.gnm.voxeldash.api.controller;
 
-import java.sql.Connection;
-import java.util.HashMap;
-
 public class ApiKeyController extends BaseController {
 
     private static ApiKeyController instance;
@@ -10,10 +7,10 @@ public class ApiKeyController extends BaseController {
     /**
      * Basic constructor of the {@link ApiKeyController}
      *
-     * @param connection Database connection
+     * @param pool Database connection pool
      */
-    public ApiKeyController(Connection connection) {
-        super(connection);
+    public ApiKeyController(ConnectionPool pool) {
+        super(pool);
         instance = this;
         createTable();
     }
@@ -47,11 +44,7 @@ public class ApiKeyController extends BaseController {
      * @return The API key, or null if not set
      */
     public String getApiKey(String providerId) {
-        HashMap<String, Object> result = getSingleResult("SELECT api_key FROM api_keys WHERE provider_id = ?", providerId);
-        if (result == null) {
-            return null;
-        }
-        return (String) result.get("api_key");
+        return getSingleResult("SELECT api_key FROM api_keys WHERE provider_id = ?", resultSet -> resultSet.getString("api_key"), providerId);
     }
 
     /**
@@ -3,34 +3,91 @@ package de.gnm.voxeldash.api.controller;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class BaseController {
 
-    protected final Connection connection;
+    protected final ConnectionPool pool;
+    protected final WriteQueue writeQueue;
 
-    public BaseController(Connection connection) {
-        this.connection = connection;
+    /**
+     * Prepared statements of this controller, keyed by connection and SQL.
+     * A connection is only used by one thread at a time, so the inner maps don't need to be synchronized
+     */
+    private final Map<Connection, Map<String, PreparedStatement>> statementCache = new ConcurrentHashMap<>();
+
+    public BaseController(ConnectionPool pool) {
+        this.pool = pool;
+        this.writeQueue = pool.getWriteQueue();
+    }
+
+    /**
+     * Get a cached prepared statement for a query and bind the parameters
+     * @param connection The connection to prepare the statement on
+     * @param query The query to prepare
+     * @param params The parameters for the query
+     * @return The prepared statement
+     * @throws SQLException if the statement could not be prepared
+     */
+    private PreparedStatement prepare(Connection connection, String query, Object... params) throws SQLException {
+        Map<String, PreparedStatement> statements = statementCache.computeIfAbsent(connection, c -> new HashMap<>());
+
+        PreparedStatement statement = statements.get(query);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(query);
+            statements.put(query, statement);
+        }
+
+        statement.clearParameters();
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
+
+        return statement;
     }
 
     /**
-     * Execute an update query
+     * Execute an update query and wait until it has been committed
      * @param query The query to execute
      * @param params The parameters for the query
      * @return The number of rows affected
      */
     protected int executeUpdate(String query, Object... params) {
         try {
-            PreparedStatement statement = connection.prepareStatement(query);
-
-            for (int i = 0; i < params.length; i++) {
-                statement.setObject(i + 1, params[i]);
-            }
+            return queueUpdate(query, params).join();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
 
-            int i = statement.executeUpdate();
-            statement.close();
+    /**
+     * Queue an update query without waiting for it. The query gets committed
+     * together with the other mutations of the current flush window
+     * @param query The query to execute
+     * @param params The parameters for the query
+     * @return A future that completes with the number of rows affected once the query has been committed
+     */
+    protected CompletableFuture<Integer> queueUpdate(String query, Object... params) {
+        return writeQueue.submit(connection -> prepare(connection, query, params).executeUpdate());
+    }
 
-            return i;
-        } catch (SQLException e) {
+    /**
+     * Execute an insert query that ends with a 'RETURNING' clause
+     * @param query The query to execute
+     * @param params The parameters for the query
+     * @return The first returned column (e.g. the generated id), or -1 if the insert failed
+     */
+    protected long executeInsert(String query, Object... params) {
+        try {
+            return writeQueue.submit(connection -> {
+                try (ResultSet resultSet = prepare(connection, query, params).executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : -1L;
+                }
+            }).join();
+        } catch (RuntimeException e) {
             return -1;
         }
     }
@@ -38,35 +95,17 @@ public abstract class BaseController {
     /**
      * Get a single result from a query
      * @param query The query to execute
+     * @param mapper The mapper for the result row
      * @param params The parameters for the query
-     * @return The result of the query
+     * @return The mapped result of the query, or null if no row was found
      */
-    protected HashMap<String, Object> getSingleResult(String query, Object... params) {
+    protected <T> T getSingleResult(String query, RowMapper<T> mapper, Object... params) {
         try {
-            PreparedStatement statement = connection.prepareStatement(query);
-
-            for (int i = 0; i < params.length; i++) {
-                statement.setObject(i + 1, params[i]);
-            }
-
-            ResultSet resultSet = statement.executeQuery();
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            HashMap<String,Object> result = new HashMap<>();
-
-            if (resultSet.next()) {
-                for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                    result.put(metaData.getColumnName(i), resultSet.getObject(i));
+            return pool.read(connection -> {
+                try (ResultSet resultSet = prepare(connection, query, params).executeQuery()) {
+                    return resultSet.next() ? mapper.map(resultSet) : null;
                 }
-            }
-
-            resultSet.close();
-            statement.close();
-
-            if (result.isEmpty()) {
-                return null;
-            }
-
-            return result;
+            });
         } catch (SQLException e) {
             return null;
         }
@@ -75,36 +114,48 @@ public abstract class BaseController {
     /**
      * Get multiple results from a query
      * @param query The query to execute
+     * @param mapper The mapper for the result rows
      * @param params The parameters for the query
-     * @return The results of the query
+     * @return The mapped results of the query, empty if the query failed
      */
-    protected ArrayList<HashMap<String, Object>> getMultipleResults(String query, Object... params) {
+    protected <T> List<T> getMultipleResults(String query, RowMapper<T> mapper, Object... params) {
         try {
-            PreparedStatement statement = connection.prepareStatement(query);
-
-            for (int i = 0; i < params.length; i++) {
-                statement.setObject(i + 1, params[i]);
-            }
+            return pool.read(connection -> {
+                List<T> results = new ArrayList<>();
+                try (ResultSet resultSet = prepare(connection, query, params).executeQuery()) {
+                    while (resultSet.next()) {
+                        results.add(mapper.map(resultSet));
+                    }
+                }
+                return results;
+            });
+        } catch (SQLException e) {
+            return new ArrayList<>();
+        }
+    }
 
-            ResultSet resultSet = statement.executeQuery();
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            ArrayList<HashMap<String, Object>> results = new ArrayList<>();
+    /**
+     * Called when the controller gets shut down. Controllers that keep
+     * state in memory should write it back to the database here.
+     * The prepared statements stay open until the write queue is drained.
+     */
+    public void close() {
+    }
 
-            while (resultSet.next()) {
-                HashMap<String, Object> result = new HashMap<>();
-                for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                    result.put(metaData.getColumnName(i), resultSet.getObject(i));
+    /**
+     * Closes the cached prepared statements. Called by the {@link ControllerManager}
+     * once the write queue ran all queued operations
+     */
+    void closeStatements() {
+        for (Map<String, PreparedStatement> statements : statementCache.values()) {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
                 }
-                results.add(result);
             }
-
-            resultSet.close();
-            statement.close();
-
-            return results;
-        } catch (SQLException e) {
-            return null;
         }
+        statementCache.clear();
     }
 
 }
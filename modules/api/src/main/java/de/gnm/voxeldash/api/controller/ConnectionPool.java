@@ -0,0 +1,166 @@
+package de.gnm.voxeldash.api.controller;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small connection pool sized for SQLite. SQLite only allows a single writer at a time,
+ * so all writes go through one connection, while reads are spread over multiple reader
+ * connections that can run in parallel thanks to the write-ahead log.
+ * Mutations of the controllers are funneled through the {@link WriteQueue} of the pool.
+ */
+public class ConnectionPool {
+
+    public static final int DEFAULT_READER_COUNT = 4;
+
+    private static final long MMAP_SIZE = 256L * 1024 * 1024;
+    private static final int BUSY_TIMEOUT = 5000;
+
+    private final Connection writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<Connection> readers = new ArrayList<>();
+    private final BlockingQueue<Connection> idleReaders;
+    private final WriteQueue writeQueue;
+
+    /**
+     * Basic constructor of the {@link ConnectionPool}
+     *
+     * @param jdbcUrl     The JDBC URL of the database
+     * @param readerCount The amount of reader connections. In-memory databases can't be shared
+     *                    between connections, so they always use the writer for reads
+     * @throws SQLException if a connection could not be opened
+     */
+    public ConnectionPool(String jdbcUrl, int readerCount) throws SQLException {
+        if (jdbcUrl.contains(":memory:")) readerCount = 0;
+
+        writer = DriverManager.getConnection(jdbcUrl);
+        configure(writer, "PRAGMA journal_mode = WAL", "PRAGMA synchronous = NORMAL");
+
+        idleReaders = new ArrayBlockingQueue<>(Math.max(1, readerCount));
+        for (int i = 0; i < readerCount; i++) {
+            Connection reader = DriverManager.getConnection(jdbcUrl);
+            configure(reader, "PRAGMA query_only = true");
+            readers.add(reader);
+            idleReaders.add(reader);
+        }
+
+        writeQueue = new WriteQueue(this);
+    }
+
+    /**
+     * Applies the common and the given pragmas to a connection
+     *
+     * @param connection The connection to configure
+     * @param pragmas    Additional pragmas for the connection
+     * @throws SQLException if a pragma could not be applied
+     */
+    private static void configure(Connection connection, String... pragmas) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT);
+            statement.execute("PRAGMA mmap_size = " + MMAP_SIZE);
+            for (String pragma : pragmas) {
+                statement.execute(pragma);
+            }
+        }
+    }
+
+    /**
+     * Runs a callback with a reader connection. Blocks until a reader is available
+     *
+     * @param callback The callback to run
+     * @param <T>      The result type of the callback
+     * @return the result of the callback
+     * @throws SQLException if the callback fails
+     */
+    public <T> T read(ConnectionCallback<T> callback) throws SQLException {
+        if (readers.isEmpty()) return write(callback);
+
+        Connection reader;
+        try {
+            reader = idleReaders.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+
+        try {
+            return callback.execute(reader);
+        } finally {
+            idleReaders.add(reader);
+        }
+    }
+
+    /**
+     * Runs a callback with the writer connection. Only one callback can hold the writer at a time
+     *
+     * @param callback The callback to run
+     * @param <T>      The result type of the callback
+     * @return the result of the callback
+     * @throws SQLException if the callback fails
+     */
+    public <T> T write(ConnectionCallback<T> callback) throws SQLException {
+        writeLock.lock();
+        try {
+            return callback.execute(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the queue that group-commits the mutations on the writer connection
+     *
+     * @return the write queue
+     */
+    public WriteQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    /**
+     * Writes all queued mutations and closes all connections of the pool
+     */
+    public void close() {
+        writeQueue.close();
+
+        for (Connection reader : readers) {
+            closeQuietly(reader);
+        }
+
+        writeLock.lock();
+        try {
+            closeQuietly(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Closes a connection, ignoring any errors
+     *
+     * @param connection The connection to close
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * A unit of work that runs with a pooled connection
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    public interface ConnectionCallback<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+
+}
@@ -0,0 +1,237 @@
+package de.gnm.voxeldash.api.controller;
+
+import de.gnm.voxeldash.api.entities.ConsoleLine;
+import de.gnm.voxeldash.api.event.console.ConsoleMessageReceivedEvent;
+import org.apache.commons.io.input.ReversedLinesFileReader;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the most recent console lines in memory, so clients attaching to the console
+ * get their history without reading the log file. Lines are stored with the sequence number
+ * of their {@link ConsoleMessageReceivedEvent}, which clients use to request only the lines they are missing.
+ * The history is also the source of the live lines: listeners are called under the same lock the
+ * history is read with, so a client that reads the history and starts listening in
+ * {@link #withLock(Runnable)} neither misses nor repeats a line.
+ */
+public class ConsoleHistory {
+
+    public static final int DEFAULT_CAPACITY = 5000;
+
+    private static final Logger LOG = Logger.getLogger("ConsoleHistory");
+
+    private final ConsoleLine[] lines;
+    private final List<Consumer<ConsoleLine>> listeners = new CopyOnWriteArrayList<>();
+    private int head;
+    private int size;
+
+    /**
+     * Basic constructor of the {@link ConsoleHistory}
+     *
+     * @param capacity The maximum amount of lines to keep
+     */
+    public ConsoleHistory(int capacity) {
+        this.lines = new ConsoleLine[capacity];
+    }
+
+    /**
+     * Appends a console message to the history. Evicts the oldest line if the history is full
+     *
+     * @param event The console message
+     * @return the stored line
+     */
+    public ConsoleLine append(ConsoleMessageReceivedEvent event) {
+        return append(new ConsoleLine(event.getSequence(), event.getTimestamp(), event.getMessage()));
+    }
+
+    /**
+     * Appends a line to the history. Evicts the oldest line if the history is full.
+     * Lines that arrive slightly out of order are moved to their place, so the history stays sorted
+     *
+     * @param line The line
+     * @return the stored line
+     */
+    public synchronized ConsoleLine append(ConsoleLine line) {
+        long sequence = line.getSequence();
+
+        if (size == lines.length) {
+            head = (head + 1) % lines.length;
+            size--;
+        }
+
+        int position = size;
+        while (position > 0 && get(position - 1).getSequence() > sequence) {
+            lines[index(position)] = get(position - 1);
+            position--;
+        }
+        lines[index(position)] = line;
+        size++;
+
+        for (Consumer<ConsoleLine> listener : listeners) {
+            try {
+                listener.accept(line);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "A console listener failed", e);
+            }
+        }
+
+        return line;
+    }
+
+    /**
+     * Adds a listener that gets every line right after it got appended. The listener is called
+     * while the history is locked, so it must not block
+     *
+     * @param listener The listener
+     */
+    public void addListener(Consumer<ConsoleLine> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener
+     *
+     * @param listener The listener
+     */
+    public void removeListener(Consumer<ConsoleLine> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Runs an action while no line can be appended, e.g. to send the history to a client
+     * and start sending it the live lines without a line getting lost in between
+     *
+     * @param action The action
+     */
+    public synchronized void withLock(Runnable action) {
+        action.run();
+    }
+
+    /**
+     * Gets all lines with a sequence number greater than the given one
+     *
+     * @param since The sequence number of the last line the client already has, or 0 for the whole history
+     * @param limit The maximum amount of lines, the most recent lines are kept
+     * @return the lines in the order they were received
+     */
+    public synchronized List<ConsoleLine> getSince(long since, int limit) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (get(middle).getSequence() <= since) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int from = Math.max(low, size - limit);
+        if (from >= size) return Collections.emptyList();
+
+        List<ConsoleLine> result = new ArrayList<>(size - from);
+        for (int i = from; i < size; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Checks if lines after the given sequence number are no longer in the history, because they got
+     * evicted or the cursor belongs to a previous run, so a client with this cursor can't be brought up to date completely
+     *
+     * @param since The sequence number of the last line the client has
+     * @return true if lines the client is missing are no longer available
+     */
+    public synchronized boolean hasGap(long since) {
+        if (since <= 0 || size == 0) return false;
+        return since < get(0).getSequence() - 1 || since > get(size - 1).getSequence();
+    }
+
+    /**
+     * Gets the sequence number of the oldest line that is still in the history
+     *
+     * @return the oldest sequence number, or 0 if the history is empty
+     */
+    public synchronized long getOldestSequence() {
+        return size == 0 ? 0 : get(0).getSequence();
+    }
+
+    /**
+     * Gets the sequence number of the most recent line
+     *
+     * @return the latest sequence number, or 0 if the history is empty
+     */
+    public synchronized long getLatestSequence() {
+        return size == 0 ? 0 : get(size - 1).getSequence();
+    }
+
+    /**
+     * Checks if the history is empty
+     *
+     * @return true if the history contains no lines
+     */
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets a line by its position in the history
+     *
+     * @param position The position, 0 is the oldest line
+     * @return the line
+     */
+    private ConsoleLine get(int position) {
+        return lines[index(position)];
+    }
+
+    /**
+     * Converts a position in the history to an index in the ring
+     *
+     * @param position The position, 0 is the oldest line
+     * @return the index in the ring
+     */
+    private int index(int position) {
+        return (head + position) % lines.length;
+    }
+
+    /**
+     * Fills an empty history with the last lines of a log file, e.g. the output from before the plugin got enabled
+     *
+     * @param logFile The log file
+     * @param count   The maximum amount of lines to read
+     */
+    public void seed(File logFile, int count) {
+        if (!logFile.exists()) return;
+
+        List<String> tail = new ArrayList<>();
+        try (ReversedLinesFileReader reader = ReversedLinesFileReader.builder()
+                .setFile(logFile)
+                .setCharset(StandardCharsets.UTF_8)
+                .get()) {
+            String line;
+            while (tail.size() < count && (line = reader.readLine()) != null) {
+                tail.add(line);
+            }
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to read the console history from " + logFile, e);
+            return;
+        }
+        Collections.reverse(tail);
+
+        synchronized (this) {
+            if (!isEmpty()) return;
+            for (String line : tail) {
+                append(new ConsoleLine(ConsoleMessageReceivedEvent.nextSequence(), System.currentTimeMillis(), line));
+            }
+        }
+    }
+}
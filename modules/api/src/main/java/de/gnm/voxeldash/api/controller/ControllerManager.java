@@ -1,7 +1,5 @@
 package de.gnm.voxeldash.api.controller;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
@@ -9,21 +7,31 @@ import java.util.Map;
 public class ControllerManager {
 
     private final Map<Class<?>, BaseController> controller = new HashMap<>();
-    Connection connection = null;
+    ConnectionPool pool = null;
 
     /**
-     * Set the connection to the database
+     * Set the connection to the database. Opens a connection pool with one writer
+     * and {@link ConnectionPool#DEFAULT_READER_COUNT} reader connections
      *
      * @param jdbcUrl The JDBC URL of the database
      */
     public void setConnection(String jdbcUrl) {
         try {
-            this.connection = DriverManager.getConnection(jdbcUrl);
+            this.pool = new ConnectionPool(jdbcUrl, ConnectionPool.DEFAULT_READER_COUNT);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Get the queue that group-commits the mutations of all controllers
+     *
+     * @return The write queue
+     */
+    public WriteQueue getWriteQueue() {
+        return pool.getWriteQueue();
+    }
+
     /**
      * Register a controller
      *
@@ -53,6 +61,24 @@ public class ControllerManager {
         }
     }
 
+    /**
+     * Closes all controllers and the connections to the database
+     */
+    public void close() {
+        controller.values().forEach(BaseController::close);
+
+        if (pool != null) {
+            pool.getWriteQueue().close();
+        }
+
+        controller.values().forEach(BaseController::closeStatements);
+        controller.clear();
+
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
     /**
      * Create an instance of a controller
      *
@@ -61,7 +87,7 @@ public class ControllerManager {
      */
     private BaseController createControllerInstance(Class<?> controllerType) {
         try {
-            return (BaseController) controllerType.getConstructor(Connection.class).newInstance(connection);
+            return (BaseController) controllerType.getConstructor(ConnectionPool.class).newInstance(pool);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
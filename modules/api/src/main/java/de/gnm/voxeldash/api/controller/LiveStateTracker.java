@@ -0,0 +1,312 @@
+package de.gnm.voxeldash.api.controller;
+
+import de.gnm.voxeldash.VoxelDashLoader;
+import de.gnm.voxeldash.api.entities.OnlinePlayer;
+import de.gnm.voxeldash.api.entities.World;
+import de.gnm.voxeldash.api.entities.widget.Widget;
+import de.gnm.voxeldash.api.entities.widget.WidgetDataPoint;
+import de.gnm.voxeldash.api.entities.widget.WidgetUpdate;
+import de.gnm.voxeldash.api.event.EventDispatcher;
+import de.gnm.voxeldash.api.event.StateChangedEvent;
+import de.gnm.voxeldash.api.event.players.PlayersChangedEvent;
+import de.gnm.voxeldash.api.event.widgets.WidgetsChangedEvent;
+import de.gnm.voxeldash.api.event.worlds.WorldsChangedEvent;
+import de.gnm.voxeldash.api.pipes.players.OnlinePlayerPipe;
+import de.gnm.voxeldash.api.pipes.worlds.WorldPipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Samples the online players, the worlds and the widgets on a single thread and publishes what changed since
+ * the last sample as {@link StateChangedEvent}s. A state is only sampled while someone is subscribed to its event,
+ * so the data is collected once per interval, no matter how many clients are watching.
+ */
+public class LiveStateTracker {
+
+    public static final long DEFAULT_INTERVAL = 2000;
+
+    private static final Logger LOG = Logger.getLogger("LiveStateTracker");
+
+    /**
+     * Playtime and world time change with every sample, so they only count as a change
+     * once they moved by a step that is visible in the dashboard
+     */
+    private static final long PLAYTIME_RESOLUTION = 60000;
+    private static final long WORLD_TIME_RESOLUTION = 1000;
+
+    private final VoxelDashLoader loader;
+    private final long interval;
+    private final Set<Class<? extends StateChangedEvent>> fullStateRequests = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+
+    private Map<UUID, OnlinePlayer> players;
+    private long playersRevision;
+
+    private Map<String, World> worlds;
+    private long worldsRevision;
+
+    private Map<String, Long> widgetTimestamps;
+    private Map<String, Map<String, Object>> widgetMetadata;
+    private long widgetsRevision;
+
+    /**
+     * Basic constructor of the {@link LiveStateTracker}
+     *
+     * @param loader   The loader that provides the pipes and the widgets
+     * @param interval The time between two samples in milliseconds
+     */
+    public LiveStateTracker(VoxelDashLoader loader, long interval) {
+        this.loader = loader;
+        this.interval = interval;
+    }
+
+    /**
+     * Starts sampling
+     */
+    public synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "VoxelDash-LiveState");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sampling
+     */
+    public synchronized void stop() {
+        if (scheduler == null) return;
+
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Publishes the complete state of an event type with the next sample, e.g. because a client just subscribed to it.
+     * Requests that arrive before the sample are combined
+     *
+     * @param eventType The event type
+     */
+    public synchronized void requestFullState(Class<?> eventType) {
+        if (eventType != PlayersChangedEvent.class && eventType != WorldsChangedEvent.class
+                && eventType != WidgetsChangedEvent.class) return;
+
+        if (fullStateRequests.add(eventType.asSubclass(StateChangedEvent.class)) && scheduler != null) {
+            scheduler.execute(this::sample);
+        }
+    }
+
+    /**
+     * Samples all states that have subscribers and publishes their changes
+     */
+    private void sample() {
+        EventDispatcher dispatcher = loader.getEventDispatcher();
+
+        try {
+            if (dispatcher.hasSubscribers(PlayersChangedEvent.class)) {
+                samplePlayers(dispatcher, fullStateRequests.remove(PlayersChangedEvent.class));
+            } else {
+                players = null;
+            }
+
+            if (dispatcher.hasSubscribers(WorldsChangedEvent.class)) {
+                sampleWorlds(dispatcher, fullStateRequests.remove(WorldsChangedEvent.class));
+            } else {
+                worlds = null;
+            }
+
+            if (dispatcher.hasSubscribers(WidgetsChangedEvent.class)) {
+                sampleWidgets(dispatcher, fullStateRequests.remove(WidgetsChangedEvent.class));
+            } else {
+                widgetTimestamps = null;
+                widgetMetadata = null;
+            }
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to sample the live state", e);
+        }
+    }
+
+    /**
+     * Publishes the players that joined, left or changed since the last sample
+     *
+     * @param dispatcher The event dispatcher
+     * @param full       true to publish all online players
+     */
+    private void samplePlayers(EventDispatcher dispatcher, boolean full) {
+        OnlinePlayerPipe pipe = getPipe(OnlinePlayerPipe.class);
+        if (pipe == null) return;
+
+        Map<UUID, OnlinePlayer> current = new LinkedHashMap<>();
+        for (OnlinePlayer player : pipe.getOnlinePlayers()) {
+            current.put(player.getUuid(), player);
+        }
+
+        if (full || players == null) {
+            players = current;
+            dispatcher.dispatch(new PlayersChangedEvent(++playersRevision, true, new ArrayList<>(current.values()), Collections.emptyList()));
+            return;
+        }
+
+        List<OnlinePlayer> changed = new ArrayList<>();
+        for (OnlinePlayer player : current.values()) {
+            if (!isSamePlayer(players.get(player.getUuid()), player)) changed.add(player);
+        }
+
+        List<UUID> removed = new ArrayList<>();
+        for (UUID uuid : players.keySet()) {
+            if (!current.containsKey(uuid)) removed.add(uuid);
+        }
+
+        players = current;
+        if (changed.isEmpty() && removed.isEmpty()) return;
+
+        dispatcher.dispatch(new PlayersChangedEvent(++playersRevision, false, changed, removed));
+    }
+
+    /**
+     * Publishes the worlds that got loaded, unloaded or changed since the last sample
+     *
+     * @param dispatcher The event dispatcher
+     * @param full       true to publish all worlds
+     */
+    private void sampleWorlds(EventDispatcher dispatcher, boolean full) {
+        WorldPipe pipe = getPipe(WorldPipe.class);
+        if (pipe == null) return;
+
+        Map<String, World> current = new LinkedHashMap<>();
+        for (World world : pipe.getWorlds()) {
+            current.put(world.getName(), world);
+        }
+
+        if (full || worlds == null) {
+            worlds = current;
+            dispatcher.dispatch(new WorldsChangedEvent(++worldsRevision, true, new ArrayList<>(current.values()), Collections.emptyList()));
+            return;
+        }
+
+        List<World> changed = new ArrayList<>();
+        for (World world : current.values()) {
+            if (!isSameWorld(worlds.get(world.getName()), world)) changed.add(world);
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String name : worlds.keySet()) {
+            if (!current.containsKey(name)) removed.add(name);
+        }
+
+        worlds = current;
+        if (changed.isEmpty() && removed.isEmpty()) return;
+
+        dispatcher.dispatch(new WorldsChangedEvent(++worldsRevision, false, changed, removed));
+    }
+
+    /**
+     * Publishes the data points that got collected and the metadata that changed since the last sample.
+     * If widgets got registered or removed, all widgets are published again
+     *
+     * @param dispatcher The event dispatcher
+     * @param full       true to publish all widgets with all their data
+     */
+    private void sampleWidgets(EventDispatcher dispatcher, boolean full) {
+        List<Widget> widgets = new ArrayList<>(loader.getWidgetRegistry().getAllWidgets());
+        if (widgetTimestamps == null || !widgetTimestamps.keySet().equals(getWidgetIds(widgets))) full = true;
+
+        Map<String, Long> timestamps = new HashMap<>();
+        Map<String, Map<String, Object>> metadata = new HashMap<>();
+        List<WidgetUpdate> updates = new ArrayList<>();
+
+        for (Widget widget : widgets) {
+            List<WidgetDataPoint> data = widget.getData();
+            Map<String, Object> currentMetadata = widget.getMetadata();
+            if (data == null) data = Collections.emptyList();
+            if (currentMetadata == null) currentMetadata = Collections.emptyMap();
+
+            long lastTimestamp = full ? Long.MIN_VALUE : widgetTimestamps.get(widget.getId());
+            List<WidgetDataPoint> newData = new ArrayList<>();
+            long latest = lastTimestamp;
+            for (WidgetDataPoint point : data) {
+                if (point.getTimestamp() > lastTimestamp) newData.add(point);
+                latest = Math.max(latest, point.getTimestamp());
+            }
+
+            timestamps.put(widget.getId(), latest);
+            metadata.put(widget.getId(), currentMetadata);
+
+            boolean metadataChanged = full || !currentMetadata.equals(widgetMetadata.get(widget.getId()));
+            if (full || !newData.isEmpty() || metadataChanged) {
+                updates.add(new WidgetUpdate(widget, newData, metadataChanged ? currentMetadata : null, data.size()));
+            }
+        }
+
+        widgetTimestamps = timestamps;
+        widgetMetadata = metadata;
+        if (!full && updates.isEmpty()) return;
+
+        dispatcher.dispatch(new WidgetsChangedEvent(++widgetsRevision, full, updates));
+    }
+
+    private static Set<String> getWidgetIds(List<Widget> widgets) {
+        Set<String> ids = new HashSet<>();
+        for (Widget widget : widgets) {
+            ids.add(widget.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Gets a pipe of the platform, if the platform provides it
+     *
+     * @param pipeType The type of the pipe
+     * @param <T>      The type of the pipe
+     * @return the pipe, or null if the platform does not provide it
+     */
+    private <T> T getPipe(Class<T> pipeType) {
+        try {
+            return loader.getPipe(pipeType);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static boolean isSamePlayer(OnlinePlayer previous, OnlinePlayer current) {
+        return previous != null
+                && Objects.equals(previous.getName(), current.getName())
+                && Objects.equals(previous.getWorld(), current.getWorld())
+                && Objects.equals(previous.getIpAddress(), current.getIpAddress())
+                && previous.getHealth() == current.getHealth()
+                && previous.getHunger() == current.getHunger()
+                && previous.isOp() == current.isOp()
+                && Objects.equals(previous.getGamemode(), current.getGamemode())
+                && previous.getPlaytime() / PLAYTIME_RESOLUTION == current.getPlaytime() / PLAYTIME_RESOLUTION;
+    }
+
+    private static boolean isSameWorld(World previous, World current) {
+        return previous != null
+                && Objects.equals(previous.getEnvironment(), current.getEnvironment())
+                && previous.getPlayerCount() == current.getPlayerCount()
+                && previous.getTime() / WORLD_TIME_RESOLUTION == current.getTime() / WORLD_TIME_RESOLUTION
+                && Objects.equals(previous.getWeather(), current.getWeather())
+                && Objects.equals(previous.getDifficulty(), current.getDifficulty())
+                && previous.getSeed() == current.getSeed()
+                && previous.isHardcore() == current.isHardcore()
+                && Objects.equals(previous.getWorldType(), current.getWorldType());
+    }
+}
@@ -0,0 +1,465 @@
+package de.gnm.voxeldash.api.controller;
+
+import de.gnm.voxeldash.api.controller.LogSegment.IntList;
+import de.gnm.voxeldash.api.entities.ConsoleLine;
+import de.gnm.voxeldash.api.event.console.ConsoleMessageReceivedEvent;
+import de.gnm.voxeldash.api.helper.LogLineHelper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Archives all console lines in segments on disk and keeps an inverted index of the words, levels and loggers
+ * of every segment, so past console output can be searched without scanning the log files.
+ * The newest lines are kept in memory and journaled until the segment is full, then the segment gets sealed
+ * into a compressed data file and an index file. Searches skip segments by their time range, sequence range
+ * and bloom filter before any postings are read.
+ */
+public class LogArchive {
+
+    public static final int SEGMENT_LINES = 20000;
+    public static final int MAX_SEGMENTS = 500;
+    public static final int QUEUE_CAPACITY = SEGMENT_LINES * 2;
+
+    private static final Logger LOG = Logger.getLogger("LogArchive");
+    private static final String JOURNAL_FILE = "active.journal";
+    private static final String LEVEL_PREFIX = "level:";
+    private static final String LOGGER_PREFIX = "logger:";
+    private static final int JOURNAL_FLUSH_LINES = 64;
+    private static final int POSTINGS_CACHE_SIZE = 32;
+    private static final int LINES_CACHE_SIZE = 8;
+
+    private final File folder;
+    private final List<LogSegment> segments = new ArrayList<>();
+    private final List<ConsoleLine> activeLines = new ArrayList<>();
+    private final Map<String, IntList> activePostings = new HashMap<>();
+    private final Map<LogSegment, Map<String, IntList>> postingsCache = createCache(POSTINGS_CACHE_SIZE);
+    private final Map<LogSegment, List<ConsoleLine>> linesCache = createCache(LINES_CACHE_SIZE);
+    private DataOutputStream journal;
+    private int unflushedLines;
+
+    /**
+     * Basic constructor of the {@link LogArchive}. Loads the sealed segments and recovers the lines of the active segment
+     *
+     * @param folder The folder the archive is stored in
+     */
+    public LogArchive(File folder) {
+        this.folder = folder;
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            LOG.warning("Could not create the console archive folder " + folder);
+        }
+
+        loadSegments();
+        recoverJournal();
+        openJournal();
+    }
+
+    /**
+     * Loads the headers of all sealed segments and removes files of incomplete segments
+     */
+    private void loadSegments() {
+        File[] files = folder.listFiles();
+        if (files == null) return;
+
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(".idx")) {
+                try {
+                    segments.add(LogSegment.read(file));
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Skipping damaged console archive segment " + name, e);
+                }
+            } else if (name.endsWith(".tmp") || (name.endsWith(".dat") && !new File(folder, name.replace(".dat", ".idx")).exists())) {
+                file.delete();
+            }
+        }
+
+        segments.sort(Comparator.comparingLong(LogSegment::getFirstSequence));
+    }
+
+    /**
+     * Reads the lines of the active segment from the journal. A partially written last line is ignored
+     */
+    private void recoverJournal() {
+        File journalFile = new File(folder, JOURNAL_FILE);
+        if (!journalFile.exists()) return;
+
+        long lastSealed = segments.isEmpty() ? Long.MIN_VALUE : segments.get(segments.size() - 1).getLastSequence();
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while (true) {
+                ConsoleLine line = LogSegment.readLine(input);
+                if (line.getSequence() > lastSealed) index(line);
+            }
+        } catch (EOFException ignored) {
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to recover the console archive journal", e);
+        }
+
+        if (activeLines.size() >= SEGMENT_LINES) seal();
+    }
+
+    /**
+     * Starts a new journal that contains the lines of the active segment
+     */
+    private void openJournal() {
+        try {
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(folder, JOURNAL_FILE))));
+            for (ConsoleLine line : activeLines) {
+                LogSegment.writeLine(journal, line);
+            }
+            journal.flush();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to open the console archive journal, new lines are only kept in memory", e);
+            closeJournal();
+        }
+    }
+
+    /**
+     * Archives a console message
+     *
+     * @param event The console message
+     */
+    public void append(ConsoleMessageReceivedEvent event) {
+        append(new ConsoleLine(event.getSequence(), event.getTimestamp(), event.getMessage()));
+    }
+
+    /**
+     * Archives a line. Seals the active segment once it is full
+     *
+     * @param line The line
+     */
+    public synchronized void append(ConsoleLine line) {
+        index(line);
+
+        if (journal != null) {
+            try {
+                LogSegment.writeLine(journal, line);
+                if (++unflushedLines >= JOURNAL_FLUSH_LINES) {
+                    journal.flush();
+                    unflushedLines = 0;
+                }
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to write to the console archive journal, new lines are only kept in memory", e);
+                closeJournal();
+            }
+        }
+
+        if (activeLines.size() >= SEGMENT_LINES) {
+            seal();
+            closeJournal();
+            openJournal();
+        }
+    }
+
+    /**
+     * Adds a line to the active segment and its postings
+     *
+     * @param line The line
+     */
+    private void index(ConsoleLine line) {
+        int position = activeLines.size();
+        activeLines.add(line);
+
+        String text = LogLineHelper.stripFormatting(line.getMessage());
+        for (String token : LogLineHelper.tokenize(LogLineHelper.getContent(text))) {
+            addPosting(token, position);
+        }
+
+        String level = LogLineHelper.getLevel(text);
+        if (level != null) addPosting(LEVEL_PREFIX + level, position);
+
+        String logger = LogLineHelper.getLogger(text);
+        if (logger != null) addPosting(LOGGER_PREFIX + logger.toLowerCase(Locale.ROOT), position);
+    }
+
+    private void addPosting(String term, int position) {
+        activePostings.computeIfAbsent(term, key -> new IntList(4)).add(position);
+    }
+
+    /**
+     * Writes the active segment to disk and removes the oldest segments if there are too many
+     */
+    private void seal() {
+        if (activeLines.isEmpty()) return;
+
+        try {
+            segments.add(LogSegment.write(folder, activeLines, activePostings));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to seal a console archive segment, " + activeLines.size() + " lines are lost", e);
+        }
+
+        activeLines.clear();
+        activePostings.clear();
+
+        while (segments.size() > MAX_SEGMENTS) {
+            LogSegment oldest = segments.remove(0);
+            synchronized (postingsCache) {
+                postingsCache.remove(oldest);
+            }
+            synchronized (linesCache) {
+                linesCache.remove(oldest);
+            }
+            oldest.delete();
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) return;
+
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to close the console archive journal", e);
+        }
+        journal = null;
+        unflushedLines = 0;
+    }
+
+    /**
+     * Flushes and closes the journal. The lines of the active segment get recovered on the next start
+     */
+    public synchronized void close() {
+        closeJournal();
+    }
+
+    /**
+     * Searches the archive, starting with the most recent lines
+     *
+     * @param query    Words that all need to appear in the message, or null. Words that are not in the index
+     *                 because of their length are checked against the lines
+     * @param minLevel The minimum level of the lines, or null for all lines
+     * @param logger   The start of the logger name, or null for all loggers
+     * @param regex    A pattern that needs to be found in the line, or null
+     * @param from     The earliest time of the lines in milliseconds
+     * @param to       The latest time of the lines in milliseconds
+     * @param before   Only lines with a smaller sequence number are returned, used to get the next page
+     * @param limit    The maximum amount of lines
+     * @return the matching lines, newest first
+     */
+    public List<ConsoleLine> search(String query, String minLevel, String logger, Pattern regex,
+                                    long from, long to, long before, int limit) {
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.tokens = new HashSet<>();
+        criteria.words = new HashSet<>();
+        if (query != null) {
+            for (String word : LogLineHelper.getWords(query)) {
+                if (LogLineHelper.isToken(word)) {
+                    criteria.tokens.add(word);
+                } else {
+                    criteria.words.add(word);
+                }
+            }
+        }
+        criteria.levels = minLevel != null ? LogLineHelper.getLevelsFrom(minLevel.toUpperCase(Locale.ROOT)) : null;
+        criteria.loggerPrefix = logger != null ? LOGGER_PREFIX + logger.toLowerCase(Locale.ROOT) : null;
+        criteria.regex = regex;
+        criteria.from = from;
+        criteria.to = to;
+        criteria.before = before;
+
+        List<ConsoleLine> results = new ArrayList<>(Math.min(limit, 1024));
+        if (criteria.levels != null && criteria.levels.length == 0) return results;
+
+        List<ConsoleLine> active;
+        List<LogSegment> sealed;
+        synchronized (this) {
+            active = getCandidateLines(activePostings, activeLines, criteria);
+            sealed = new ArrayList<>(segments);
+        }
+        collect(active, null, criteria, results, limit);
+
+        for (int i = sealed.size() - 1; i >= 0 && results.size() < limit; i--) {
+            LogSegment segment = sealed.get(i);
+            if (!mightMatch(segment, criteria)) continue;
+
+            try {
+                Map<String, IntList> postings = getPostings(segment);
+                collect(getLines(segment), getCandidates(postings, criteria), criteria, results, limit);
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Could not search a console archive segment", e);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Checks the header of a segment to skip segments without matches
+     *
+     * @param segment  The segment
+     * @param criteria The search criteria
+     * @return false if the segment can't contain any matching line
+     */
+    private static boolean mightMatch(LogSegment segment, SearchCriteria criteria) {
+        if (segment.getFirstSequence() >= criteria.before) return false;
+        if (segment.getMaxTimestamp() < criteria.from || segment.getMinTimestamp() > criteria.to) return false;
+
+        for (String token : criteria.tokens) {
+            if (!segment.mightContain(token)) return false;
+        }
+
+        if (criteria.levels != null) {
+            boolean anyLevel = false;
+            for (String level : criteria.levels) {
+                anyLevel |= segment.mightContain(LEVEL_PREFIX + level);
+            }
+            if (!anyLevel) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies the lines of the active segment that can match the postings of the search, so they can be
+     * checked against the rest of the criteria without holding the lock of the archive
+     *
+     * @param postings The postings of the active segment
+     * @param lines    The lines of the active segment
+     * @param criteria The search criteria
+     * @return the candidate lines in the order they were archived
+     */
+    private static List<ConsoleLine> getCandidateLines(Map<String, IntList> postings, List<ConsoleLine> lines,
+                                                       SearchCriteria criteria) {
+        IntList candidates = getCandidates(postings, criteria);
+        if (candidates == null) return new ArrayList<>(lines);
+
+        List<ConsoleLine> result = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            result.add(lines.get(candidates.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the positions of the lines in a segment that contain all tokens and have a matching level and logger
+     *
+     * @param postings The postings of the segment
+     * @param criteria The search criteria
+     * @return the positions in ascending order, or null if the postings don't narrow down the lines
+     */
+    private static IntList getCandidates(Map<String, IntList> postings, SearchCriteria criteria) {
+        IntList candidates = null;
+
+        for (String token : criteria.tokens) {
+            IntList positions = postings.get(token);
+            if (positions == null) return new IntList(0);
+            candidates = candidates == null ? positions : IntList.intersect(candidates, positions);
+        }
+
+        if (criteria.levels != null) {
+            IntList levelPositions = new IntList(0);
+            for (String level : criteria.levels) {
+                IntList positions = postings.get(LEVEL_PREFIX + level);
+                if (positions != null) levelPositions = IntList.union(levelPositions, positions);
+            }
+            candidates = candidates == null ? levelPositions : IntList.intersect(candidates, levelPositions);
+        }
+
+        if (criteria.loggerPrefix != null) {
+            IntList loggerPositions = new IntList(0);
+            for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+                if (entry.getKey().startsWith(criteria.loggerPrefix)) {
+                    loggerPositions = IntList.union(loggerPositions, entry.getValue());
+                }
+            }
+            candidates = candidates == null ? loggerPositions : IntList.intersect(candidates, loggerPositions);
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Adds the matching lines of a segment to the results, newest first
+     *
+     * @param lines      The lines of the segment
+     * @param candidates The positions of the lines that need to be checked, or null to check all lines
+     * @param criteria   The search criteria
+     * @param results    The results
+     * @param limit      The maximum amount of results
+     */
+    private static void collect(List<ConsoleLine> lines, IntList candidates, SearchCriteria criteria,
+                                List<ConsoleLine> results, int limit) {
+        int count = candidates == null ? lines.size() : candidates.size();
+        for (int i = count - 1; i >= 0 && results.size() < limit; i--) {
+            ConsoleLine line = lines.get(candidates == null ? i : candidates.get(i));
+
+            if (line.getSequence() >= criteria.before) continue;
+            if (line.getTimestamp() < criteria.from || line.getTimestamp() > criteria.to) continue;
+            if (criteria.regex != null || !criteria.words.isEmpty()) {
+                String text = LogLineHelper.stripFormatting(line.getMessage());
+                if (!criteria.words.isEmpty() && !LogLineHelper.getWords(LogLineHelper.getContent(text)).containsAll(criteria.words)) continue;
+                if (criteria.regex != null && !criteria.regex.matcher(text).find()) continue;
+            }
+
+            results.add(line);
+        }
+    }
+
+    private Map<String, IntList> getPostings(LogSegment segment) throws IOException {
+        synchronized (postingsCache) {
+            Map<String, IntList> postings = postingsCache.get(segment);
+            if (postings != null) return postings;
+        }
+
+        Map<String, IntList> postings = segment.readPostings();
+        synchronized (postingsCache) {
+            postingsCache.put(segment, postings);
+        }
+        return postings;
+    }
+
+    private List<ConsoleLine> getLines(LogSegment segment) throws IOException {
+        synchronized (linesCache) {
+            List<ConsoleLine> lines = linesCache.get(segment);
+            if (lines != null) return lines;
+        }
+
+        List<ConsoleLine> lines = Arrays.asList(segment.readLines());
+        synchronized (linesCache) {
+            linesCache.put(segment, lines);
+        }
+        return lines;
+    }
+
+    private static <K, V> Map<K, V> createCache(int size) {
+        return new LinkedHashMap<>(size * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    private static class SearchCriteria {
+        private Set<String> tokens;
+        private Set<String> words;
+        private String[] levels;
+        private String loggerPrefix;
+        private Pattern regex;
+        private long from;
+        private long to;
+        private long before;
+    }
+}
@@ -0,0 +1,377 @@
+package de.gnm.voxeldash.api.controller;
+
+import de.gnm.voxeldash.api.entities.ConsoleLine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A sealed part of the {@link LogArchive}. The lines are stored compressed in a data file,
+ * the index file holds the range of the segment, a bloom filter of its terms and the postings
+ * of every term. Only the header is kept in memory, lines and postings are read on demand.
+ */
+class LogSegment {
+
+    private static final int VERSION = 1;
+    private static final int BLOOM_BITS = 1 << 16;
+    private static final int BLOOM_HASHES = 3;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final File dataFile;
+    private final File indexFile;
+    private final long firstSequence;
+    private final long lastSequence;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int count;
+    private final long[] bloom;
+
+    private LogSegment(File dataFile, File indexFile, long firstSequence, long lastSequence,
+                       long minTimestamp, long maxTimestamp, int count, long[] bloom) {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.firstSequence = firstSequence;
+        this.lastSequence = lastSequence;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.count = count;
+        this.bloom = bloom;
+    }
+
+    /**
+     * Writes the lines and postings of a segment. The index file is written last,
+     * so a segment without an index file is incomplete
+     *
+     * @param folder   The folder of the archive
+     * @param lines    The lines of the segment
+     * @param postings The positions of the lines that contain each term
+     * @return the written segment
+     * @throws IOException if the segment could not be written
+     */
+    static LogSegment write(File folder, List<ConsoleLine> lines, Map<String, IntList> postings) throws IOException {
+        long firstSequence = Long.MAX_VALUE, lastSequence = Long.MIN_VALUE;
+        long minTimestamp = Long.MAX_VALUE, maxTimestamp = Long.MIN_VALUE;
+        for (ConsoleLine line : lines) {
+            firstSequence = Math.min(firstSequence, line.getSequence());
+            lastSequence = Math.max(lastSequence, line.getSequence());
+            minTimestamp = Math.min(minTimestamp, line.getTimestamp());
+            maxTimestamp = Math.max(maxTimestamp, line.getTimestamp());
+        }
+
+        File dataFile = new File(folder, "seg-" + firstSequence + ".dat");
+        File indexFile = new File(folder, "seg-" + firstSequence + ".idx");
+
+        try (DataOutputStream output = openOutput(dataFile)) {
+            output.writeInt(lines.size());
+            for (ConsoleLine line : lines) {
+                writeLine(output, line);
+            }
+        }
+
+        long[] bloom = new long[BLOOM_BITS / 64];
+        for (String term : postings.keySet()) {
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = bloomBit(term, i);
+                bloom[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        File tempFile = new File(folder, indexFile.getName() + ".tmp");
+        try (DataOutputStream output = openOutput(tempFile)) {
+            output.writeInt(VERSION);
+            output.writeLong(firstSequence);
+            output.writeLong(lastSequence);
+            output.writeLong(minTimestamp);
+            output.writeLong(maxTimestamp);
+            output.writeInt(lines.size());
+            for (long word : bloom) {
+                output.writeLong(word);
+            }
+
+            output.writeInt(postings.size());
+            for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+                IntList positions = entry.getValue();
+                output.writeUTF(entry.getKey());
+                writeVarInt(output, positions.size());
+
+                int previous = 0;
+                for (int i = 0; i < positions.size(); i++) {
+                    writeVarInt(output, positions.get(i) - previous);
+                    previous = positions.get(i);
+                }
+            }
+        }
+        if (!tempFile.renameTo(indexFile)) {
+            tempFile.delete();
+            throw new IOException("Could not create " + indexFile);
+        }
+
+        return new LogSegment(dataFile, indexFile, firstSequence, lastSequence, minTimestamp, maxTimestamp, lines.size(), bloom);
+    }
+
+    /**
+     * Reads the header of a segment from its index file
+     *
+     * @param indexFile The index file
+     * @return the segment
+     * @throws IOException if the index file is damaged or the data file is missing
+     */
+    static LogSegment read(File indexFile) throws IOException {
+        String name = indexFile.getName();
+        File dataFile = new File(indexFile.getParentFile(), name.substring(0, name.length() - 4) + ".dat");
+        if (!dataFile.exists()) throw new IOException("The data file of " + indexFile + " is missing");
+
+        try (DataInputStream input = openInput(indexFile)) {
+            if (input.readInt() != VERSION) throw new IOException("Unsupported segment version in " + indexFile);
+
+            long firstSequence = input.readLong();
+            long lastSequence = input.readLong();
+            long minTimestamp = input.readLong();
+            long maxTimestamp = input.readLong();
+            int count = input.readInt();
+
+            long[] bloom = new long[BLOOM_BITS / 64];
+            for (int i = 0; i < bloom.length; i++) {
+                bloom[i] = input.readLong();
+            }
+
+            return new LogSegment(dataFile, indexFile, firstSequence, lastSequence, minTimestamp, maxTimestamp, count, bloom);
+        }
+    }
+
+    /**
+     * Checks if the segment might contain a term. False positives are possible, false negatives are not
+     *
+     * @param term The term
+     * @return false if the segment definitely does not contain the term
+     */
+    boolean mightContain(String term) {
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = bloomBit(term, i);
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the postings of all terms in the segment
+     *
+     * @return the positions of the lines that contain each term
+     * @throws IOException if the index file could not be read
+     */
+    Map<String, IntList> readPostings() throws IOException {
+        try (DataInputStream input = openInput(indexFile)) {
+            input.readFully(new byte[4 + 8 * 4 + 4 + BLOOM_BITS / 8]);
+
+            int termCount = input.readInt();
+            Map<String, IntList> postings = new HashMap<>(termCount * 4 / 3 + 1);
+            for (int i = 0; i < termCount; i++) {
+                String term = input.readUTF();
+                int size = readVarInt(input);
+
+                IntList positions = new IntList(size);
+                int position = 0;
+                for (int j = 0; j < size; j++) {
+                    position += readVarInt(input);
+                    positions.add(position);
+                }
+                postings.put(term, positions);
+            }
+            return postings;
+        }
+    }
+
+    /**
+     * Reads all lines of the segment
+     *
+     * @return the lines in the order they got archived
+     * @throws IOException if the data file could not be read
+     */
+    ConsoleLine[] readLines() throws IOException {
+        try (DataInputStream input = openInput(dataFile)) {
+            ConsoleLine[] lines = new ConsoleLine[input.readInt()];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = readLine(input);
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Deletes the files of the segment
+     */
+    void delete() {
+        indexFile.delete();
+        dataFile.delete();
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Writes a single line record, also used by the journal of the archive
+     *
+     * @param output The output
+     * @param line   The line
+     * @throws IOException if the line could not be written
+     */
+    static void writeLine(DataOutput output, ConsoleLine line) throws IOException {
+        byte[] message = line.getMessage().getBytes(StandardCharsets.UTF_8);
+        output.writeLong(line.getSequence());
+        output.writeLong(line.getTimestamp());
+        output.writeInt(message.length);
+        output.write(message);
+    }
+
+    /**
+     * Reads a single line record
+     *
+     * @param input The input
+     * @return the line
+     * @throws IOException if the line could not be read
+     */
+    static ConsoleLine readLine(DataInput input) throws IOException {
+        long sequence = input.readLong();
+        long timestamp = input.readLong();
+        byte[] message = new byte[input.readInt()];
+        input.readFully(message);
+        return new ConsoleLine(sequence, timestamp, new String(message, StandardCharsets.UTF_8));
+    }
+
+    private static DataOutputStream openOutput(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    private static DataInputStream openInput(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    private static int bloomBit(String term, int index) {
+        int hash = term.hashCode();
+        int step = Integer.rotateLeft(hash * 0x9E3779B1, 15) | 1;
+        return Math.floorMod(hash + index * step, BLOOM_BITS);
+    }
+
+    private static void writeVarInt(DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = input.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /**
+     * A growable list of ascending line positions
+     */
+    static class IntList {
+
+        private int[] values;
+        private int size;
+
+        IntList(int capacity) {
+            this.values = new int[Math.max(capacity, 4)];
+        }
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Gets the positions that are in both lists
+         *
+         * @param first  The first list
+         * @param second The second list
+         * @return the intersection
+         */
+        static IntList intersect(IntList first, IntList second) {
+            IntList result = new IntList(Math.min(first.size, second.size));
+            int i = 0, j = 0;
+            while (i < first.size && j < second.size) {
+                int a = first.values[i], b = second.values[j];
+                if (a == b) {
+                    result.add(a);
+                    i++;
+                    j++;
+                } else if (a < b) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Gets the positions that are in at least one of the lists
+         *
+         * @param first  The first list
+         * @param second The second list
+         * @return the union
+         */
+        static IntList union(IntList first, IntList second) {
+            IntList result = new IntList(first.size + second.size);
+            int i = 0, j = 0;
+            while (i < first.size || j < second.size) {
+                if (j == second.size || (i < first.size && first.values[i] < second.values[j])) {
+                    result.add(first.values[i++]);
+                } else if (i == first.size || second.values[j] < first.values[i]) {
+                    result.add(second.values[j++]);
+                } else {
+                    result.add(first.values[i++]);
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+}
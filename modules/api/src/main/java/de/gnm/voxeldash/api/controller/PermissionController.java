@@ -2,18 +2,21 @@ package de.gnm.voxeldash.api.controller;
 
 import de.gnm.voxeldash.api.entities.Feature;
 import de.gnm.voxeldash.api.entities.PermissionLevel;
+import de.gnm.voxeldash.api.entities.PermissionSnapshot;
 import de.gnm.voxeldash.api.entities.UserPermissions;
 
-import java.sql.Connection;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PermissionController extends BaseController {
 
-    public PermissionController(Connection connection) {
-        super(connection);
+    private final Map<Integer, PermissionSnapshot> snapshotCache = new ConcurrentHashMap<>();
+    private volatile Integer firstUserId;
+
+    public PermissionController(ConnectionPool pool) {
+        super(pool);
         createTable();
     }
 
@@ -31,13 +34,13 @@ public class PermissionController extends BaseController {
      * @return the user's permissions
      */
     public UserPermissions getPermissions(int userId) {
-        HashMap<String, Object> result = getSingleResult("SELECT permissions FROM permissions WHERE userId = ?", userId);
-        
-        if (result == null || result.get("permissions") == null) {
+        String encoded = getSingleResult("SELECT permissions FROM permissions WHERE userId = ?", resultSet -> resultSet.getString("permissions"), userId);
+
+        if (encoded == null) {
             return new UserPermissions(userId);
         }
-        
-        return UserPermissions.decode(userId, (String) result.get("permissions"));
+
+        return UserPermissions.decode(userId, encoded);
     }
 
     /**
@@ -49,10 +52,13 @@ public class PermissionController extends BaseController {
     public boolean savePermissions(UserPermissions permissions) {
         String encoded = permissions.encode();
 
-        return executeUpdate(
+        boolean saved = executeUpdate(
             "INSERT INTO permissions (userId, permissions) VALUES (?, ?) ON CONFLICT(userId) DO UPDATE SET permissions = ?",
             permissions.getUserId(), encoded, encoded
         ) > 0;
+
+        snapshotCache.remove(permissions.getUserId());
+        return saved;
     }
 
     /**
@@ -62,7 +68,29 @@ public class PermissionController extends BaseController {
      * @return whether the deletion was successful
      */
     public boolean deletePermissions(int userId) {
-        return executeUpdate("DELETE FROM permissions WHERE userId = ?", userId) > 0;
+        boolean deleted = executeUpdate("DELETE FROM permissions WHERE userId = ?", userId) > 0;
+
+        snapshotCache.remove(userId);
+        return deleted;
+    }
+
+    /**
+     * Gets the cached permission snapshot of a user, loading it if necessary
+     *
+     * @param userId the user ID
+     * @return the permission snapshot of the user
+     */
+    public PermissionSnapshot getSnapshot(int userId) {
+        return snapshotCache.computeIfAbsent(userId, id -> new PermissionSnapshot(isAdmin(id), getPermissions(id).getPermissions()));
+    }
+
+    /**
+     * Clears all cached permissions. Gets called by the {@link AccountController} whenever an account gets deleted,
+     * since this might change which user is the admin
+     */
+    public void invalidateCache() {
+        firstUserId = null;
+        snapshotCache.clear();
     }
 
     /**
@@ -87,10 +115,7 @@ public class PermissionController extends BaseController {
      * @return true if the user has at least read access
      */
     public boolean hasReadAccess(int userId, Feature feature) {
-        if (isAdmin(userId)) {
-            return true;
-        }
-        return getPermissions(userId).hasReadAccess(feature);
+        return getSnapshot(userId).hasReadAccess(feature);
     }
 
     /**
@@ -101,10 +126,7 @@ public class PermissionController extends BaseController {
      * @return true if the user has full access
      */
     public boolean hasFullAccess(int userId, Feature feature) {
-        if (isAdmin(userId)) {
-            return true;
-        }
-        return getPermissions(userId).hasFullAccess(feature);
+        return getSnapshot(userId).hasFullAccess(feature);
     }
 
     /**
@@ -114,12 +136,18 @@ public class PermissionController extends BaseController {
      * @return true if the user is the first user (admin)
      */
     public boolean isAdmin(int userId) {
-        HashMap<String, Object> result = getSingleResult("SELECT MIN(id) as firstUserId FROM accounts");
-        if (result == null || result.get("firstUserId") == null) {
-            return false;
+        Integer adminId = firstUserId;
+        if (adminId == null) {
+            adminId = getSingleResult("SELECT MIN(id) as firstUserId FROM accounts", resultSet -> {
+                int id = resultSet.getInt("firstUserId");
+                return resultSet.wasNull() ? null : id;
+            });
+            if (adminId == null) {
+                return false;
+            }
+            firstUserId = adminId;
         }
-        int firstUserId = (int) result.get("firstUserId");
-        return userId == firstUserId;
+        return userId == adminId;
     }
 
     /**
@@ -141,11 +169,11 @@ public class PermissionController extends BaseController {
      * @return list of features the user can access
      */
     public List<Feature> getAccessibleFeatures(int userId, List<Feature> availableFeatures) {
-        if (isAdmin(userId)) {
+        PermissionSnapshot permissions = getSnapshot(userId);
+        if (permissions.isAdmin()) {
             return availableFeatures;
         }
         
-        UserPermissions permissions = getPermissions(userId);
         List<Feature> accessible = new ArrayList<>();
         
         for (Feature feature : availableFeatures) {
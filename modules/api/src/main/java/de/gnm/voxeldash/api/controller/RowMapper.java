@@ -0,0 +1,23 @@
+package de.gnm.voxeldash.api.controller;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an object
+ *
+ * @param <T> The type of the mapped object
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Maps the current row
+     *
+     * @param resultSet The result set, positioned at the row to map
+     * @return the mapped object
+     * @throws SQLException if a column could not be read
+     */
+    T map(ResultSet resultSet) throws SQLException;
+
+}
@@ -8,9 +8,7 @@ import org.apache.sshd.common.session.helpers.AbstractSession;
 import java.io.File;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
-import java.sql.Connection;
 import java.util.Base64;
-import java.util.HashMap;
 import java.util.List;
 
 public class SSHController extends BaseController {
@@ -18,8 +16,8 @@ public class SSHController extends BaseController {
     AttributeRepository.AttributeKey<Boolean> isSFTP = new AttributeRepository.AttributeKey<>();
     private SSHManager sshManager;
 
-    public SSHController(Connection connection) {
-        super(connection);
+    public SSHController(ConnectionPool pool) {
+        super(pool);
 
         createTable();
     }
@@ -31,13 +29,21 @@ public class SSHController extends BaseController {
         executeUpdate("CREATE TABLE IF NOT EXISTS sshConfig (configKey TEXT PRIMARY KEY, configValue TEXT)");
     }
 
+    /**
+     * Get a value of the sshConfig table
+     * @param configKey The key of the config value
+     * @return The config value, or null if it is not set
+     */
+    private String getConfigValue(String configKey) {
+        return getSingleResult("SELECT configValue FROM sshConfig WHERE configKey = ?", resultSet -> resultSet.getString("configValue"), configKey);
+    }
+
     /**
      * Check if the SSH server is enabled
      * @return True if the SSH server is enabled
      */
     public boolean isEnabled() {
-        HashMap<String, Object> singleResult = getSingleResult("SELECT configValue FROM sshConfig WHERE configKey = 'ssh_enabled'");
-        return singleResult != null && singleResult.get("configValue").equals("true");
+        return "true".equals(getConfigValue("ssh_enabled"));
     }
 
     /**
@@ -66,19 +72,19 @@ public class SSHController extends BaseController {
      * Create the default configuration for the SSH server
      */
     public void createDefaultConfig() {
-        if (getSingleResult("SELECT * FROM sshConfig WHERE configKey = 'ssh_enabled'") == null) {
+        if (getConfigValue("ssh_enabled") == null) {
             executeUpdate("INSERT INTO sshConfig (configKey, configValue) VALUES ('ssh_enabled', 'false')");
         }
 
-        if (getSingleResult("SELECT * FROM sshConfig WHERE configKey = 'ssh_port'") == null) {
+        if (getConfigValue("ssh_port") == null) {
             executeUpdate("INSERT INTO sshConfig (configKey, configValue) VALUES ('ssh_port', '22')");
         }
 
-        if (getSingleResult("SELECT * FROM sshConfig WHERE configKey = 'ssh_console'") == null) {
+        if (getConfigValue("ssh_console") == null) {
             executeUpdate("INSERT INTO sshConfig (configKey, configValue) VALUES ('ssh_console', 'true')");
         }
 
-        if (getSingleResult("SELECT * FROM sshConfig WHERE configKey = 'ssh_sftp'") == null) {
+        if (getConfigValue("ssh_sftp") == null) {
             executeUpdate("INSERT INTO sshConfig (configKey, configValue) VALUES ('ssh_sftp', 'true')");
         }
     }
@@ -88,8 +94,8 @@ public class SSHController extends BaseController {
      * @return The port of the SSH server
      */
     public int getPort() {
-        HashMap<String, Object> singleResult = getSingleResult("SELECT configValue FROM sshConfig WHERE configKey = 'ssh_port'");
-        return singleResult != null ? Integer.parseInt((String) singleResult.get("configValue")) : 0;
+        String port = getConfigValue("ssh_port");
+        return port != null ? Integer.parseInt(port) : 0;
     }
 
     /**
@@ -114,8 +120,7 @@ public class SSHController extends BaseController {
      * @return True if the console is enabled
      */
     public boolean isConsoleEnabled() {
-        HashMap<String, Object> singleResult = getSingleResult("SELECT configValue FROM sshConfig WHERE configKey = 'ssh_console'");
-        return singleResult != null && singleResult.get("configValue").equals("true");
+        return "true".equals(getConfigValue("ssh_console"));
     }
 
     /**
@@ -131,8 +136,7 @@ public class SSHController extends BaseController {
      * @return True if the SFTP is enabled
      */
     public boolean isSFTPEnabled() {
-        HashMap<String, Object> singleResult = getSingleResult("SELECT configValue FROM sshConfig WHERE configKey = 'ssh_sftp'");
-        return singleResult != null && singleResult.get("configValue").equals("true");
+        return "true".equals(getConfigValue("ssh_sftp"));
     }
 
     /**
@@ -148,8 +152,7 @@ public class SSHController extends BaseController {
      * @return The public key of the SSH server
      */
     public String getPublicKey() {
-        HashMap<String, Object> singleResult = getSingleResult("SELECT configValue FROM sshConfig WHERE configKey = 'ssh_public'");
-        return singleResult != null ? (String) singleResult.get("configValue") : null;
+        return getConfigValue("ssh_public");
     }
 
     /**
@@ -165,8 +168,7 @@ public class SSHController extends BaseController {
      * @return The private key of the SSH server
      */
     public String getPrivateKey() {
-        HashMap<String, Object> singleResult = getSingleResult("SELECT configValue FROM sshConfig WHERE configKey = 'ssh_private'");
-        return singleResult != null ? (String) singleResult.get("configValue") : null;
+        return getConfigValue("ssh_private");
     }
 
     /**
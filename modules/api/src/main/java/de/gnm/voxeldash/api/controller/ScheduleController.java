@@ -4,18 +4,15 @@ import de.gnm.voxeldash.api.entities.schedule.Schedule;
 import de.gnm.voxeldash.api.entities.schedule.ScheduleInterval;
 import de.gnm.voxeldash.api.entities.schedule.ScheduleTask;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class ScheduleController extends BaseController {
 
-    public ScheduleController(Connection connection) {
-        super(connection);
+    public ScheduleController(ConnectionPool pool) {
+        super(pool);
         createTables();
     }
 
@@ -55,35 +52,10 @@ public class ScheduleController extends BaseController {
      * @return The ID of the created schedule, or -1 if creation failed
      */
     public int createSchedule(String name, ScheduleInterval interval, int intervalValue, int timeValue) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(
-                "INSERT INTO schedules (name, interval, interval_value, time_value, enabled, last_run) VALUES (?, ?, ?, ?, 1, 0)",
-                PreparedStatement.RETURN_GENERATED_KEYS
-            );
-            statement.setString(1, name);
-            statement.setString(2, interval.name());
-            statement.setInt(3, intervalValue);
-            statement.setInt(4, timeValue);
-            
-            int affectedRows = statement.executeUpdate();
-            if (affectedRows == 0) {
-                return -1;
-            }
-
-            ResultSet generatedKeys = statement.getGeneratedKeys();
-            if (generatedKeys.next()) {
-                int id = generatedKeys.getInt(1);
-                generatedKeys.close();
-                statement.close();
-                return id;
-            }
-
-            generatedKeys.close();
-            statement.close();
-            return -1;
-        } catch (SQLException e) {
-            return -1;
-        }
+        return (int) executeInsert(
+            "INSERT INTO schedules (name, interval, interval_value, time_value, enabled, last_run) VALUES (?, ?, ?, ?, 1, 0) RETURNING id",
+            name, interval.name(), intervalValue, timeValue
+        );
     }
 
     /**
@@ -131,10 +103,10 @@ public class ScheduleController extends BaseController {
      *
      * @param id      The schedule ID
      * @param lastRun The timestamp in milliseconds
-     * @return true if update was successful
+     * @return a future that completes with true once the update has been committed
      */
-    public boolean updateLastRun(int id, long lastRun) {
-        return executeUpdate("UPDATE schedules SET last_run = ? WHERE id = ?", lastRun, id) > 0;
+    public CompletableFuture<Boolean> updateLastRun(int id, long lastRun) {
+        return queueUpdate("UPDATE schedules SET last_run = ? WHERE id = ?", lastRun, id).thenApply(affected -> affected > 0);
     }
 
     /**
@@ -144,12 +116,11 @@ public class ScheduleController extends BaseController {
      * @return The schedule, or null if not found
      */
     public Schedule getSchedule(int id) {
-        HashMap<String, Object> result = getSingleResult("SELECT * FROM schedules WHERE id = ?", id);
-        if (result == null) {
+        Schedule schedule = getSingleResult("SELECT * FROM schedules WHERE id = ?", this::mapToSchedule, id);
+        if (schedule == null) {
             return null;
         }
 
-        Schedule schedule = mapToSchedule(result);
         schedule.setTasks(getTasksForSchedule(id));
         return schedule;
     }
@@ -160,16 +131,9 @@ public class ScheduleController extends BaseController {
      * @return A list of all schedules with their tasks
      */
     public List<Schedule> getAllSchedules() {
-        ArrayList<HashMap<String, Object>> results = getMultipleResults("SELECT * FROM schedules ORDER BY name");
-        if (results == null) {
-            return new ArrayList<>();
-        }
-
-        List<Schedule> schedules = new ArrayList<>();
-        for (HashMap<String, Object> result : results) {
-            Schedule schedule = mapToSchedule(result);
+        List<Schedule> schedules = getMultipleResults("SELECT * FROM schedules ORDER BY name", this::mapToSchedule);
+        for (Schedule schedule : schedules) {
             schedule.setTasks(getTasksForSchedule(schedule.getId()));
-            schedules.add(schedule);
         }
         return schedules;
     }
@@ -180,16 +144,9 @@ public class ScheduleController extends BaseController {
      * @return A list of all enabled schedules with their tasks
      */
     public List<Schedule> getEnabledSchedules() {
-        ArrayList<HashMap<String, Object>> results = getMultipleResults("SELECT * FROM schedules WHERE enabled = 1 ORDER BY name");
-        if (results == null) {
-            return new ArrayList<>();
-        }
-
-        List<Schedule> schedules = new ArrayList<>();
-        for (HashMap<String, Object> result : results) {
-            Schedule schedule = mapToSchedule(result);
+        List<Schedule> schedules = getMultipleResults("SELECT * FROM schedules WHERE enabled = 1 ORDER BY name", this::mapToSchedule);
+        for (Schedule schedule : schedules) {
             schedule.setTasks(getTasksForSchedule(schedule.getId()));
-            schedules.add(schedule);
         }
         return schedules;
     }
@@ -204,35 +161,10 @@ public class ScheduleController extends BaseController {
      * @return The ID of the created task, or -1 if creation failed
      */
     public int createTask(int scheduleId, String actionId, String metadata, int executionOrder) {
-        try {
-            PreparedStatement statement = connection.prepareStatement(
-                "INSERT INTO schedule_tasks (schedule_id, action_type, metadata, execution_order) VALUES (?, ?, ?, ?)",
-                PreparedStatement.RETURN_GENERATED_KEYS
-            );
-            statement.setInt(1, scheduleId);
-            statement.setString(2, actionId);
-            statement.setString(3, metadata);
-            statement.setInt(4, executionOrder);
-
-            int affectedRows = statement.executeUpdate();
-            if (affectedRows == 0) {
-                return -1;
-            }
-
-            ResultSet generatedKeys = statement.getGeneratedKeys();
-            if (generatedKeys.next()) {
-                int id = generatedKeys.getInt(1);
-                generatedKeys.close();
-                statement.close();
-                return id;
-            }
-
-            generatedKeys.close();
-            statement.close();
-            return -1;
-        } catch (SQLException e) {
-            return -1;
-        }
+        return (int) executeInsert(
+            "INSERT INTO schedule_tasks (schedule_id, action_type, metadata, execution_order) VALUES (?, ?, ?, ?) RETURNING id",
+            scheduleId, actionId, metadata, executionOrder
+        );
     }
 
     /**
@@ -268,11 +200,7 @@ public class ScheduleController extends BaseController {
      * @return The task, or null if not found
      */
     public ScheduleTask getTask(int id) {
-        HashMap<String, Object> result = getSingleResult("SELECT * FROM schedule_tasks WHERE id = ?", id);
-        if (result == null) {
-            return null;
-        }
-        return mapToTask(result);
+        return getSingleResult("SELECT * FROM schedule_tasks WHERE id = ?", this::mapToTask, id);
     }
 
     /**
@@ -282,19 +210,11 @@ public class ScheduleController extends BaseController {
      * @return A list of tasks ordered by execution order
      */
     public List<ScheduleTask> getTasksForSchedule(int scheduleId) {
-        ArrayList<HashMap<String, Object>> results = getMultipleResults(
+        return getMultipleResults(
             "SELECT * FROM schedule_tasks WHERE schedule_id = ? ORDER BY execution_order",
+            this::mapToTask,
             scheduleId
         );
-        if (results == null) {
-            return new ArrayList<>();
-        }
-
-        List<ScheduleTask> tasks = new ArrayList<>();
-        for (HashMap<String, Object> result : results) {
-            tasks.add(mapToTask(result));
-        }
-        return tasks;
     }
 
     /**
@@ -304,41 +224,39 @@ public class ScheduleController extends BaseController {
      * @return The next execution order
      */
     public int getNextExecutionOrder(int scheduleId) {
-        HashMap<String, Object> result = getSingleResult(
+        Integer nextOrder = getSingleResult(
             "SELECT COALESCE(MAX(execution_order), -1) + 1 as next_order FROM schedule_tasks WHERE schedule_id = ?",
+            resultSet -> resultSet.getInt("next_order"),
             scheduleId
         );
-        if (result == null) {
-            return 0;
-        }
-        return ((Number) result.get("next_order")).intValue();
+        return nextOrder != null ? nextOrder : 0;
     }
 
     /**
-     * Maps a database result to a Schedule object
+     * Maps a database row to a Schedule object
      */
-    private Schedule mapToSchedule(HashMap<String, Object> result) {
+    private Schedule mapToSchedule(ResultSet resultSet) throws SQLException {
         return new Schedule(
-            ((Number) result.get("id")).intValue(),
-            (String) result.get("name"),
-            ScheduleInterval.fromString((String) result.get("interval")),
-            ((Number) result.get("interval_value")).intValue(),
-            ((Number) result.get("time_value")).intValue(),
-            ((Number) result.get("enabled")).intValue() == 1,
-            ((Number) result.get("last_run")).longValue()
+            resultSet.getInt("id"),
+            resultSet.getString("name"),
+            ScheduleInterval.fromString(resultSet.getString("interval")),
+            resultSet.getInt("interval_value"),
+            resultSet.getInt("time_value"),
+            resultSet.getInt("enabled") == 1,
+            resultSet.getLong("last_run")
         );
     }
 
     /**
-     * Maps a database result to a ScheduleTask object
+     * Maps a database row to a ScheduleTask object
      */
-    private ScheduleTask mapToTask(HashMap<String, Object> result) {
+    private ScheduleTask mapToTask(ResultSet resultSet) throws SQLException {
         return new ScheduleTask(
-            ((Number) result.get("id")).intValue(),
-            ((Number) result.get("schedule_id")).intValue(),
-            (String) result.get("action_type"),
-            (String) result.get("metadata"),
-            ((Number) result.get("execution_order")).intValue()
+            resultSet.getInt("id"),
+            resultSet.getInt("schedule_id"),
+            resultSet.getString("action_type"),
+            resultSet.getString("metadata"),
+            resultSet.getInt("execution_order")
         );
     }
 }
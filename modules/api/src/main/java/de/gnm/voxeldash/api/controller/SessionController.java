@@ -3,14 +3,34 @@ package de.gnm.voxeldash.api.controller;
 import org.apache.commons.lang3.RandomStringUtils;
 
 import java.security.SecureRandom;
-import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SessionController extends BaseController {
 
-    public SessionController(Connection connection) {
-        super(connection);
+    private static final long LAST_USED_FLUSH_INTERVAL = 30;
+
+    private final Map<String, Integer> sessionCache = new ConcurrentHashMap<>();
+    private final Map<String, Long> pendingLastUsed = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final ScheduledExecutorService flushScheduler;
+
+    public SessionController(ConnectionPool pool) {
+        super(pool);
 
         createTable();
+
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "VoxelDash-SessionFlush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleAtFixedRate(this::flushLastUsed, LAST_USED_FLUSH_INTERVAL, LAST_USED_FLUSH_INTERVAL, TimeUnit.SECONDS);
     }
 
     /**
@@ -36,6 +56,7 @@ public class SessionController extends BaseController {
     public String generateSessionToken(int userId, String userAgent) {
         String token = RandomStringUtils.random(64, 0, 0, true, true, null, new SecureRandom());
         if (executeUpdate("INSERT INTO sessions (userId, token, userAgent) VALUES (?, ?, ?)", userId, token, userAgent) > 0) {
+            sessionCache.put(token, userId);
             return token;
         }
 
@@ -49,7 +70,9 @@ public class SessionController extends BaseController {
      * @return whether the session tokens were deleted successfully
      */
     public boolean deleteSessionTokens(int userId) {
-        return executeUpdate("DELETE FROM sessions WHERE userId = ?", userId) > 0;
+        boolean deleted = executeUpdate("DELETE FROM sessions WHERE userId = ?", userId) > 0;
+        invalidateUser(userId);
+        return deleted;
     }
 
     /**
@@ -59,7 +82,11 @@ public class SessionController extends BaseController {
      * @return whether the session was destroyed successfully
      */
     public boolean destroySession(String token) {
-        return executeUpdate("DELETE FROM sessions WHERE token = ?", token) > 0;
+        boolean deleted = executeUpdate("DELETE FROM sessions WHERE token = ?", token) > 0;
+        invalidations.incrementAndGet();
+        sessionCache.remove(token);
+        pendingLastUsed.remove(token);
+        return deleted;
     }
 
     /**
@@ -69,28 +96,48 @@ public class SessionController extends BaseController {
      * @return whether the token is valid
      */
     public boolean isValidToken(String token) {
-        return getSingleResult("SELECT * FROM sessions WHERE token = ?", token) != null;
+        return getUserIdByToken(token) != -1;
     }
 
     /**
-     * Get the user id of a token
+     * Get the user id of a token. A token that was read from the database is only cached
+     * if no session got destroyed in the meantime, as the destroyed session could be this one
      *
      * @param token The token to get the user id of
      * @return the user id of the token
      */
     public int getUserIdByToken(String token) {
-        if (!isValidToken(token)) return -1;
+        Integer cachedUserId = sessionCache.get(token);
+        if (cachedUserId != null) return cachedUserId;
 
-        return (int) getSingleResult("SELECT userId FROM sessions WHERE token = ?", token).get("userId");
+        long generation = invalidations.get();
+        Integer userId = getSingleResult("SELECT userId FROM sessions WHERE token = ?", resultSet -> resultSet.getInt("userId"), token);
+        if (userId == null) return -1;
+
+        sessionCache.compute(token, (key, value) -> invalidations.get() == generation ? userId : value);
+        return userId;
     }
 
     /**
-     * Updates the 'lastUsed' field of a session
+     * Updates the 'lastUsed' field of a session.
+     * The update is kept in memory and written to the database with the next flush.
      *
      * @param token The token of the session
      */
     public void updateLastUsed(String token) {
-        executeUpdate("UPDATE sessions SET lastUsed = CURRENT_TIMESTAMP WHERE token = ?", token);
+        pendingLastUsed.put(token, System.currentTimeMillis());
+    }
+
+    /**
+     * Queues all pending 'lastUsed' updates, so that they get committed together
+     */
+    public void flushLastUsed() {
+        for (String token : new ArrayList<>(pendingLastUsed.keySet())) {
+            Long lastUsed = pendingLastUsed.remove(token);
+            if (lastUsed != null) {
+                queueUpdate("UPDATE sessions SET lastUsed = datetime(?, 'unixepoch') WHERE token = ?", lastUsed / 1000, token);
+            }
+        }
     }
 
     /**
@@ -100,7 +147,31 @@ public class SessionController extends BaseController {
      * @return whether the sessions were destroyed successfully
      */
     public boolean destroyAllSessionsForUser(int userId) {
-        return executeUpdate("DELETE FROM sessions WHERE userId = ?", userId) > 0;
+        boolean deleted = executeUpdate("DELETE FROM sessions WHERE userId = ?", userId) > 0;
+        invalidateUser(userId);
+        return deleted;
+    }
+
+    /**
+     * Removes all cached sessions of a user. Needs to be called after the sessions got deleted,
+     * so that lookups which still read them from the database don't cache them again
+     *
+     * @param userId The user id of the user
+     */
+    private void invalidateUser(int userId) {
+        invalidations.incrementAndGet();
+        sessionCache.entrySet().removeIf(entry -> {
+            if (entry.getValue() != userId) return false;
+            pendingLastUsed.remove(entry.getKey());
+            return true;
+        });
+    }
+
+    @Override
+    public void close() {
+        flushScheduler.shutdown();
+        flushLastUsed();
+        super.close();
     }
 
 }
@@ -11,6 +11,7 @@ public class WidgetRegistry {
 
     private static final Logger LOG = Logger.getLogger("WidgetRegistry");
     private final Map<String, Widget> widgets = new LinkedHashMap<>();
+    private volatile long lastModified = System.currentTimeMillis();
 
     /**
      * Registers a new widget
@@ -22,6 +23,7 @@ public class WidgetRegistry {
             LOG.warning("Widget with id '" + widget.getId() + "' is already registered. Overwriting.");
         }
         widgets.put(widget.getId(), widget);
+        lastModified = System.currentTimeMillis();
     }
 
     /**
@@ -60,7 +62,9 @@ public class WidgetRegistry {
      * @return true if removed
      */
     public boolean unregisterWidget(String id) {
-        return widgets.remove(id) != null;
+        boolean removed = widgets.remove(id) != null;
+        if (removed) lastModified = System.currentTimeMillis();
+        return removed;
     }
 
     /**
@@ -68,5 +72,15 @@ public class WidgetRegistry {
      */
     public void clear() {
         widgets.clear();
+        lastModified = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the time a widget was last registered or removed
+     *
+     * @return the last modification time in milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
     }
 }
@@ -0,0 +1,237 @@
+package de.gnm.voxeldash.api.controller;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gathers the mutations of all controllers and writes them on a dedicated thread.
+ * Mutations that arrive within the flush window are group-committed in a single transaction,
+ * so that SQLite only has to sync once per batch instead of once per statement.
+ */
+public class WriteQueue {
+
+    private static final Logger LOG = Logger.getLogger("WriteQueue");
+
+    public static final long DEFAULT_FLUSH_WINDOW = 5;
+    private static final int MAX_BATCH_SIZE = 512;
+
+    private final ConnectionPool pool;
+    private final BlockingQueue<Operation<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private volatile long flushWindow = DEFAULT_FLUSH_WINDOW;
+    private volatile boolean closed = false;
+
+    /**
+     * Basic constructor of the {@link WriteQueue}. Starts the writer thread
+     *
+     * @param pool The connection pool that provides the writer connection
+     */
+    public WriteQueue(ConnectionPool pool) {
+        this.pool = pool;
+
+        writerThread = new Thread(this::run, "VoxelDash-WriteQueue");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Sets the time to wait for further mutations after the first one of a batch arrived
+     *
+     * @param flushWindow The flush window in milliseconds, 0 to only batch mutations that are already waiting
+     */
+    public void setFlushWindow(long flushWindow) {
+        this.flushWindow = Math.max(0, flushWindow);
+    }
+
+    /**
+     * Gets the flush window
+     *
+     * @return the flush window in milliseconds
+     */
+    public long getFlushWindow() {
+        return flushWindow;
+    }
+
+    /**
+     * Queues a mutation. The returned future completes once the transaction
+     * containing the mutation has been committed
+     *
+     * @param callback The mutation to run with the writer connection
+     * @param <T>      The result type of the mutation
+     * @return a future that completes with the result of the mutation
+     */
+    public <T> CompletableFuture<T> submit(ConnectionPool.ConnectionCallback<T> callback) {
+        Operation<T> operation = new Operation<>(callback);
+
+        if (Thread.currentThread() == writerThread) {
+            try {
+                operation.future.complete(pool.write(callback));
+            } catch (SQLException e) {
+                operation.future.completeExceptionally(e);
+            }
+            return operation.future;
+        }
+
+        if (closed) {
+            operation.future.completeExceptionally(new IllegalStateException("The write queue has been closed"));
+            return operation.future;
+        }
+
+        queue.add(operation);
+        return operation.future;
+    }
+
+    /**
+     * Writes all waiting mutations and stops the writer thread
+     */
+    public void close() {
+        closed = true;
+        writerThread.interrupt();
+
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The main loop of the writer thread
+     */
+    private void run() {
+        List<Operation<?>> batch = new ArrayList<>();
+
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Operation<?> first = closed ? queue.poll() : queue.take();
+                if (first == null) break;
+                batch.add(first);
+
+                collect(batch);
+            } catch (InterruptedException e) {
+                if (!closed) continue;
+            }
+
+            queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+            if (!batch.isEmpty()) flush(batch);
+            batch.clear();
+        }
+
+        Operation<?> remaining;
+        while ((remaining = queue.poll()) != null) {
+            remaining.future.completeExceptionally(new IllegalStateException("The write queue has been closed"));
+        }
+    }
+
+    /**
+     * Waits up to the flush window for further mutations
+     *
+     * @param batch The batch to add the mutations to
+     * @throws InterruptedException if the queue gets closed while waiting
+     */
+    private void collect(List<Operation<?>> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushWindow);
+
+        while (batch.size() < MAX_BATCH_SIZE && !closed) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return;
+
+            Operation<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Runs a batch of mutations in a single transaction. Every mutation runs in its own
+     * savepoint, so a failing mutation only rolls back itself
+     *
+     * @param batch The mutations to run
+     */
+    private void flush(List<Operation<?>> batch) {
+        try {
+            pool.write(connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+
+                try {
+                    for (Operation<?> operation : batch) {
+                        operation.run(connection);
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Failed to commit " + batch.size() + " queued writes", e);
+            for (Operation<?> operation : batch) {
+                operation.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (Operation<?> operation : batch) {
+            operation.publish();
+        }
+    }
+
+    /**
+     * A queued mutation and the future of its result
+     *
+     * @param <T> The result type of the mutation
+     */
+    private static class Operation<T> {
+        private final ConnectionPool.ConnectionCallback<T> callback;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private Exception error;
+
+        private Operation(ConnectionPool.ConnectionCallback<T> callback) {
+            this.callback = callback;
+        }
+
+        /**
+         * Runs the mutation inside the current transaction and keeps its outcome until the commit
+         *
+         * @param connection The writer connection
+         * @throws SQLException if the savepoint could not be handled
+         */
+        private void run(Connection connection) throws SQLException {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                result = callback.execute(connection);
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLException | RuntimeException e) {
+                error = e;
+                connection.rollback(savepoint);
+                connection.releaseSavepoint(savepoint);
+            }
+        }
+
+        /**
+         * Completes the future with the outcome of the mutation
+         */
+        private void publish() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+}
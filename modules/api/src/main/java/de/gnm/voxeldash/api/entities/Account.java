@@ -0,0 +1,36 @@
+package de.gnm.voxeldash.api.entities;
+
+public class Account {
+
+    private final int id;
+    private final String username;
+
+    /**
+     * Creates a new account
+     *
+     * @param id       The id of the account
+     * @param username The username of the account
+     */
+    public Account(int id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    /**
+     * Gets the id of the account
+     *
+     * @return the id of the account
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the username of the account
+     *
+     * @return the username of the account
+     */
+    public String getUsername() {
+        return username;
+    }
+}
@@ -0,0 +1,82 @@
+package de.gnm.voxeldash.api.entities;
+
+import java.util.Locale;
+
+/**
+ * The compression of the chunks of a backup. Chunks that deflate does not make smaller are always stored,
+ * as e.g. region files are already compressed by the server
+ */
+public class BackupCodec {
+
+    /**
+     * Stores the chunks without compressing them. Costs no CPU at all, but takes the most space
+     */
+    public static final BackupCodec STORE = new BackupCodec(0);
+
+    /**
+     * Deflates the chunks with the default level
+     */
+    public static final BackupCodec DEFAULT = new BackupCodec(6);
+
+    private final int level;
+
+    /**
+     * Constructor of the {@link BackupCodec}
+     *
+     * @param level The deflate level from 1 to 9, or 0 to store the chunks
+     */
+    private BackupCodec(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Parses a codec
+     *
+     * @param value 'store', 'deflate' for the default level, or 'deflate:1' to 'deflate:9'
+     * @return the codec
+     * @throws IllegalArgumentException if the codec is unknown
+     */
+    public static BackupCodec parse(String value) {
+        String codec = value.trim().toLowerCase(Locale.ROOT);
+        if (codec.equals("store")) return STORE;
+        if (codec.equals("deflate")) return DEFAULT;
+
+        if (codec.startsWith("deflate:")) {
+            try {
+                int level = Integer.parseInt(codec.substring("deflate:".length()));
+                if (level >= 1 && level <= 9) return new BackupCodec(level);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown backup codec: " + value);
+    }
+
+    /**
+     * Checks if the chunks are stored without compression
+     *
+     * @return <code>true</code> if the chunks are stored, otherwise <code>false</code>
+     */
+    public boolean isStore() {
+        return level == 0;
+    }
+
+    /**
+     * Gets the deflate level
+     *
+     * @return the deflate level from 1 to 9, or 0 if the chunks are stored
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the name of the codec, as accepted by {@link #parse(String)}
+     *
+     * @return the name of the codec
+     */
+    @Override
+    public String toString() {
+        return isStore() ? "store" : "deflate:" + level;
+    }
+}
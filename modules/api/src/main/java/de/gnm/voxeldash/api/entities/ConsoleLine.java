@@ -0,0 +1,48 @@
+package de.gnm.voxeldash.api.entities;
+
+public class ConsoleLine {
+
+    private final long sequence;
+    private final long timestamp;
+    private final String message;
+
+    /**
+     * Creates a new console line
+     *
+     * @param sequence  The sequence number of the line
+     * @param timestamp The time the line was received, in milliseconds
+     * @param message   The message of the line
+     */
+    public ConsoleLine(long sequence, long timestamp, String message) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.message = message;
+    }
+
+    /**
+     * Gets the sequence number of the line
+     *
+     * @return the sequence number of the line
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the time the line was received
+     *
+     * @return the time in milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the message of the line
+     *
+     * @return the message of the line
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,63 @@
+package de.gnm.voxeldash.api.entities;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * An immutable view of a user's permissions used for permission checks
+ */
+public class PermissionSnapshot {
+
+    private final boolean admin;
+    private final EnumMap<Feature, PermissionLevel> permissions = new EnumMap<>(Feature.class);
+
+    /**
+     * Creates a new permission snapshot
+     *
+     * @param admin       whether the user is an admin
+     * @param permissions the permission levels of the user
+     */
+    public PermissionSnapshot(boolean admin, Map<Feature, PermissionLevel> permissions) {
+        this.admin = admin;
+        this.permissions.putAll(permissions);
+    }
+
+    /**
+     * Checks if the user is an admin
+     *
+     * @return true if the user is an admin
+     */
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    /**
+     * Gets the permission level for a feature
+     *
+     * @param feature the feature
+     * @return the permission level
+     */
+    public PermissionLevel getPermission(Feature feature) {
+        return permissions.getOrDefault(feature, PermissionLevel.NONE);
+    }
+
+    /**
+     * Checks if the user has at least read access to a feature
+     *
+     * @param feature the feature
+     * @return true if the user is an admin or has at least read access
+     */
+    public boolean hasReadAccess(Feature feature) {
+        return admin || getPermission(feature).getLevel() >= PermissionLevel.READ.getLevel();
+    }
+
+    /**
+     * Checks if the user has full access to a feature
+     *
+     * @param feature the feature
+     * @return true if the user is an admin or has full access
+     */
+    public boolean hasFullAccess(Feature feature) {
+        return admin || getPermission(feature) == PermissionLevel.FULL;
+    }
+}
@@ -0,0 +1,43 @@
+package de.gnm.voxeldash.api.entities.widget;
+
+import java.util.List;
+import java.util.Map;
+
+public class WidgetUpdate {
+
+    private final Widget widget;
+    private final List<WidgetDataPoint> data;
+    private final Map<String, Object> metadata;
+    private final int dataSize;
+
+    /**
+     * Creates a new widget update
+     *
+     * @param widget   The widget
+     * @param data     The data points that are new since the last update
+     * @param metadata The metadata of the widget, or null if it did not change
+     * @param dataSize The amount of data points the widget currently has, so receivers know how many to keep
+     */
+    public WidgetUpdate(Widget widget, List<WidgetDataPoint> data, Map<String, Object> metadata, int dataSize) {
+        this.widget = widget;
+        this.data = data;
+        this.metadata = metadata;
+        this.dataSize = dataSize;
+    }
+
+    public Widget getWidget() {
+        return widget;
+    }
+
+    public List<WidgetDataPoint> getData() {
+        return data;
+    }
+
+    public Map<String, Object> getMetadata() {
+        return metadata;
+    }
+
+    public int getDataSize() {
+        return dataSize;
+    }
+}
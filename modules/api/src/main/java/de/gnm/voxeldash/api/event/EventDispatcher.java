@@ -1,24 +1,71 @@
 package de.gnm.voxeldash.api.event;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
+/**
+ * Dispatches events to their subscribers. Publishing only copies the event into the queue of every
+ * subscriber, the listeners themselves run on drain threads, so a slow subscriber (e.g. a websocket client)
+ * never blocks the thread that publishes the event. Listeners registered with
+ * {@link #registerListener(Class, Consumer)} are called synchronously and never miss an event.
+ */
 public class EventDispatcher {
 
-    private final Map<Class<? extends BaseEvent>, List<Consumer<? extends BaseEvent>>> listeners = new HashMap<>();
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Map<Class<? extends BaseEvent>, List<EventSubscription<?>>> subscriptions = new ConcurrentHashMap<>();
+    private final ExecutorService drainExecutor;
+
+    /**
+     * Basic constructor of the {@link EventDispatcher}
+     */
+    public EventDispatcher() {
+        AtomicInteger counter = new AtomicInteger();
+        drainExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "VoxelDash-EventDrain-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     /**
      * Registers a listener for a specific event type.
+     * The listener is called on the thread that dispatches the event, so it receives every event in order
+     * and should return quickly. Use {@link #subscribe} for listeners that may lag behind
      *
      * @param eventType The class of the event to listen for
      * @param listener  The listener to handle the event
      * @param <T>       The type of the event
      */
     public <T extends BaseEvent> void registerListener(Class<T> eventType, Consumer<T> listener) {
-        listeners.computeIfAbsent(eventType, k -> new ArrayList<>()).add(listener);
+        subscriptions.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(new EventSubscription<>(eventType, listener));
+    }
+
+    /**
+     * Subscribes a listener to a specific event type.
+     *
+     * @param eventType         The class of the event to listen for
+     * @param listener          The listener to handle the event
+     * @param capacity          The maximum amount of events that can be queued for the listener
+     * @param overflowPolicy    What to do when the queue of the listener is full
+     * @param disconnectHandler Called when the listener gets unsubscribed because of {@link OverflowPolicy#DISCONNECT}, may be null
+     * @param <T>               The type of the event
+     * @return the subscription
+     */
+    public <T extends BaseEvent> EventSubscription<T> subscribe(Class<T> eventType, Consumer<T> listener, int capacity,
+                                                               OverflowPolicy overflowPolicy, Runnable disconnectHandler) {
+        EventSubscription<T> subscription = new EventSubscription<>(eventType, listener, capacity, overflowPolicy,
+                disconnectHandler, drainExecutor);
+        subscriptions.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(subscription);
+        return subscription;
     }
 
     /**
@@ -29,26 +76,67 @@ public class EventDispatcher {
      * @param <T>       The type of the event
      */
     public <T extends BaseEvent> void unregisterListener(Class<T> eventType, Consumer<T> listener) {
-        List<Consumer<? extends BaseEvent>> eventListeners = listeners.get(eventType);
+        List<EventSubscription<?>> eventSubscriptions = subscriptions.get(eventType);
+        if (eventSubscriptions == null) return;
 
-        if (eventListeners != null) {
-            eventListeners.remove(listener);
+        for (EventSubscription<?> subscription : eventSubscriptions) {
+            if (subscription.getListener() == listener) {
+                unsubscribe(subscription);
+            }
         }
     }
 
     /**
-     * Dispatches an event to all its registered listeners.
+     * Unsubscribes a subscription and discards its queued events
+     *
+     * @param subscription The subscription to remove
+     */
+    public void unsubscribe(EventSubscription<?> subscription) {
+        List<EventSubscription<?>> eventSubscriptions = subscriptions.get(subscription.getEventType());
+        if (eventSubscriptions != null) {
+            eventSubscriptions.remove(subscription);
+        }
+        subscription.close(false);
+    }
+
+    /**
+     * Checks if an event type has subscribers, so producers can skip collecting data nobody receives
+     *
+     * @param eventType The class of the event
+     * @return true if at least one listener is subscribed to the event type
+     */
+    public boolean hasSubscribers(Class<? extends BaseEvent> eventType) {
+        List<EventSubscription<?>> eventSubscriptions = subscriptions.get(eventType);
+        return eventSubscriptions != null && !eventSubscriptions.isEmpty();
+    }
+
+    /**
+     * Dispatches an event to all its registered listeners. Returns as soon as the event is queued
+     * and all synchronous listeners handled it
      *
      * @param event The event instance to dispatch
      */
+    @SuppressWarnings("unchecked")
     public void dispatch(BaseEvent event) {
-        Class<? extends BaseEvent> eventType = event.getClass();
-        List<Consumer<? extends BaseEvent>> eventListeners = listeners.get(eventType);
+        List<EventSubscription<?>> eventSubscriptions = subscriptions.get(event.getClass());
+        if (eventSubscriptions == null) return;
 
-        if (eventListeners != null) {
-            for (Consumer<? extends BaseEvent> listener : eventListeners) {
-                ((Consumer<BaseEvent>) listener).accept(event);
+        for (EventSubscription<?> subscription : eventSubscriptions) {
+            if (!((EventSubscription<BaseEvent>) subscription).offer(event)) {
+                eventSubscriptions.remove(subscription);
+                subscription.close(true);
             }
         }
     }
+
+    /**
+     * Closes all subscriptions and stops the drain threads. Events dispatched afterwards are discarded
+     */
+    public void shutdown() {
+        for (List<EventSubscription<?>> eventSubscriptions : subscriptions.values()) {
+            eventSubscriptions.forEach(subscription -> subscription.close(false));
+        }
+        subscriptions.clear();
+        drainExecutor.shutdown();
+    }
 }
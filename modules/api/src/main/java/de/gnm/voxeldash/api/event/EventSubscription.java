@@ -0,0 +1,245 @@
+package de.gnm.voxeldash.api.event;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A subscriber of the {@link EventDispatcher}. Every subscription buffers its events in its own
+ * bounded ring buffer and drains them in order, so a slow subscriber never blocks the publisher
+ * or the other subscribers. Synchronous subscriptions have no buffer and pass every event to the
+ * listener on the publishing thread instead, so they never lose an event.
+ *
+ * @param <T> The type of the event
+ */
+public class EventSubscription<T extends BaseEvent> {
+
+    private static final Logger LOG = Logger.getLogger("EventDispatcher");
+    private static final int MAX_DRAIN_BATCH = 256;
+
+    private final Class<T> eventType;
+    private final Consumer<T> listener;
+    private final OverflowPolicy overflowPolicy;
+    private final Runnable disconnectHandler;
+    private final Executor executor;
+
+    private final Object[] buffer;
+    private int head;
+    private int size;
+    private boolean draining;
+    private boolean closed;
+    private long droppedEvents;
+
+    /**
+     * Basic constructor of the {@link EventSubscription}
+     *
+     * @param eventType         The class of the event
+     * @param listener          The listener that handles the events
+     * @param capacity          The maximum amount of queued events
+     * @param overflowPolicy    What to do when the queue is full
+     * @param disconnectHandler Called when the subscription gets closed because of {@link OverflowPolicy#DISCONNECT}, may be null
+     * @param executor          The executor that drains the queue
+     */
+    EventSubscription(Class<T> eventType, Consumer<T> listener, int capacity, OverflowPolicy overflowPolicy,
+                      Runnable disconnectHandler, Executor executor) {
+        if (capacity < 1) throw new IllegalArgumentException("The capacity must be at least 1");
+
+        this.eventType = eventType;
+        this.listener = listener;
+        this.overflowPolicy = overflowPolicy;
+        this.disconnectHandler = disconnectHandler;
+        this.executor = executor;
+        this.buffer = new Object[capacity];
+    }
+
+    /**
+     * Constructor of a synchronous {@link EventSubscription}
+     *
+     * @param eventType The class of the event
+     * @param listener  The listener that handles the events
+     */
+    EventSubscription(Class<T> eventType, Consumer<T> listener) {
+        this.eventType = eventType;
+        this.listener = listener;
+        this.overflowPolicy = null;
+        this.disconnectHandler = null;
+        this.executor = null;
+        this.buffer = new Object[0];
+    }
+
+    /**
+     * Queues an event for this subscriber. Never waits for the subscriber, unless it is synchronous
+     *
+     * @param event The event to queue
+     * @return false if the subscriber overflowed and needs to be disconnected
+     */
+    boolean offer(T event) {
+        if (isSynchronous()) {
+            if (!isClosed()) accept(event);
+            return true;
+        }
+
+        boolean scheduleDrain;
+
+        synchronized (this) {
+            if (closed) return true;
+
+            if (size == buffer.length) {
+                droppedEvents++;
+                switch (overflowPolicy) {
+                    case DROP_OLDEST -> {
+                        buffer[head] = event;
+                        head = (head + 1) % buffer.length;
+                    }
+                    case COALESCE -> buffer[(head + size - 1) % buffer.length] = event;
+                    case DISCONNECT -> {
+                        return false;
+                    }
+                }
+            } else {
+                buffer[(head + size) % buffer.length] = event;
+                size++;
+            }
+
+            scheduleDrain = !draining;
+            draining = true;
+        }
+
+        if (scheduleDrain) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes all queued events to the listener. Only one drain runs at a time per subscription,
+     * so the listener always receives the events in the order they were published
+     */
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        Object[] batch = new Object[Math.min(buffer.length, MAX_DRAIN_BATCH)];
+
+        while (true) {
+            int count;
+            synchronized (this) {
+                if (closed || size == 0) {
+                    draining = false;
+                    return;
+                }
+
+                count = Math.min(size, batch.length);
+                for (int i = 0; i < count; i++) {
+                    batch[i] = buffer[head];
+                    buffer[head] = null;
+                    head = (head + 1) % buffer.length;
+                }
+                size -= count;
+            }
+
+            for (int i = 0; i < count; i++) {
+                accept((T) batch[i]);
+                batch[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Passes an event to the listener
+     *
+     * @param event The event
+     */
+    private void accept(T event) {
+        try {
+            listener.accept(event);
+        } catch (Throwable e) {
+            LOG.log(Level.WARNING, "A listener for " + eventType.getSimpleName() + " failed", e);
+        }
+    }
+
+    /**
+     * Closes the subscription and discards all queued events
+     *
+     * @param overflow true if the subscription got closed because it overflowed
+     */
+    void close(boolean overflow) {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = null;
+            }
+            size = 0;
+        }
+
+        if (overflow && disconnectHandler != null) {
+            try {
+                disconnectHandler.run();
+            } catch (Throwable e) {
+                LOG.log(Level.WARNING, "The disconnect handler for " + eventType.getSimpleName() + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * Gets the class of the event
+     *
+     * @return the class of the event
+     */
+    public Class<T> getEventType() {
+        return eventType;
+    }
+
+    /**
+     * Gets the listener of this subscription
+     *
+     * @return the listener
+     */
+    public Consumer<T> getListener() {
+        return listener;
+    }
+
+    /**
+     * Gets the amount of events that are waiting for the subscriber
+     *
+     * @return the amount of queued events
+     */
+    public synchronized int getQueuedEvents() {
+        return size;
+    }
+
+    /**
+     * Gets the amount of events that got dropped or coalesced because the subscriber was too slow
+     *
+     * @return the amount of dropped events
+     */
+    public synchronized long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * Checks if the events are passed to the listener on the publishing thread
+     *
+     * @return true if the subscription is synchronous
+     */
+    public boolean isSynchronous() {
+        return executor == null;
+    }
+
+    /**
+     * Checks if the subscription is closed
+     *
+     * @return true if the subscription is closed
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,24 @@
+package de.gnm.voxeldash.api.event;
+
+/**
+ * What happens when a subscriber can't keep up and its event queue is full
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Drops the oldest queued event to make room for the new one
+     */
+    DROP_OLDEST,
+
+    /**
+     * Replaces the newest queued event with the new one. Useful for events that
+     * describe a state, where only the latest value matters
+     */
+    COALESCE,
+
+    /**
+     * Unsubscribes the subscriber and notifies its disconnect handler
+     */
+    DISCONNECT
+
+}
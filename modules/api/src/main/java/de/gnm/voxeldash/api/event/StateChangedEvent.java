@@ -0,0 +1,40 @@
+package de.gnm.voxeldash.api.event;
+
+/**
+ * Base of the events that publish changes of a server state, e.g. the online players.
+ * Every event has a revision, so receivers can tell if they missed a change and need the full state again.
+ */
+public abstract class StateChangedEvent extends BaseEvent {
+
+    private final long revision;
+    private final boolean full;
+
+    /**
+     * Basic constructor of the {@link StateChangedEvent}
+     *
+     * @param revision The revision of the state, increases by one with every event
+     * @param full     true if the event contains the complete state instead of only the changes
+     */
+    protected StateChangedEvent(long revision, boolean full) {
+        this.revision = revision;
+        this.full = full;
+    }
+
+    /**
+     * Gets the revision of the state
+     *
+     * @return the revision
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Checks if the event contains the complete state
+     *
+     * @return true if receivers should replace their state instead of applying the changes
+     */
+    public boolean isFull() {
+        return full;
+    }
+}
@@ -2,8 +2,18 @@ package de.gnm.voxeldash.api.event.console;
 
 import de.gnm.voxeldash.api.event.BaseEvent;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class ConsoleMessageReceivedEvent extends BaseEvent {
 
+    /**
+     * Starts at the current time in microseconds, so sequence numbers keep increasing across restarts
+     * and clients can tell that a cursor from a previous run is older than everything in the history
+     */
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private final long sequence;
+    private final long timestamp;
     private final String message;
 
     /**
@@ -12,9 +22,37 @@ public class ConsoleMessageReceivedEvent extends BaseEvent {
      * @param message The message that got received
      */
     public ConsoleMessageReceivedEvent(String message) {
+        this.sequence = nextSequence();
+        this.timestamp = System.currentTimeMillis();
         this.message = message;
     }
 
+    /**
+     * Reserves the next console sequence number
+     *
+     * @return the sequence number
+     */
+    public static long nextSequence() {
+        return SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * Gets the sequence number of the message. Messages that got received later always have a higher number
+     *
+     * @return the sequence number of the message
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the time the message got received
+     * @return the time in milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
     /**
      * Gets the message that got received
      * @return the message that got received
@@ -0,0 +1,43 @@
+package de.gnm.voxeldash.api.event.players;
+
+import de.gnm.voxeldash.api.entities.OnlinePlayer;
+import de.gnm.voxeldash.api.event.StateChangedEvent;
+
+import java.util.List;
+import java.util.UUID;
+
+public class PlayersChangedEvent extends StateChangedEvent {
+
+    private final List<OnlinePlayer> players;
+    private final List<UUID> removed;
+
+    /**
+     * The {@link PlayersChangedEvent} gets called when a player joins, leaves or one of the online players changes.
+     *
+     * @param revision The revision of the player list
+     * @param full     true if the event contains all online players
+     * @param players  The players that joined or changed, or all online players
+     * @param removed  The uuids of the players that left
+     */
+    public PlayersChangedEvent(long revision, boolean full, List<OnlinePlayer> players, List<UUID> removed) {
+        super(revision, full);
+        this.players = players;
+        this.removed = removed;
+    }
+
+    /**
+     * Gets the players that joined or changed
+     * @return the players that joined or changed
+     */
+    public List<OnlinePlayer> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Gets the players that left
+     * @return the uuids of the players that left
+     */
+    public List<UUID> getRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,31 @@
+package de.gnm.voxeldash.api.event.widgets;
+
+import de.gnm.voxeldash.api.entities.widget.WidgetUpdate;
+import de.gnm.voxeldash.api.event.StateChangedEvent;
+
+import java.util.List;
+
+public class WidgetsChangedEvent extends StateChangedEvent {
+
+    private final List<WidgetUpdate> widgets;
+
+    /**
+     * The {@link WidgetsChangedEvent} gets called when the collectors of the widgets took new samples.
+     *
+     * @param revision The revision of the widget data
+     * @param full     true if the event contains all widgets with all their data
+     * @param widgets  The widgets with new data points or changed metadata
+     */
+    public WidgetsChangedEvent(long revision, boolean full, List<WidgetUpdate> widgets) {
+        super(revision, full);
+        this.widgets = widgets;
+    }
+
+    /**
+     * Gets the widgets that changed
+     * @return the widgets that changed
+     */
+    public List<WidgetUpdate> getWidgets() {
+        return widgets;
+    }
+}
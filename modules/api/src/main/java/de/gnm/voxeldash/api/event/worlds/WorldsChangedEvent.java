@@ -0,0 +1,42 @@
+package de.gnm.voxeldash.api.event.worlds;
+
+import de.gnm.voxeldash.api.entities.World;
+import de.gnm.voxeldash.api.event.StateChangedEvent;
+
+import java.util.List;
+
+public class WorldsChangedEvent extends StateChangedEvent {
+
+    private final List<World> worlds;
+    private final List<String> removed;
+
+    /**
+     * The {@link WorldsChangedEvent} gets called when a world gets loaded, unloaded or one of the worlds changes.
+     *
+     * @param revision The revision of the world list
+     * @param full     true if the event contains all worlds
+     * @param worlds   The worlds that got loaded or changed, or all worlds
+     * @param removed  The names of the worlds that got unloaded
+     */
+    public WorldsChangedEvent(long revision, boolean full, List<World> worlds, List<String> removed) {
+        super(revision, full);
+        this.worlds = worlds;
+        this.removed = removed;
+    }
+
+    /**
+     * Gets the worlds that got loaded or changed
+     * @return the worlds that got loaded or changed
+     */
+    public List<World> getWorlds() {
+        return worlds;
+    }
+
+    /**
+     * Gets the worlds that got unloaded
+     * @return the names of the worlds that got unloaded
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+}
@@ -2,30 +2,33 @@ package de.gnm.voxeldash.api.handlers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import de.gnm.voxeldash.VoxelDashLoader;
-import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
-import de.gnm.voxeldash.api.annotations.RequiresFeatures;
 import de.gnm.voxeldash.api.controller.PermissionController;
 import de.gnm.voxeldash.api.controller.SessionController;
 import de.gnm.voxeldash.api.entities.Feature;
 import de.gnm.voxeldash.api.entities.PermissionLevel;
+import de.gnm.voxeldash.api.entities.PermissionSnapshot;
+import de.gnm.voxeldash.api.helper.ConditionalRequestHelper;
+import de.gnm.voxeldash.api.helper.ExecutionMode;
 import de.gnm.voxeldash.api.helper.ParserHelper;
+import de.gnm.voxeldash.api.helper.RouteExecutor;
 import de.gnm.voxeldash.api.http.*;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HttpString;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.io.IOException;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class BaseHandler implements HttpHandler {
 
+    private static final Logger LOG = Logger.getLogger("BaseHandler");
+
     private static final String API_PREFIX = "/api";
-    private final List<RouteMeta> routes = new ArrayList<>();
+    private final RouteTable routeTable = new RouteTable();
     private final VoxelDashLoader loader;
+    private RouteExecutor routeExecutor = new RouteExecutor(ExecutionMode.WORKER);
 
     public BaseHandler(VoxelDashLoader loader) {
         this.loader = loader;
@@ -37,7 +40,16 @@ public class BaseHandler implements HttpHandler {
      * @param routeMeta The route to register
      */
     public void registerRoute(RouteMeta routeMeta) {
-        routes.add(routeMeta);
+        routeTable.register(routeMeta);
+    }
+
+    /**
+     * Sets the executor that runs the routes
+     *
+     * @param routeExecutor The route executor
+     */
+    public void setRouteExecutor(RouteExecutor routeExecutor) {
+        this.routeExecutor = routeExecutor;
     }
 
     /**
@@ -48,33 +60,47 @@ public class BaseHandler implements HttpHandler {
      */
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        if (exchange.isInIoThread()) {
-            exchange.dispatch(this);
-            return;
-        }
-
-        exchange.startBlocking();
         String requestPath = exchange.getRequestPath();
 
         if (!isApiRequest(requestPath, exchange)) return;
 
         String relativePath = requestPath.substring(API_PREFIX.length());
-        RouteMeta matchedRoute = matchRoute(relativePath, exchange.getRequestMethod().toString());
+        RouteMatch match = routeTable.match(exchange.getRequestMethod().toString(), relativePath);
 
-        if (matchedRoute == null) {
+        if (match == null) {
             sendErrorResponse(exchange, 404, "Not found");
             return;
         }
 
+        if (exchange.isInIoThread()) {
+            routeExecutor.dispatch(exchange, match.getRoute(), dispatched -> handleRoute(dispatched, match));
+            return;
+        }
+
+        handleRoute(exchange, match);
+    }
+
+    /**
+     * Handles a matched route outside of the IO thread
+     *
+     * @param exchange the HTTP request/response exchange
+     * @param match    the matched route
+     * @throws Exception if an error occurs while handling the request
+     */
+    private void handleRoute(HttpServerExchange exchange, RouteMatch match) throws Exception {
+        exchange.startBlocking();
+
+        RouteMeta matchedRoute = match.getRoute();
+
         if (!isFeatureAvailable(matchedRoute)) {
             sendErrorResponse(exchange, 501, "Feature not available on this server");
             return;
         }
 
-        Map<String, String> pathVariables = extractPathVariables(matchedRoute, relativePath);
+        Map<String, String> pathVariables = match.getPathVariables();
 
         int userId = getUserIdAfterAuthentication(matchedRoute, exchange);
-        if (userId == -1 && matchedRoute.getMethod().getAnnotation(AuthenticatedRoute.class) != null) {
+        if (userId == -1 && matchedRoute.isAuthenticated()) {
             return;
         }
 
@@ -108,78 +134,6 @@ public class BaseHandler implements HttpHandler {
         return true;
     }
 
-    /**
-     * Matches a route to the request path
-     *
-     * @param relativePath the relative path of the request
-     * @return the matched route, or null if no route was found
-     */
-    private RouteMeta matchRoute(String relativePath, String requestMethod) {
-        RouteMeta bestMatch = null;
-        int bestScore = -1;
-
-        for (RouteMeta route : routes) {
-            if (!requestMethod.equals(route.getHttpMethod().toString())) {
-                continue;
-            }
-
-            Matcher matcher = createRouteMatcher(route.getPath(), relativePath);
-            if (matcher.matches()) {
-                int score = calculateRouteSpecificity(route.getPath());
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestMatch = route;
-                }
-            }
-        }
-        return bestMatch;
-    }
-
-    /**
-     * Calculates the specificity of a route path.
-     * Routes with fewer path parameters are more specific and score higher.
-     *
-     * @param routePath the route path
-     * @return the specificity score (higher = more specific)
-     */
-    private int calculateRouteSpecificity(String routePath) {
-        // Count the number of static segments vs parameter segments
-        String[] segments = routePath.split("/");
-        int score = 0;
-        for (String segment : segments) {
-            if (!segment.isEmpty()) {
-                if (segment.startsWith(":")) {
-                    // Parameter segment - lower priority
-                    score += 1;
-                } else {
-                    // Static segment - higher priority
-                    score += 10;
-                }
-            }
-        }
-        return score;
-    }
-
-    /**
-     * Extracts path variables from the request path
-     *
-     * @param route        the route to extract path variables for
-     * @param relativePath the relative path of the request
-     * @return a map of path variables
-     */
-    private Map<String, String> extractPathVariables(RouteMeta route, String relativePath) {
-        Map<String, String> pathVariables = new HashMap<>();
-        Matcher matcher = createRouteMatcher(route.getPath(), relativePath);
-
-        if (matcher.matches()) {
-            List<String> parameterNames = getParameterNames(route.getPath());
-            for (int i = 0; i < parameterNames.size(); i++) {
-                pathVariables.put(parameterNames.get(i), matcher.group(i + 1));
-            }
-        }
-        return pathVariables;
-    }
-
     /**
      * Checks if a route is authenticated
      *
@@ -187,7 +141,7 @@ public class BaseHandler implements HttpHandler {
      * @param exchange the HTTP request/response exchange
      */
     private int getUserIdAfterAuthentication(RouteMeta route, HttpServerExchange exchange) {
-        if (route.getMethod().getAnnotation(AuthenticatedRoute.class) != null) {
+        if (route.isAuthenticated()) {
             if (exchange.getRequestHeaders().getFirst(HttpString.tryFromString("Authorization")) == null) {
                 sendErrorResponse(exchange, 401, "Unauthorized");
                 return -1;
@@ -198,14 +152,15 @@ public class BaseHandler implements HttpHandler {
             String sessionToken = exchange.getRequestHeaders().getFirst(HttpString.tryFromString("Authorization"))
                     .replace("Bearer ", "");
 
-            if (!sessionController.isValidToken(sessionToken)) {
+            int userId = sessionController.getUserIdByToken(sessionToken);
+            if (userId == -1) {
                 sendErrorResponse(exchange, 401, "Unauthorized");
                 return -1;
             }
 
             sessionController.updateLastUsed(sessionToken);
 
-            return sessionController.getUserIdByToken(sessionToken);
+            return userId;
         }
         return -1;
     }
@@ -217,12 +172,9 @@ public class BaseHandler implements HttpHandler {
      * @return true if the feature is available, false otherwise
      */
     private boolean isFeatureAvailable(RouteMeta route) {
-        if (route.getMethod().getAnnotation(RequiresFeatures.class) != null) {
-            RequiresFeatures requiresFeatures = route.getMethod().getAnnotation(RequiresFeatures.class);
-            for (Feature feature : requiresFeatures.value()) {
-                if (!loader.getAvailableFeatures().contains(feature)) {
-                    return false;
-                }
+        for (Feature feature : route.getRequiredFeatures()) {
+            if (!loader.getAvailableFeatures().contains(feature)) {
+                return false;
             }
         }
         return true;
@@ -236,22 +188,15 @@ public class BaseHandler implements HttpHandler {
      * @return true if the user has permission, false otherwise
      */
     private boolean hasFeaturePermission(RouteMeta route, int userId) {
-        RequiresFeatures requiresFeatures = route.getMethod().getAnnotation(RequiresFeatures.class);
-        if (requiresFeatures == null) return true;
+        if (route.getRequiredFeatures().length == 0) return true;
         if (userId == -1) return true;
 
-        PermissionController permissionController = loader.getController(PermissionController.class);
-        PermissionLevel requiredLevel = requiresFeatures.level();
+        PermissionSnapshot permissions = loader.getController(PermissionController.class).getSnapshot(userId);
+        boolean requiresFullAccess = route.getRequiredLevel() == PermissionLevel.FULL;
 
-        for (Feature feature : requiresFeatures.value()) {
-            if (requiredLevel == PermissionLevel.FULL) {
-                if (!permissionController.hasFullAccess(userId, feature)) {
-                    return false;
-                }
-            } else {
-                if (!permissionController.hasReadAccess(userId, feature)) {
-                    return false;
-                }
+        for (Feature feature : route.getRequiredFeatures()) {
+            if (requiresFullAccess ? !permissions.hasFullAccess(feature) : !permissions.hasReadAccess(feature)) {
+                return false;
             }
         }
 
@@ -268,71 +213,43 @@ public class BaseHandler implements HttpHandler {
      * @return the response to send back to the client
      */
     private Response handleRequestForRoute(HttpServerExchange exchange, int userId, RouteMeta route, Map<String, String> pathVariables) {
-        try {
-            // No request
-            if (route.getMethod().getParameterCount() == 0) {
-                return (Response) route.getMethod().invoke(route.getRoute());
-            }
-
-            // JSON request
-            if (route.getMethod().getParameterTypes()[0].equals(JSONRequest.class)) {
-                return handleJsonRequest(exchange, userId, route, pathVariables);
-            }
-
-            // Raw request
-            if (route.getMethod().getParameterTypes()[0].equals(RawRequest.class)) {
-                return handleRawRequest(exchange, userId, route, pathVariables);
+        Request request;
+        switch (route.getRequestType()) {
+            case JSON -> {
+                JsonNode jsonBody;
+                try {
+                    if (route.getHttpMethod() == HTTPMethod.GET) {
+                        jsonBody = ParserHelper.parseQueryParameters(exchange);
+                    } else {
+                        jsonBody = ParserHelper.parseJsonBody(exchange);
+                    }
+                } catch (IllegalArgumentException e) {
+                    return new JSONResponse().error("Please provide a valid JSON body.").code(400);
+                }
+                request = new JSONRequest(exchange.getSourceAddress().getAddress(), userId, exchange.getRequestHeaders(), pathVariables, jsonBody);
             }
-
-            return new JSONResponse().error("Invalid request.").code(400);
-        } catch (Exception e) {
-            return new JSONResponse().error(e.getMessage()).code(500);
+            case RAW -> request = new RawRequest(exchange.getSourceAddress().getAddress(), userId, exchange.getRequestHeaders(), pathVariables, exchange.getInputStream());
+            default -> request = null;
         }
-    }
 
-    /**
-     * Handles a raw request
-     *
-     * @param exchange      the HTTP request/response exchange
-     * @param userId        the user id of the user
-     * @param route         the route to handle the request for
-     * @param pathVariables the path variables extracted from the request path
-     * @return the response to send back to the client
-     */
-    private Response handleRawRequest(HttpServerExchange exchange, int userId, RouteMeta route, Map<String, String> pathVariables) {
         try {
-            RawRequest request = new RawRequest(exchange.getSourceAddress().getAddress(), userId, exchange.getRequestHeaders(), pathVariables, exchange.getInputStream());
-            return (Response) route.getMethod().invoke(route.getRoute(), request);
-        } catch (Exception e) {
-            return new JSONResponse().error(e.getMessage()).code(500);
-        }
-    }
+            if (!route.isFingerprinted()) return route.invoke(request);
 
-    /**
-     * Handles a JSON request
-     *
-     * @param exchange      the HTTP request/response exchange
-     * @param userId        the user id of the user
-     * @param route         the route to handle the request for
-     * @param pathVariables the path variables extracted from the request path
-     * @return the response to send back to the client
-     */
-    private Response handleJsonRequest(HttpServerExchange exchange, int userId, RouteMeta route, Map<String, String> pathVariables) {
-        try {
-            JsonNode jsonBody;
-            if (route.getHttpMethod() == HTTPMethod.GET) {
-                jsonBody = ParserHelper.parseQueryParameters(exchange);
-            } else {
-                jsonBody = ParserHelper.parseJsonBody(exchange);
+            if (!route.hasFingerprintMethod()) {
+                return ConditionalRequestHelper.fingerprintBody(exchange, route.invoke(request));
             }
-            JSONRequest request = new JSONRequest(exchange.getSourceAddress().getAddress(), userId, exchange.getRequestHeaders(), pathVariables, jsonBody);
-            return (Response) route.getMethod().invoke(route.getRoute(), request);
-        } catch (Exception e) {
-            if (e instanceof IllegalArgumentException) {
-                return new JSONResponse().error("Please provide a valid JSON body.").code(400);
-            } else {
-                return new JSONResponse().error(e.getCause() != null ? e.getCause().getMessage() : e.getMessage()).code(500);
+
+            long lastModified = route.fingerprint(request);
+            if (lastModified <= 0) return route.invoke(request);
+
+            String etag = Long.toHexString(lastModified);
+            if (ConditionalRequestHelper.isNotModified(exchange, etag, lastModified)) {
+                return ConditionalRequestHelper.notModified(etag, lastModified);
             }
+
+            return ConditionalRequestHelper.withValidators(route.invoke(request), etag, lastModified);
+        } catch (Throwable e) {
+            return new JSONResponse().error(e.getMessage()).code(500);
         }
     }
 
@@ -360,34 +277,40 @@ public class BaseHandler implements HttpHandler {
         response.getHeaders().forEach((key, value) -> exchange.getResponseHeaders().add(HttpString.tryFromString(key), value));
         exchange.getResponseHeaders().add(HttpString.tryFromString("Server"), "VoxelDash");
         exchange.getResponseHeaders().add(HttpString.tryFromString("Content-Type"), response.getContentType().getType());
-        response.getInputStream().transferTo(exchange.getOutputStream());
+
+        if (response.isStreaming() && routeExecutor.dispatchStream(exchange, dispatched -> transferResponse(dispatched, response),
+                () -> closeResponse(response))) {
+            return;
+        }
+
+        transferResponse(exchange, response);
     }
 
     /**
-     * Creates a route matcher
+     * Closes the body of a response that will not be sent
      *
-     * @param routePath   the route path
-     * @param requestPath the request path
-     * @return the route matcher
+     * @param response the response to close
      */
-    private Matcher createRouteMatcher(String routePath, String requestPath) {
-        String regex = "^" + routePath.replaceAll(":(\\w+)", "(?<$1>[^/]+)") + "$";
-        Pattern pattern = Pattern.compile(regex);
-        return pattern.matcher(requestPath);
+    private void closeResponse(Response response) {
+        try {
+            response.close();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not close the response", e);
+        }
     }
 
     /**
-     * Gets the parameter names from a route path
+     * Transfers the body of a response to the client
      *
-     * @param routePath the route path
-     * @return a list of parameter names
+     * @param exchange the HTTP request/response exchange
+     * @param response the response to transfer
+     * @throws Exception if an error occurs while sending the response
      */
-    private List<String> getParameterNames(String routePath) {
-        List<String> parameterNames = new ArrayList<>();
-        Matcher matcher = Pattern.compile(":(\\w+)").matcher(routePath);
-        while (matcher.find()) {
-            parameterNames.add(matcher.group(1));
+    private void transferResponse(HttpServerExchange exchange, Response response) throws Exception {
+        if (!exchange.isBlocking()) {
+            exchange.startBlocking();
         }
-        return parameterNames;
+
+        response.writeTo(exchange.getOutputStream());
     }
 }
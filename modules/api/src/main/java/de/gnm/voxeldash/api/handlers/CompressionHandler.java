@@ -0,0 +1,121 @@
+package de.gnm.voxeldash.api.handlers;
+
+import io.undertow.conduits.DeflatingStreamSinkConduit;
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.DeflateEncodingProvider;
+import io.undertow.server.handlers.encoding.EncodingHandler;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import io.undertow.util.ObjectPool;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the responses of the wrapped handler based on the 'Accept-Encoding' header of the client.
+ * Small responses and content that is already compressed (e.g. zip or jar downloads) are sent as they are.
+ */
+public class CompressionHandler implements HttpHandler {
+
+    public static final long DEFAULT_MIN_SIZE = 1024;
+
+    private static final int DEFLATER_POOL_SIZE = 32;
+    private static final int COMPRESSION_LEVEL = 6;
+
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "application/zip", "application/gzip", "application/x-gzip", "application/java-archive",
+            "application/x-7z-compressed", "application/x-rar-compressed", "application/x-xz",
+            "image/png", "image/jpeg", "image/gif", "image/webp", "font/woff2", "video/mp4", "audio/ogg"
+    );
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "jar", "gz", "tgz", "xz", "7z", "rar", "br", "zst", "mca", "dat", "nbt",
+            "png", "jpg", "jpeg", "gif", "webp", "woff2", "mp4", "ogg"
+    );
+
+    private final EncodingHandler encodingHandler;
+    private final long minSize;
+
+    /**
+     * Basic constructor of the {@link CompressionHandler}
+     *
+     * @param next    The handler whose responses should be compressed
+     * @param minSize The minimum size (in bytes) of a response before it gets compressed.
+     *                Responses without a known size are always compressed
+     */
+    public CompressionHandler(HttpHandler next, long minSize) {
+        this.minSize = minSize;
+
+        ObjectPool<Deflater> gzipPool = DeflatingStreamSinkConduit.simpleDeflaterPool(DEFLATER_POOL_SIZE, COMPRESSION_LEVEL);
+        ObjectPool<Deflater> deflatePool = DeflatingStreamSinkConduit.simpleDeflaterPool(DEFLATER_POOL_SIZE, COMPRESSION_LEVEL);
+
+        Predicate shouldCompress = this::shouldCompress;
+        ContentEncodingRepository encodings = new ContentEncodingRepository()
+                .addEncodingHandler("gzip", new GzipEncodingProvider(gzipPool), 100, shouldCompress)
+                .addEncodingHandler("deflate", new DeflateEncodingProvider(deflatePool), 50, shouldCompress);
+
+        encodingHandler = new EncodingHandler(next, encodings);
+    }
+
+    /**
+     * Handles the request by passing it to the wrapped handler with the negotiated encoding
+     *
+     * @param exchange the HTTP request/response exchange
+     * @throws Exception if an error occurs while handling the request
+     */
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        encodingHandler.handleRequest(exchange);
+    }
+
+    /**
+     * Checks if a response should be compressed. This is evaluated once the response headers are set
+     *
+     * @param exchange the HTTP request/response exchange
+     * @return true if the response should be compressed
+     */
+    private boolean shouldCompress(HttpServerExchange exchange) {
+        HeaderMap headers = exchange.getResponseHeaders();
+        if (headers.contains(Headers.CONTENT_ENCODING)) return false;
+
+        String contentLength = headers.getFirst(Headers.CONTENT_LENGTH);
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength) < minSize) return false;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        String contentType = headers.getFirst(Headers.CONTENT_TYPE);
+        if (contentType != null) {
+            String mimeType = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+            if (COMPRESSED_TYPES.contains(mimeType)) return false;
+        }
+
+        return !isCompressedFile(headers.getFirst(Headers.CONTENT_DISPOSITION));
+    }
+
+    /**
+     * Checks if the file name of a download belongs to an already compressed format
+     *
+     * @param contentDisposition the value of the 'Content-Disposition' header
+     * @return true if the file is already compressed
+     */
+    private static boolean isCompressedFile(String contentDisposition) {
+        if (contentDisposition == null) return false;
+
+        int nameIndex = contentDisposition.indexOf("filename=");
+        if (nameIndex == -1) return false;
+
+        String fileName = contentDisposition.substring(nameIndex + 9).replace("\"", "").trim();
+        int extensionIndex = fileName.lastIndexOf('.');
+        if (extensionIndex == -1) return false;
+
+        return COMPRESSED_EXTENSIONS.contains(fileName.substring(extensionIndex + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,364 @@
+package de.gnm.voxeldash.api.handlers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.gnm.voxeldash.api.controller.ConsoleHistory;
+import de.gnm.voxeldash.api.entities.ConsoleLine;
+import de.gnm.voxeldash.api.helper.ConsoleFilter;
+import io.undertow.websockets.core.WebSocketChannel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends the console lines of the {@link ConsoleHistory} to all channels that attached to the CONSOLE channel.
+ * In batching mode, lines are collected for a few milliseconds and sent as a single JSON array frame.
+ * Every batch is serialised once and the encoded frame is shared between all channels without a filter.
+ * Channels with a {@link ConsoleFilter} get a frame with only the lines that pass their filter.
+ * Channels that attached without batching get every line as its own frame right away.
+ * <p>
+ * The lines come from the history itself, so a channel gets its history and its live lines from the same
+ * ordered source. If frames for a channel got skipped because the client can't keep up, the channel gets
+ * a 'CONSOLE_GAP' message with the cursor it has to attach again with and receives no further lines until it does.
+ */
+public class ConsoleBatcher {
+
+    public static final long DEFAULT_FLUSH_WINDOW = 25;
+    public static final int DEFAULT_MAX_LINES = 500;
+
+    private static final Logger LOG = Logger.getLogger("ConsoleBatcher");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final ConsoleHistory history;
+    private final long flushWindow;
+    private final int maxLines;
+    private final Consumer<ConsoleLine> listener = this::add;
+    private final Set<WebSocketChannel> channels = new CopyOnWriteArraySet<>();
+    private final Set<WebSocketChannel> unbatched = new CopyOnWriteArraySet<>();
+    private final Map<WebSocketChannel, ConsoleFilter> filters = new ConcurrentHashMap<>();
+    private final Map<WebSocketChannel, Long> gaps = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final List<ConsoleLine> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean listening;
+
+    /**
+     * Basic constructor of the {@link ConsoleBatcher}
+     *
+     * @param history     The history that receives the console lines
+     * @param flushWindow How long lines are collected before they get sent, in milliseconds
+     * @param maxLines    The maximum amount of lines in a single frame
+     */
+    public ConsoleBatcher(ConsoleHistory history, long flushWindow, int maxLines) {
+        this.history = history;
+        this.flushWindow = flushWindow;
+        this.maxLines = maxLines;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "VoxelDash-ConsoleBatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts sending batches to a channel. The first attached channel starts listening to the history
+     *
+     * @param channel The channel
+     * @param filter  The lines the channel receives, or null for all lines
+     */
+    public void attach(WebSocketChannel channel, ConsoleFilter filter) {
+        attach(channel, filter, true, null);
+    }
+
+    /**
+     * Starts sending console lines to a channel. The initializer runs while no line can be added to the history,
+     * so everything it sends (e.g. the history) reaches the client before the first live line and no line is
+     * missing in between
+     *
+     * @param channel     The channel
+     * @param filter      The lines the channel receives, or null for all lines
+     * @param batch       Whether the channel receives the lines as batched JSON array frames
+     * @param initializer Runs before the channel receives its first live line, may be null
+     */
+    public void attach(WebSocketChannel channel, ConsoleFilter filter, boolean batch, Runnable initializer) {
+        history.withLock(() -> {
+            synchronized (this) {
+                flush();
+
+                if (filter != null) {
+                    filters.put(channel, filter);
+                } else {
+                    filters.remove(channel);
+                }
+                if (batch) {
+                    unbatched.remove(channel);
+                } else {
+                    unbatched.add(channel);
+                }
+                gaps.remove(channel);
+                channels.add(channel);
+                if (initializer != null) initializer.run();
+
+                if (!listening && !scheduler.isShutdown()) {
+                    history.addListener(listener);
+                    listening = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops sending lines to a channel. The last detached channel stops listening to the history
+     *
+     * @param channel The channel
+     */
+    public synchronized void detach(WebSocketChannel channel) {
+        channels.remove(channel);
+        unbatched.remove(channel);
+        filters.remove(channel);
+        gaps.remove(channel);
+
+        if (channels.isEmpty() && listening) {
+            history.removeListener(listener);
+            listening = false;
+            pending.clear();
+        }
+    }
+
+    /**
+     * Stops the batcher. Stops listening to the history and stops its scheduler thread
+     */
+    public synchronized void close() {
+        history.removeListener(listener);
+        listening = false;
+        channels.clear();
+        unbatched.clear();
+        filters.clear();
+        gaps.clear();
+        pending.clear();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Sends a line to all channels without batching and adds it to the current batch. Sends the batch
+     * right away if it is full, otherwise schedules it to be sent once the flush window has passed
+     *
+     * @param line The console line
+     */
+    private synchronized void add(ConsoleLine line) {
+        if (scheduler.isShutdown()) return;
+
+        if (!unbatched.isEmpty()) {
+            sendSingle(line);
+        }
+        if (unbatched.size() == channels.size()) return;
+
+        pending.add(line);
+
+        if (pending.size() >= maxLines) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, flushWindow, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends a line as its own frame to all channels without batching. The unfiltered frame is only
+     * encoded once. Channels that got closed without detaching are removed
+     *
+     * @param line The console line
+     */
+    private void sendSingle(ConsoleLine line) {
+        List<ConsoleLine> lines = Collections.singletonList(line);
+        ByteBuffer frame = null;
+        for (WebSocketChannel channel : unbatched) {
+            if (!channel.isOpen()) {
+                detach(channel);
+                continue;
+            }
+
+            ConsoleFilter filter = filters.get(channel);
+            if (filter != null && !filter.matches(line.getMessage())) continue;
+
+            if (frame == null) {
+                frame = encode(lines, false);
+                if (frame == null) return;
+            }
+            sendFrame(channel, frame, line.getSequence() - 1);
+        }
+    }
+
+    /**
+     * Sends the current batch to all attached channels in batching mode. The unfiltered frame is only encoded
+     * if at least one channel without a filter is attached. Channels that got closed without
+     * detaching are removed
+     */
+    private synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) return;
+
+        List<WebSocketChannel> closed = new ArrayList<>();
+        ByteBuffer frame = null;
+        for (WebSocketChannel channel : channels) {
+            if (unbatched.contains(channel)) continue;
+            if (!channel.isOpen()) {
+                closed.add(channel);
+                continue;
+            }
+
+            ConsoleFilter filter = filters.get(channel);
+            if (filter != null) {
+                send(channel, pending, filter, true);
+                continue;
+            }
+
+            if (frame == null) {
+                frame = encode(pending, true);
+                if (frame == null) break;
+            }
+            sendFrame(channel, frame, pending.get(0).getSequence() - 1);
+        }
+        pending.clear();
+
+        closed.forEach(this::detach);
+    }
+
+    /**
+     * Sends console lines to one channel, e.g. the history of a newly attached client. Channels in batching mode
+     * get them as a single batch. Only the lines that pass the filter of the channel are sent. They are checked
+     * with a copy of the filter, so the decisions for the live lines are not affected
+     *
+     * @param channel The channel
+     * @param lines   The console lines
+     */
+    public synchronized void send(WebSocketChannel channel, List<ConsoleLine> lines) {
+        ConsoleFilter filter = filters.get(channel);
+        send(channel, lines, filter != null ? filter.copy() : null, !unbatched.contains(channel));
+    }
+
+    /**
+     * Sends the console lines that pass a filter to one channel
+     *
+     * @param channel The channel
+     * @param lines   The console lines
+     * @param filter  The filter, or null to send all lines
+     * @param batch   Whether the lines are sent as a single batch or every line as its own frame
+     */
+    private void send(WebSocketChannel channel, List<ConsoleLine> lines, ConsoleFilter filter, boolean batch) {
+        if (filter != null) {
+            List<ConsoleLine> matching = new ArrayList<>();
+            for (ConsoleLine line : lines) {
+                if (filter.matches(line.getMessage())) matching.add(line);
+            }
+            lines = matching;
+        }
+        if (lines.isEmpty()) return;
+
+        if (!batch) {
+            for (ConsoleLine line : lines) {
+                ByteBuffer frame = encode(Collections.singletonList(line), false);
+                if (frame != null) sendFrame(channel, frame, line.getSequence() - 1);
+            }
+            return;
+        }
+
+        ByteBuffer frame = encode(lines, true);
+        if (frame != null) sendFrame(channel, frame, lines.get(0).getSequence() - 1);
+    }
+
+    /**
+     * Sends an encoded frame to a channel. If the client is too far behind, the frame is skipped and the
+     * client gets a 'CONSOLE_GAP' message as soon as it can receive one. Once it got the message, it
+     * receives no further lines until it attaches again with the cursor from the message
+     *
+     * @param channel The channel
+     * @param frame   The encoded frame
+     * @param since   The sequence number of the last line the client has if this frame gets skipped
+     */
+    private void sendFrame(WebSocketChannel channel, ByteBuffer frame, long since) {
+        WebSocketSender sender = WebSocketSender.of(channel);
+
+        Long gap = gaps.get(channel);
+        if (gap == null) {
+            if (sender.send(frame)) return;
+            gap = since;
+            gaps.put(channel, gap);
+        }
+
+        ByteBuffer gapFrame = encodeGap(gap);
+        if (gapFrame != null && sender.send(gapFrame)) {
+            detach(channel);
+        }
+    }
+
+    /**
+     * Serialises console lines into CONSOLE messages
+     *
+     * @param lines The console lines
+     * @param batch Whether the lines are written as a JSON array, otherwise only the first line is written
+     * @return the encoded frame, or null if the lines could not be serialised
+     */
+    private static ByteBuffer encode(List<ConsoleLine> lines, boolean batch) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(lines.size() * 128);
+
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream)) {
+            if (batch) generator.writeStartArray();
+            for (ConsoleLine line : lines) {
+                generator.writeStartObject();
+                generator.writeStringField("event", "CONSOLE");
+                generator.writeNumberField("seq", line.getSequence());
+                generator.writeStringField("message", line.getMessage());
+                generator.writeEndObject();
+                if (!batch) break;
+            }
+            if (batch) generator.writeEndArray();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to encode a console batch", e);
+            return null;
+        }
+
+        return ByteBuffer.wrap(outputStream.toByteArray()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Serialises the message that tells a client that console lines got skipped
+     *
+     * @param since The sequence number of the last line the client has
+     * @return the encoded frame, or null if it could not be serialised
+     */
+    private static ByteBuffer encodeGap(long since) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(64);
+
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeStringField("event", "CONSOLE_GAP");
+            generator.writeNumberField("since", since);
+            generator.writeBooleanField("skipped", true);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to encode a console gap", e);
+            return null;
+        }
+
+        return ByteBuffer.wrap(outputStream.toByteArray()).asReadOnlyBuffer();
+    }
+}
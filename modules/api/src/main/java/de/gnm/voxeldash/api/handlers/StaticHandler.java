@@ -3,60 +3,405 @@ package de.gnm.voxeldash.api.handlers;
 import de.gnm.voxeldash.api.http.ContentType;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
 import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 public class StaticHandler implements HttpHandler {
 
+    private static final Logger LOG = Logger.getLogger("StaticHandler");
+
+    private static final String ROOT = "webui";
+    private static final String INDEX = "/index.html";
+    private static final Pattern HASHED_ASSET = Pattern.compile("^/assets/.+-[A-Za-z0-9_-]{8,}\\.[a-z0-9]+$");
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+
+    private final Map<String, StaticAsset> assets = new ConcurrentHashMap<>();
+    private final boolean indexed;
+
+    /**
+     * Basic constructor of the {@link StaticHandler}. Indexes the web interface bundle
+     */
+    public StaticHandler() {
+        indexed = indexAssets();
+    }
+
     /**
-     * Handles the static request of the client
+     * Handles the static request of the client. Assets are served from memory
+     * directly on the IO thread, so no worker thread is needed
      *
      * @param exchange the exchange containing the request from the client and used to send the response
      * @throws IOException An exception that can occur while reading the request or writing the response
      */
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        if (exchange.isInIoThread()) {
-            exchange.dispatch(this);
+        String path = exchange.getRequestPath();
+        if (path.equals("/")) path = INDEX;
+
+        StaticAsset asset = indexed ? assets.get(path) : null;
+        if (asset == null && !indexed) {
+            if (exchange.isInIoThread()) {
+                exchange.dispatch(this);
+                return;
+            }
+            asset = loadAsset(path);
+        }
+        if (asset == null) asset = assets.get(INDEX);
+        if (asset == null && !indexed) asset = loadAsset(INDEX);
+
+        if (asset == null) {
+            exchange.setStatusCode(StatusCodes.NOT_FOUND);
+            exchange.getResponseSender().send("Not found");
+            return;
+        }
+
+        sendAsset(exchange, asset);
+    }
+
+    /**
+     * Sends an asset in the best encoding the client accepts
+     *
+     * @param exchange the HTTP request/response exchange
+     * @param asset    the asset to send
+     */
+    private void sendAsset(HttpServerExchange exchange, StaticAsset asset) {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst(Headers.ACCEPT_ENCODING);
+
+        ByteBuffer body = asset.raw;
+        String encoding = null;
+        if (asset.brotli != null && accepts(acceptEncoding, "br")) {
+            body = asset.brotli;
+            encoding = "br";
+        } else if (asset.gzip != null && accepts(acceptEncoding, "gzip")) {
+            body = asset.gzip;
+            encoding = "gzip";
+        }
+
+        ETag etag = new ETag(false, encoding == null ? asset.etag : asset.etag + "-" + encoding);
+
+        exchange.getResponseHeaders().put(Headers.ETAG, etag.toString());
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, asset.cacheControl);
+        if (asset.gzip != null || asset.brotli != null) {
+            exchange.getResponseHeaders().put(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+        }
+
+        if (!ETagUtils.handleIfNoneMatch(exchange, etag, false)) {
+            exchange.setStatusCode(StatusCodes.NOT_MODIFIED);
+            exchange.endExchange();
             return;
         }
 
-        exchange.startBlocking();
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, asset.contentType);
+        if (encoding != null) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, encoding);
+        }
 
+        if (exchange.getRequestMethod().equals(Methods.HEAD)) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, body.remaining());
+            exchange.endExchange();
+            return;
+        }
 
-        String path = exchange.getRequestPath();
-        if (path.equals("/")) path = "/index.html";
+        exchange.getResponseSender().send(body.duplicate());
+    }
+
+    /**
+     * Checks if the client accepts a content encoding
+     *
+     * @param acceptEncoding the value of the 'Accept-Encoding' header
+     * @param encoding       the encoding to check
+     * @return true if the encoding is accepted
+     */
+    private static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) return false;
+
+        for (String part : acceptEncoding.split(",")) {
+            String[] parameters = part.trim().split(";");
+            if (!parameters[0].trim().equalsIgnoreCase(encoding)) continue;
+
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=") && isZeroQuality(parameter.substring(2))) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a quality value rejects an encoding. Invalid values are ignored, like an absent parameter
+     *
+     * @param quality the quality value
+     * @return true if the quality is zero
+     */
+    private static boolean isZeroQuality(String quality) {
+        try {
+            return Double.parseDouble(quality.trim()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Indexes all files of the web interface bundle into the asset table
+     *
+     * @return true if the bundle could be enumerated, false if assets need to be looked up on demand
+     */
+    private boolean indexAssets() {
+        URL index = getClass().getClassLoader().getResource(ROOT + INDEX);
+        if (index == null) return true;
+
+        try {
+            URLConnection connection = index.openConnection();
+            if (connection instanceof JarURLConnection) {
+                indexJar(((JarURLConnection) connection).getJarFile());
+            } else if (index.getProtocol().equals("file")) {
+                indexDirectory(Paths.get(URI.create(index.toString().substring(0, index.toString().length() - INDEX.length()))));
+            } else {
+                return false;
+            }
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to index the web interface, falling back to on-demand lookups", e);
+            assets.clear();
+            return false;
+        }
+
+        LOG.info("Indexed " + assets.size() + " web interface assets");
+        return true;
+    }
+
+    /**
+     * Indexes the web interface bundle inside a jar file
+     *
+     * @param jarFile the jar file
+     * @throws IOException if an asset could not be read
+     */
+    private void indexJar(JarFile jarFile) throws IOException {
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (entry.isDirectory() || !entry.getName().startsWith(ROOT + "/")) continue;
 
-        if (getResourceStream("webui" + path) == null) path = "/index.html";
+            String path = entry.getName().substring(ROOT.length());
+            if (isPrecompressed(path)) continue;
 
-        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, ContentType.getContentType(path).getType());
+            try (InputStream inputStream = jarFile.getInputStream(entry)) {
+                assets.put(path, createAsset(path, inputStream.readAllBytes(),
+                        readJarEntry(jarFile, entry.getName() + ".gz"), readJarEntry(jarFile, entry.getName() + ".br")));
+            }
+        }
+    }
 
-        try (InputStream inputStream = getResourceStream("webui" + path)) {
-            if (inputStream != null) {
-                try (OutputStream outputStream = exchange.getOutputStream()) {
-                    byte[] buf = new byte[8192];
-                    int c;
-                    while ((c = inputStream.read(buf, 0, buf.length)) > 0) {
-                        outputStream.write(buf, 0, c);
-                        outputStream.flush();
-                    }
+    /**
+     * Reads an entry of a jar file if it exists
+     *
+     * @param jarFile the jar file
+     * @param name    the name of the entry
+     * @return the content of the entry, or null if it does not exist
+     * @throws IOException if the entry could not be read
+     */
+    private static byte[] readJarEntry(JarFile jarFile, String name) throws IOException {
+        JarEntry entry = jarFile.getJarEntry(name);
+        if (entry == null) return null;
 
-                }
+        try (InputStream inputStream = jarFile.getInputStream(entry)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    /**
+     * Indexes the web interface bundle inside a directory (e.g. when running from an IDE)
+     *
+     * @param root the root directory of the bundle
+     * @throws IOException if an asset could not be read
+     */
+    private void indexDirectory(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String path = "/" + root.relativize(file).toString().replace('\\', '/');
+                if (isPrecompressed(path)) continue;
+
+                Path gzip = file.resolveSibling(file.getFileName() + ".gz");
+                Path brotli = file.resolveSibling(file.getFileName() + ".br");
+
+                assets.put(path, createAsset(path, Files.readAllBytes(file),
+                        Files.exists(gzip) ? Files.readAllBytes(gzip) : null,
+                        Files.exists(brotli) ? Files.readAllBytes(brotli) : null));
             }
         }
+    }
+
+    /**
+     * Loads and caches a single asset through the class loader.
+     * Only used if the bundle could not be enumerated at startup
+     *
+     * @param path the path of the asset
+     * @return the asset, or null if it does not exist
+     */
+    private StaticAsset loadAsset(String path) {
+        StaticAsset cached = assets.get(path);
+        if (cached != null || isPrecompressed(path)) return cached;
+
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(ROOT + path)) {
+            if (inputStream == null) return null;
+
+            StaticAsset asset = createAsset(path, inputStream.readAllBytes(), null, null);
+            assets.put(path, asset);
+            return asset;
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
+    /**
+     * Checks if a path belongs to a precompressed variant of another asset
+     *
+     * @param path the path to check
+     * @return true if the path ends with '.gz' or '.br'
+     */
+    private static boolean isPrecompressed(String path) {
+        return path.endsWith(".gz") || path.endsWith(".br");
     }
 
     /**
-     * Gets the input stream of a resource
+     * Creates an asset with its headers and compressed variants
      *
-     * @param path The path of the resource
-     * @return the input stream of the resource
+     * @param path   the path of the asset
+     * @param raw    the uncompressed content
+     * @param gzip   the precompressed gzip variant from the bundle, or null to compress it here
+     * @param brotli the precompressed brotli variant from the bundle, or null if there is none
+     * @return the asset
+     * @throws IOException if the asset could not be compressed
      */
-    private InputStream getResourceStream(String path) {
-        return getClass().getClassLoader().getResourceAsStream(path);
+    private static StaticAsset createAsset(String path, byte[] raw, byte[] gzip, byte[] brotli) throws IOException {
+        ContentType contentType = ContentType.getContentType(path);
+
+        if (gzip == null && isCompressible(contentType)) {
+            byte[] compressed = gzip(raw);
+            if (compressed.length < raw.length) gzip = compressed;
+        }
+
+        return new StaticAsset(
+                contentType.getType(),
+                hash(raw),
+                HASHED_ASSET.matcher(path).matches() ? IMMUTABLE : REVALIDATE,
+                toBuffer(raw),
+                gzip != null ? toBuffer(gzip) : null,
+                brotli != null ? toBuffer(brotli) : null
+        );
+    }
+
+    /**
+     * Checks if compressing a content type is worth it
+     *
+     * @param contentType the content type
+     * @return true for text based content types
+     */
+    private static boolean isCompressible(ContentType contentType) {
+        switch (contentType) {
+            case PNG:
+            case JPEG:
+            case WOFF2:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Compresses data with gzip using the best compression level
+     *
+     * @param data the data to compress
+     * @return the compressed data
+     * @throws IOException if the data could not be compressed
+     */
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 2);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream) {{
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }}) {
+            gzipStream.write(data);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Creates a strong entity tag from the content of an asset
+     *
+     * @param data the content of the asset
+     * @return the entity tag
+     */
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copies data into a read-only direct buffer, so it can be written to the socket without another copy
+     *
+     * @param data the data
+     * @return the buffer
+     */
+    private static ByteBuffer toBuffer(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * An indexed asset of the web interface with its precomputed headers and variants
+     */
+    private static class StaticAsset {
+        private final String contentType;
+        private final String etag;
+        private final String cacheControl;
+        private final ByteBuffer raw;
+        private final ByteBuffer gzip;
+        private final ByteBuffer brotli;
+
+        private StaticAsset(String contentType, String etag, String cacheControl, ByteBuffer raw, ByteBuffer gzip, ByteBuffer brotli) {
+            this.contentType = contentType;
+            this.etag = etag;
+            this.cacheControl = cacheControl;
+            this.raw = raw;
+            this.gzip = gzip;
+            this.brotli = brotli;
+        }
     }
 }
@@ -2,62 +2,167 @@ package de.gnm.voxeldash.api.handlers;
 
 import de.gnm.voxeldash.VoxelDashLoader;
 import de.gnm.voxeldash.api.event.BaseEvent;
+import de.gnm.voxeldash.api.event.EventDispatcher;
+import de.gnm.voxeldash.api.event.EventSubscription;
+import de.gnm.voxeldash.api.event.OverflowPolicy;
 import io.undertow.websockets.core.WebSocketChannel;
-import io.undertow.websockets.core.WebSockets;
+import org.xnio.IoUtils;
 
-import java.util.function.Consumer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
+/**
+ * Broadcasts an event type to all websocket channels that attached to it. The handler subscribes to the
+ * event only once, encodes every event once and fans the encoded frame out to all channels.
+ * Channels can have a filter, which is checked before the event gets encoded.
+ *
+ * @param <T> The type of the event
+ */
 public class WebSocketEventHandler<T extends BaseEvent> {
     private final Class<T> eventClass;
     private final Function<T, String> messageConverter;
-    private Consumer<T> activeListener;
-    private WebSocketChannel channel;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Set<WebSocketChannel> channels = new CopyOnWriteArraySet<>();
+    private final Map<WebSocketChannel, Predicate<T>> filters = new ConcurrentHashMap<>();
+    private EventDispatcher eventDispatcher;
+    private EventSubscription<T> subscription;
 
     /**
-     * Basic constructor of the {@link WebSocketEventHandler}
+     * Basic constructor of the {@link WebSocketEventHandler}.
+     * Skips events for clients that can't keep up
      * @param eventClass The event class
      * @param messageConverter The message converter
      */
     public WebSocketEventHandler(Class<T> eventClass, Function<T, String> messageConverter) {
+        this(eventClass, messageConverter, EventDispatcher.DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Constructor of the {@link WebSocketEventHandler} with a custom queue
+     * @param eventClass The event class
+     * @param messageConverter The message converter
+     * @param capacity The maximum amount of events queued for the broadcast
+     * @param overflowPolicy What to do if the broadcast or a client can't keep up. {@link OverflowPolicy#DISCONNECT}
+     *                       closes the channels of clients that are too far behind
+     */
+    public WebSocketEventHandler(Class<T> eventClass, Function<T, String> messageConverter, int capacity, OverflowPolicy overflowPolicy) {
         this.eventClass = eventClass;
         this.messageConverter = messageConverter;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Gets the class of the event that gets broadcast
+     * @return the event class
+     */
+    public Class<T> getEventClass() {
+        return eventClass;
     }
 
     /**
-     * Attaches the event handler to the given channel
+     * Attaches the given channel to the broadcast. The first channel subscribes the handler to the event
      * @param channel The channel
      * @param loader The loader
      */
     public void attach(WebSocketChannel channel, VoxelDashLoader loader) {
-        if (activeListener != null) {
-            detach(loader);
+        attach(channel, loader, null);
+    }
+
+    /**
+     * Attaches the given channel to the broadcast with a filter. The first channel subscribes the handler to the event
+     * @param channel The channel
+     * @param loader The loader
+     * @param filter The events the channel receives, or null for all events
+     */
+    public void attach(WebSocketChannel channel, VoxelDashLoader loader, Predicate<T> filter) {
+        attach(channel, loader, filter, null);
+    }
+
+    /**
+     * Attaches the given channel to the broadcast with a filter. The initializer runs while no event can be
+     * broadcast, so everything it sends (e.g. the history) reaches the client before the first event
+     * @param channel The channel
+     * @param loader The loader
+     * @param filter The events the channel receives, or null for all events
+     * @param initializer Runs before the channel receives its first event, may be null
+     */
+    public synchronized void attach(WebSocketChannel channel, VoxelDashLoader loader, Predicate<T> filter, Runnable initializer) {
+        if (filter != null) {
+            filters.put(channel, filter);
+        } else {
+            filters.remove(channel);
         }
+        if (initializer != null) initializer.run();
+        channels.add(channel);
 
-        this.channel = channel;
-        this.activeListener = event -> sendMessage(messageConverter.apply(event));
-        loader.getEventDispatcher().registerListener(eventClass, activeListener);
+        if (subscription == null) {
+            OverflowPolicy queuePolicy = overflowPolicy == OverflowPolicy.DISCONNECT ? OverflowPolicy.DROP_OLDEST : overflowPolicy;
+            eventDispatcher = loader.getEventDispatcher();
+            subscription = eventDispatcher.subscribe(eventClass, this::broadcast, capacity, queuePolicy, null);
+        }
     }
 
     /**
-     * Detaches the event handler from the given channel
+     * Detaches the given channel from the broadcast. The last channel unsubscribes the handler from the event
+     * @param channel The channel
      * @param loader The loader
      */
-    public void detach(VoxelDashLoader loader) {
-        if (activeListener != null) {
-            loader.getEventDispatcher().unregisterListener(eventClass, activeListener);
-            activeListener = null;
-            channel = null;
+    public void detach(WebSocketChannel channel, VoxelDashLoader loader) {
+        remove(channel);
+    }
+
+    /**
+     * Removes a channel from the broadcast. The last channel unsubscribes the handler from the event
+     * @param channel The channel
+     */
+    private synchronized void remove(WebSocketChannel channel) {
+        channels.remove(channel);
+        filters.remove(channel);
+
+        if (channels.isEmpty() && subscription != null) {
+            eventDispatcher.unsubscribe(subscription);
+            subscription = null;
         }
     }
 
     /**
-     * Sends a message to the channel
-     * @param message The message
+     * Encodes an event once and sends it to all attached channels whose filter accepts it.
+     * The event is not encoded at all if no channel wants it. Channels that got closed without
+     * detaching are removed. Runs under the lock of the handler, so it never overtakes an initializer
+     * @param event The event
      */
-    private void sendMessage(String message) {
-        if (message != null && channel != null && channel.isOpen()) {
-            WebSockets.sendText(message, channel, null);
+    private synchronized void broadcast(T event) {
+        if (channels.isEmpty()) return;
+
+        ByteBuffer frame = null;
+
+        for (WebSocketChannel channel : channels) {
+            if (!channel.isOpen()) {
+                remove(channel);
+                continue;
+            }
+
+            Predicate<T> filter = filters.get(channel);
+            if (filter != null && !filter.test(event)) continue;
+
+            if (frame == null) {
+                String message = messageConverter.apply(event);
+                if (message == null) return;
+                frame = ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+            }
+
+            if (!WebSocketSender.of(channel).send(frame) && overflowPolicy == OverflowPolicy.DISCONNECT) {
+                remove(channel);
+                IoUtils.safeClose(channel);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,37 @@
 package de.gnm.voxeldash.api.handlers;
 
 import de.gnm.voxeldash.VoxelDashLoader;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import de.gnm.voxeldash.api.controller.SessionController;
+import de.gnm.voxeldash.api.entities.OnlinePlayer;
+import de.gnm.voxeldash.api.entities.World;
+import de.gnm.voxeldash.api.entities.widget.WidgetUpdate;
+import de.gnm.voxeldash.api.event.StateChangedEvent;
+import de.gnm.voxeldash.api.event.players.PlayersChangedEvent;
+import de.gnm.voxeldash.api.event.widgets.WidgetsChangedEvent;
+import de.gnm.voxeldash.api.event.worlds.WorldsChangedEvent;
+import de.gnm.voxeldash.api.helper.JsonWriterHelper;
 import io.undertow.websockets.WebSocketConnectionCallback;
 import io.undertow.websockets.core.WebSocketChannel;
 import io.undertow.websockets.spi.WebSocketHttpExchange;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class WebSocketHandler implements WebSocketConnectionCallback {
 
+    private static final Logger LOG = Logger.getLogger("WebSocketHandler");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private final VoxelDashLoader loader;
+    private final Map<String, WebSocketEventHandler<?>> eventHandlers = new ConcurrentHashMap<>();
+    private ConsoleBatcher consoleBatcher;
 
     /**
      * Basic constructor of the {@link WebSocketHandler}
@@ -19,6 +40,103 @@ public class WebSocketHandler implements WebSocketConnectionCallback {
      */
     public WebSocketHandler(VoxelDashLoader loader) {
         this.loader = loader;
+        initializeEventHandlers();
+    }
+
+    /**
+     * Initializes the event handlers. They are shared by all channels, so every event only gets encoded once.
+     * The console is not an event handler, it gets sent by the {@link ConsoleBatcher}
+     */
+    private void initializeEventHandlers() {
+        registerEventHandler("PLAYERS", new WebSocketEventHandler<>(
+                PlayersChangedEvent.class,
+                event -> createStateMessage("PLAYERS", event, json -> {
+                    json.writeArrayFieldStart("players");
+                    for (OnlinePlayer player : event.getPlayers()) {
+                        JsonWriterHelper.writeOnlinePlayer(json, player);
+                    }
+                    json.writeEndArray();
+
+                    json.writeArrayFieldStart("removed");
+                    for (UUID uuid : event.getRemoved()) {
+                        json.writeString(uuid.toString());
+                    }
+                    json.writeEndArray();
+                })
+        ));
+        registerEventHandler("WORLDS", new WebSocketEventHandler<>(
+                WorldsChangedEvent.class,
+                event -> createStateMessage("WORLDS", event, json -> {
+                    json.writeArrayFieldStart("worlds");
+                    for (World world : event.getWorlds()) {
+                        JsonWriterHelper.writeWorld(json, world);
+                    }
+                    json.writeEndArray();
+
+                    json.writeArrayFieldStart("removed");
+                    for (String name : event.getRemoved()) {
+                        json.writeString(name);
+                    }
+                    json.writeEndArray();
+                })
+        ));
+        registerEventHandler("WIDGETS", new WebSocketEventHandler<>(
+                WidgetsChangedEvent.class,
+                event -> createStateMessage("WIDGETS", event, json -> {
+                    json.writeArrayFieldStart("widgets");
+                    for (WidgetUpdate update : event.getWidgets()) {
+                        if (event.isFull()) {
+                            JsonWriterHelper.writeWidget(json, update.getWidget(), update.getData(), update.getMetadata());
+                            continue;
+                        }
+                        json.writeStartObject();
+                        json.writeStringField("id", update.getWidget().getId());
+                        json.writeNumberField("size", update.getDataSize());
+                        JsonWriterHelper.writeWidgetData(json, update.getData(), update.getMetadata());
+                        json.writeEndObject();
+                    }
+                    json.writeEndArray();
+                })
+        ));
+    }
+
+    /**
+     * Creates a JSON message for a state change. Receivers that see a gap in the revisions
+     * need to attach again to get the full state
+     *
+     * @param eventType The event type
+     * @param event     The state change
+     * @param writer    Writes the changes into the message
+     * @return The JSON message, or null if it could not be created
+     */
+    private static String createStateMessage(String eventType, StateChangedEvent event, StateWriter writer) {
+        StringWriter output = new StringWriter();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(output)) {
+            json.writeStartObject();
+            json.writeStringField("event", eventType);
+            json.writeNumberField("revision", event.getRevision());
+            json.writeBooleanField("full", event.isFull());
+            writer.write(json);
+            json.writeEndObject();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to encode a " + eventType + " message", e);
+            return null;
+        }
+        return output.toString();
+    }
+
+    private interface StateWriter {
+        void write(JsonGenerator json) throws IOException;
+    }
+
+    /**
+     * Registers an event handler with the given name
+     *
+     * @param name    The name
+     * @param handler The handler
+     */
+    public void registerEventHandler(String name, WebSocketEventHandler<?> handler) {
+        eventHandlers.put(name, handler);
     }
 
     /**
@@ -38,15 +156,41 @@ public class WebSocketHandler implements WebSocketConnectionCallback {
 
         String sessionToken = exchange.getRequestParameters().get("sessionToken").get(0);
 
-        if (!sessionController.isValidToken(sessionToken)) {
+        int userId = sessionController.getUserIdByToken(sessionToken);
+        if (userId == -1) {
             closeSession(channel, 4002, "Invalid session token");
             return;
         }
 
-        channel.getReceiveSetter().set(new WebSocketReceiver(loader));
+        WebSocketReceiver receiver = new WebSocketReceiver(loader, userId, eventHandlers, getConsoleBatcher());
+        channel.addCloseTask(receiver::detachAll);
+        channel.getReceiveSetter().set(receiver);
         channel.resumeReceives();
     }
 
+    /**
+     * Gets the batcher shared by all channels that receive the console
+     *
+     * @return the console batcher
+     */
+    private synchronized ConsoleBatcher getConsoleBatcher() {
+        if (consoleBatcher == null) {
+            consoleBatcher = new ConsoleBatcher(loader.getConsoleHistory(), ConsoleBatcher.DEFAULT_FLUSH_WINDOW,
+                    ConsoleBatcher.DEFAULT_MAX_LINES);
+        }
+        return consoleBatcher;
+    }
+
+    /**
+     * Releases the console batcher, so that its thread does not survive a reload
+     */
+    public synchronized void close() {
+        if (consoleBatcher != null) {
+            consoleBatcher.close();
+            consoleBatcher = null;
+        }
+    }
+
     /**
      * Closes the session with the given code and reason.
      *
@@ -4,46 +4,56 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.gnm.voxeldash.VoxelDashLoader;
-import de.gnm.voxeldash.api.event.console.ConsoleMessageReceivedEvent;
+import de.gnm.voxeldash.api.controller.ConsoleHistory;
+import de.gnm.voxeldash.api.controller.PermissionController;
+import de.gnm.voxeldash.api.entities.ConsoleLine;
+import de.gnm.voxeldash.api.entities.Feature;
+import de.gnm.voxeldash.api.helper.ConsoleFilter;
 import io.undertow.websockets.core.*;
-import org.apache.commons.io.input.ReversedLinesFileReader;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class WebSocketReceiver extends AbstractReceiveListener {
     private static final String EVENT_TYPE_ATTACH = "ATTACH";
     private static final String EVENT_TYPE_DETACH = "DETACH";
     private static final int MAX_LOG_LINES = 500;
 
-    private final ObjectMapper mapper = new ObjectMapper();
-    private final Map<String, WebSocketEventHandler<?>> eventHandlers = new HashMap<>();
+    /**
+     * The features a user needs read access to before a channel can be attached. Channels that are
+     * not listed here don't need any feature
+     */
+    private static final Map<String, Feature> CHANNEL_FEATURES = Map.of(
+            "CONSOLE", Feature.Console,
+            "PLAYERS", Feature.Players,
+            "WORLDS", Feature.Worlds
+    );
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, WebSocketEventHandler<?>> eventHandlers;
+    private final Set<String> attachedHandlers = ConcurrentHashMap.newKeySet();
     private final VoxelDashLoader loader;
+    private final int userId;
+    private final ConsoleBatcher consoleBatcher;
 
     /**
      * Basic constructor of the {@link WebSocketReceiver}
      *
-     * @param loader The loader
+     * @param loader         The loader
+     * @param userId         The id of the user the session belongs to
+     * @param eventHandlers  The event handlers shared by all channels, by name
+     * @param consoleBatcher The batcher that sends the console to all clients
      */
-    public WebSocketReceiver(VoxelDashLoader loader) {
+    public WebSocketReceiver(VoxelDashLoader loader, int userId, Map<String, WebSocketEventHandler<?>> eventHandlers, ConsoleBatcher consoleBatcher) {
         this.loader = loader;
-        initializeEventHandlers();
-    }
-
-    /**
-     * Initializes the event handlers
-     */
-    private void initializeEventHandlers() {
-        registerEventHandler("CONSOLE", new WebSocketEventHandler<>(
-                ConsoleMessageReceivedEvent.class,
-                event -> createEventMessage("CONSOLE", event.getMessage())
-        ));
+        this.userId = userId;
+        this.eventHandlers = eventHandlers;
+        this.consoleBatcher = consoleBatcher;
     }
 
     /**
@@ -53,59 +63,41 @@ public class WebSocketReceiver extends AbstractReceiveListener {
      * @param message   The message
      * @return The JSON message
      */
-    private String createEventMessage(String eventType, String message) {
+    static String createEventMessage(String eventType, String message) {
         try {
-            ObjectNode node = mapper.createObjectNode()
+            ObjectNode node = MAPPER.createObjectNode()
                     .put("event", eventType)
                     .put("message", message);
-            return mapper.writeValueAsString(node);
+            return MAPPER.writeValueAsString(node);
         } catch (IOException e) {
             return null;
         }
     }
 
     /**
-     * Initializes the console history for the given channel
+     * Sends the console lines the client is missing to the given channel. Batching clients get them as a single frame.
+     * Runs while the channel gets attached, before it receives any live lines.
+     * If lines after the cursor of the client are no longer available, a 'CONSOLE_GAP' message is sent first
+     * and the client gets the recent history instead
      *
      * @param channel The channel
-     * @throws IOException If an error occurs while reading the log file
+     * @param since   The sequence number of the last line the client already has, or 0 for the recent history
      */
-    private void initializeConsoleHistory(WebSocketChannel channel) throws IOException {
-        File logFile = loader.getLogFile();
-        if (!logFile.exists()) {
-            return;
-        }
+    private void initializeConsoleHistory(WebSocketChannel channel, long since) {
+        ConsoleHistory history = loader.getConsoleHistory();
 
-        try (ReversedLinesFileReader reader = ReversedLinesFileReader.builder()
-                .setFile(logFile)
-                .setCharset(StandardCharsets.UTF_8)
-                .get()) {
-            List<String> lastLines = new ArrayList<>();
-            String line;
-            int count = 0;
-
-            while ((line = reader.readLine()) != null && count < MAX_LOG_LINES) {
-                lastLines.add(0, line);
-                count++;
-            }
-
-            for (String logLine : lastLines) {
-                String message = createEventMessage("CONSOLE", logLine);
-                if (message != null) {
-                    WebSockets.sendText(message, channel, null);
-                }
-            }
+        if (history.hasGap(since)) {
+            ObjectNode gap = MAPPER.createObjectNode()
+                    .put("event", "CONSOLE_GAP")
+                    .put("since", since)
+                    .put("oldest", history.getOldestSequence());
+            WebSockets.sendText(gap.toString(), channel, null);
+            since = 0;
         }
-    }
 
-    /**
-     * Registers an event handler with the given name
-     *
-     * @param name    The name
-     * @param handler The handler
-     */
-    private void registerEventHandler(String name, WebSocketEventHandler<?> handler) {
-        eventHandlers.put(name, handler);
+        int limit = since > 0 ? ConsoleHistory.DEFAULT_CAPACITY : MAX_LOG_LINES;
+        List<ConsoleLine> lines = history.getSince(since, limit);
+        consoleBatcher.send(channel, lines);
     }
 
     /**
@@ -118,7 +110,7 @@ public class WebSocketReceiver extends AbstractReceiveListener {
     @Override
     protected void onFullTextMessage(WebSocketChannel channel, BufferedTextMessage message) throws IOException {
         try {
-            JsonNode jsonNode = mapper.readTree(message.getData());
+            JsonNode jsonNode = MAPPER.readTree(message.getData());
             handleWebSocketMessage(channel, jsonNode);
         } catch (IOException e) {
             sendErrorMessage(channel, "Invalid JSON format");
@@ -141,9 +133,20 @@ public class WebSocketReceiver extends AbstractReceiveListener {
                 .map(JsonNode::asText)
                 .orElseThrow(() -> new IOException("Missing event name"));
 
+        boolean batch = jsonNode.path("batch").asBoolean(false);
+        long since = jsonNode.path("since").asLong(0);
+
+        ConsoleFilter filter;
+        try {
+            filter = ConsoleFilter.fromJson(jsonNode.get("filter"));
+        } catch (IllegalArgumentException e) {
+            sendErrorMessage(channel, "Invalid console filter: " + e.getMessage());
+            return;
+        }
+
         switch (eventType) {
-            case EVENT_TYPE_ATTACH -> handleAttach(channel, eventName);
-            case EVENT_TYPE_DETACH -> handleDetach(eventName);
+            case EVENT_TYPE_ATTACH -> handleAttach(channel, eventName, batch, since, filter);
+            case EVENT_TYPE_DETACH -> handleDetach(channel, eventName);
             default -> sendErrorMessage(channel, "Invalid event type");
         }
     }
@@ -153,26 +156,53 @@ public class WebSocketReceiver extends AbstractReceiveListener {
      *
      * @param channel The channel
      * @param name    The name
+     * @param batch   Whether the client wants to receive the console as batched JSON array frames
+     * @param since   The sequence number of the last console line the client already has, or 0 if it has none
+     * @param filter  The console lines the client wants to receive, or null for all lines
      * @throws IOException If an error occurs while handling the event
      */
-    private void handleAttach(WebSocketChannel channel, String name) throws IOException {
+    private void handleAttach(WebSocketChannel channel, String name, boolean batch, long since, ConsoleFilter filter) throws IOException {
+        Feature feature = CHANNEL_FEATURES.get(name);
+        if (feature != null && !loader.getAvailableFeatures().contains(feature)) {
+            sendErrorMessage(channel, "Feature not available on this server: " + name);
+            return;
+        }
+        if (feature != null && !loader.getController(PermissionController.class).hasReadAccess(userId, feature)) {
+            sendErrorMessage(channel, "Access denied. Insufficient permissions: " + name);
+            return;
+        }
+
+        if ("CONSOLE".equals(name)) {
+            consoleBatcher.detach(channel);
+            consoleBatcher.attach(channel, filter, batch, () -> initializeConsoleHistory(channel, since));
+            return;
+        }
+
         WebSocketEventHandler<?> handler = getEventHandler(name);
         handler.attach(channel, loader);
+        attachedHandlers.add(name);
 
-        if ("CONSOLE".equals(name)) {
-            initializeConsoleHistory(channel);
+        if (loader.getLiveStateTracker() != null) {
+            loader.getLiveStateTracker().requestFullState(handler.getEventClass());
         }
     }
 
     /**
      * Handles the 'detach' event
      *
-     * @param name The name
+     * @param channel The channel
+     * @param name    The name
      * @throws IOException If an error occurs while handling the event
      */
-    private void handleDetach(String name) throws IOException {
+    private void handleDetach(WebSocketChannel channel, String name) throws IOException {
+        if ("CONSOLE".equals(name)) {
+            consoleBatcher.detach(channel);
+            return;
+        }
+
         WebSocketEventHandler<?> handler = getEventHandler(name);
-        handler.detach(loader);
+        handler.detach(channel, loader);
+        attachedHandlers.remove(name);
     }
 
     /**
@@ -202,13 +232,27 @@ public class WebSocketReceiver extends AbstractReceiveListener {
     }
 
     /**
-     * Called when a new WebSocket connection is established.
+     * Called when the client sends a close frame
      *
      * @param webSocketChannel The channel
      * @param channel          The channel
      */
     @Override
     protected void onClose(WebSocketChannel webSocketChannel, StreamSourceFrameChannel channel) {
-        eventHandlers.values().forEach(handler -> handler.detach(loader));
+        detachAll(webSocketChannel);
+    }
+
+    /**
+     * Detaches the channel from all broadcasts and the console batcher. Also runs if the connection
+     * got closed without a close frame, e.g. if the client lost its network connection
+     *
+     * @param channel The channel
+     */
+    void detachAll(WebSocketChannel channel) {
+        consoleBatcher.detach(channel);
+        for (String name : attachedHandlers) {
+            eventHandlers.get(name).detach(channel, loader);
+        }
+        attachedHandlers.clear();
     }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package de.gnm.voxeldash.api.handlers;
+
+import io.undertow.websockets.core.WebSocketCallback;
+import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.core.WebSockets;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends shared, already encoded frames to a websocket channel while keeping track of how many bytes
+ * are still waiting to be written. Frames for a client that can't keep up are skipped instead of
+ * being buffered without limit.
+ */
+public class WebSocketSender {
+
+    public static final long MAX_PENDING_BYTES = 1024 * 1024;
+
+    private static final String ATTRIBUTE = WebSocketSender.class.getName();
+
+    private final WebSocketChannel channel;
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong skippedFrames = new AtomicLong();
+
+    /**
+     * Basic constructor of the {@link WebSocketSender}
+     *
+     * @param channel The channel
+     */
+    private WebSocketSender(WebSocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Gets the sender of a channel. All senders of a channel share the same backpressure state
+     *
+     * @param channel The channel
+     * @return the sender of the channel
+     */
+    public static WebSocketSender of(WebSocketChannel channel) {
+        synchronized (channel) {
+            WebSocketSender sender = (WebSocketSender) channel.getAttribute(ATTRIBUTE);
+            if (sender == null) {
+                sender = new WebSocketSender(channel);
+                channel.setAttribute(ATTRIBUTE, sender);
+            }
+            return sender;
+        }
+    }
+
+    /**
+     * Sends a text frame. The frame is shared between channels, so only a view of it is handed to the channel
+     *
+     * @param frame The encoded frame
+     * @return true if the frame got sent, false if the channel is closed or too far behind
+     */
+    public boolean send(ByteBuffer frame) {
+        if (!channel.isOpen()) return false;
+
+        long size = frame.remaining();
+        if (pendingBytes.get() >= MAX_PENDING_BYTES) {
+            skippedFrames.incrementAndGet();
+            return false;
+        }
+
+        pendingBytes.addAndGet(size);
+        WebSockets.sendText(frame.duplicate(), channel, new WebSocketCallback<Void>() {
+            @Override
+            public void complete(WebSocketChannel channel, Void context) {
+                pendingBytes.addAndGet(-size);
+            }
+
+            @Override
+            public void onError(WebSocketChannel channel, Void context, Throwable throwable) {
+                pendingBytes.addAndGet(-size);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Gets the amount of bytes that are waiting to be written to the client
+     *
+     * @return the amount of pending bytes
+     */
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * Gets the amount of frames that got skipped because the client was too slow
+     *
+     * @return the amount of skipped frames
+     */
+    public long getSkippedFrames() {
+        return skippedFrames.get();
+    }
+}
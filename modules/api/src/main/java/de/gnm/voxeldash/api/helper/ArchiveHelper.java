@@ -1,64 +1,42 @@
 package de.gnm.voxeldash.api.helper;
 
-import java.io.*;
-import java.nio.file.Files;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 
 public class ArchiveHelper {
 
-    private static final int BUFFER_SIZE = 8192;
-
-    public static InputStream createZipStream(File folder) throws IOException {
+    /**
+     * Writes a folder as a zip archive while walking through it. The files are compressed in parallel
+     * and written in order, large files with a data descriptor, so the archive never needs to be seeked
+     * and no temporary file is created
+     *
+     * @param folder The folder to archive. Its name is the root of all entries
+     * @param out    The stream the archive gets written to. It is closed once the archive is written
+     * @throws IOException if the folder does not exist, a file could not be read or the archive could not be written
+     */
+    public static void writeZip(File folder, OutputStream out) throws IOException {
         if (!folder.exists() || !folder.isDirectory()) {
             throw new IOException("Folder does not exist or is not a directory");
         }
 
-        File tempFile = File.createTempFile("voxeldash_folder_", ".zip");
-        tempFile.deleteOnExit();
-
-        try (ZipOutputStream zipOut = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
-            zipOut.setLevel(6);
-            zipDirectory(folder, folder.getName(), zipOut);
+        try (ParallelZipWriter zipWriter = new ParallelZipWriter(out)) {
+            zipDirectory(folder, folder.getName(), zipWriter);
         }
-
-        return new FilterInputStream(new BufferedInputStream(Files.newInputStream(tempFile.toPath()))) {
-            @Override
-            public void close() throws IOException {
-                try {
-                    super.close();
-                } finally {
-                    tempFile.delete();
-                }
-            }
-        };
     }
 
-    private static void zipDirectory(File directory, String parentPath, ZipOutputStream zipOut) throws IOException {
+    private static void zipDirectory(File directory, String parentPath, ParallelZipWriter zipWriter) throws IOException {
         File[] files = directory.listFiles();
         if (files == null) return;
 
         for (File file : files) {
             String entryPath = parentPath.isEmpty() ? file.getName() : parentPath + "/" + file.getName();
             if (file.isDirectory()) {
-                zipOut.putNextEntry(new ZipEntry(entryPath + "/"));
-                zipOut.closeEntry();
-                zipDirectory(file, entryPath, zipOut);
+                zipWriter.addDirectory(entryPath, file.lastModified());
+                zipDirectory(file, entryPath, zipWriter);
             } else {
-                zipFile(file, entryPath, zipOut);
-            }
-        }
-    }
-
-    private static void zipFile(File file, String entryName, ZipOutputStream zipOut) throws IOException {
-        zipOut.putNextEntry(new ZipEntry(entryName));
-        try (BufferedInputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                zipOut.write(buffer, 0, bytesRead);
+                zipWriter.addFile(file, entryPath);
             }
         }
-        zipOut.closeEntry();
     }
 }
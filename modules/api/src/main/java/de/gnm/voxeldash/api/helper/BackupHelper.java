@@ -1,5 +1,6 @@
 package de.gnm.voxeldash.api.helper;
 
+import de.gnm.voxeldash.api.entities.BackupCodec;
 import de.gnm.voxeldash.api.entities.BackupPart;
 import org.apache.commons.io.FileUtils;
 
@@ -8,14 +9,19 @@ import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Objects;
+import java.util.Collection;
+import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 public class BackupHelper {
 
+    private static final Logger LOG = Logger.getLogger("BackupHelper");
+    private static final String[] BACKUP_EXTENSIONS = {"zip", BackupStore.MANIFEST_EXTENSION};
+
     private final File backupFolder;
+    private final File gcPendingFile;
+    private final BackupStore store;
 
     /**
      * Basic constructor of the {@link BackupHelper}
@@ -24,6 +30,8 @@ public class BackupHelper {
      */
     public BackupHelper(File backupFolder) {
         this.backupFolder = backupFolder;
+        this.gcPendingFile = new File(backupFolder, "store/gc-pending");
+        this.store = new BackupStore(backupFolder);
         if (!backupFolder.exists()) {
             backupFolder.mkdirs();
         }
@@ -67,73 +75,157 @@ public class BackupHelper {
     }
 
     /**
-     * Zips a directory
+     * Creates a new incremental backup with the {@link BackupCodec#DEFAULT} codec
      *
-     * @param directory       The directory to zip
-     * @param parent          The parent of the directory
-     * @param zipOutputStream The zip output stream
-     * @throws IOException An exception that can occur while executing the code
+     * @param modeSuffix The modes of the backup
+     * @param paths      The paths to back up
+     * @throws IOException An exception that will be thrown if the backup could not be created
      */
-    private void zipDirectory(File directory, String parent, ZipOutputStream zipOutputStream) throws IOException {
-        if (directory.getName().equals(backupFolder.getName())) return;
+    public void createBackup(String modeSuffix, File... paths) throws IOException {
+        createBackup(modeSuffix, BackupCodec.DEFAULT, paths);
+    }
 
-        for (File file : Objects.requireNonNull(directory.listFiles())) {
-            String entryName = parent + "/" + file.getName();
-            if (file.isDirectory()) {
-                zipDirectory(file, entryName, zipOutputStream);
-            } else {
-                zipFile(file, entryName, zipOutputStream);
-            }
+    /**
+     * Creates a new incremental backup. Only the files that changed since they were last backed up are read,
+     * and only the chunks that are not stored yet are compressed and written, see {@link BackupStore}
+     *
+     * @param modeSuffix The modes of the backup
+     * @param codec      The compression of the new chunks
+     * @param paths      The paths to back up
+     * @throws IOException An exception that will be thrown if the backup could not be created
+     */
+    public void createBackup(String modeSuffix, BackupCodec codec, File... paths) throws IOException {
+        File tempBackupFile;
+        synchronized (BackupStore.getLock()) {
+            if (isTempBackupCreated()) return;
+
+            tempBackupFile = new File(backupFolder, System.currentTimeMillis() + "-" + modeSuffix + "_tmp." + BackupStore.MANIFEST_EXTENSION);
+            tempBackupFile.createNewFile();
+        }
+
+        try {
+            store.create(tempBackupFile, getLatestIncrementalBackup(modeSuffix), paths,
+                    directory -> directory.getName().equals(backupFolder.getName()), codec);
+
+            File finalBackupFile = new File(backupFolder, System.currentTimeMillis() + "-" + modeSuffix + "." + BackupStore.MANIFEST_EXTENSION);
+            Files.move(tempBackupFile.toPath(), finalBackupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempBackupFile.toPath());
+        }
+
+        if (gcPendingFile.exists()) {
+            collectGarbage();
         }
     }
 
     /**
-     * Writes a file to a zip output stream
+     * Creates a backup for the 'backup' schedule action
      *
-     * @param file            The file to write
-     * @param entryName       The entry name of the file
-     * @param zipOutputStream The zip output stream
-     * @throws IOException An exception that can occur while executing the code
+     * @param metadata The metadata of the action: the backup bit (0 for everything), optionally followed
+     *                 by a codec as accepted by {@link BackupCodec#parse(String)}, e.g. '6 deflate:1'.
+     *                 An invalid bit backs up everything and an invalid codec uses {@link BackupCodec#DEFAULT}
+     * @throws IOException An exception that will be thrown if the backup could not be created
      */
-    private void zipFile(File file, String entryName, ZipOutputStream zipOutputStream) throws IOException {
-        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
-            zipOutputStream.putNextEntry(new ZipEntry(entryName));
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                zipOutputStream.write(buffer, 0, bytesRead);
+    public void createScheduledBackup(String metadata) throws IOException {
+        String[] parts = metadata != null ? metadata.trim().split("\\s+", 2) : new String[0];
+
+        int backupBit = 0;
+        if (parts.length > 0 && !parts[0].isEmpty()) {
+            try {
+                backupBit = Integer.parseInt(parts[0]);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        BackupCodec codec = BackupCodec.DEFAULT;
+        if (parts.length > 1) {
+            try {
+                codec = BackupCodec.parse(parts[1]);
+            } catch (IllegalArgumentException e) {
+                LOG.warning(e.getMessage() + ", using " + codec + " for the scheduled backup");
             }
-            zipOutputStream.closeEntry();
         }
+
+        createBackup(String.valueOf(backupBit), codec, getBackupDirectories(backupBit).toArray(new File[0]));
     }
 
     /**
-     * Creates a new backup
+     * Gets the newest incremental backup with the given modes
      *
      * @param modeSuffix The modes of the backup
-     * @param paths      The paths to back up
-     * @throws IOException An exception that will be thrown if the backup could not be created
+     * @return the manifest of the backup, or null if there is none
      */
-    public void createBackup(String modeSuffix, File... paths) throws IOException {
-        if (isTempBackupCreated()) return;
-
-        String tempFileName = System.currentTimeMillis() + "-" + modeSuffix + "_tmp.zip";
-        File tempBackupFile = new File(backupFolder, tempFileName);
-
-        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(tempBackupFile.toPath()))) {
-            for (File path : paths) {
-                if (path.exists()) {
-                    if (path.isDirectory()) {
-                        zipDirectory(path, path.getName(), zipOutputStream);
-                    } else {
-                        zipFile(path, path.getName(), zipOutputStream);
-                    }
-                }
+    private File getLatestIncrementalBackup(String modeSuffix) {
+        File latest = null;
+        for (File backup : getBackups()) {
+            if (isIncremental(backup) && backup.getName().endsWith("-" + modeSuffix + "." + BackupStore.MANIFEST_EXTENSION)) {
+                latest = backup;
             }
         }
+        return latest;
+    }
+
+    /**
+     * Deletes the chunks that no backup refers to anymore. If a backup is created at the moment,
+     * the chunks are collected once it is done
+     *
+     * @throws IOException An exception that will be thrown if the chunks could not be collected
+     */
+    private void collectGarbage() throws IOException {
+        synchronized (BackupStore.getLock()) {
+            if (isTempBackupCreated()) {
+                gcPendingFile.getParentFile().mkdirs();
+                gcPendingFile.createNewFile();
+                return;
+            }
+
+            store.collectGarbage();
+            Files.deleteIfExists(gcPendingFile.toPath());
+        }
+    }
+
+    /**
+     * Checks if a backup is stored incrementally, otherwise it is a zip archive
+     *
+     * @param backup The backup
+     * @return <code>true</code> if the backup is stored incrementally, otherwise <code>false</code>
+     */
+    public boolean isIncremental(File backup) {
+        return BackupStore.isManifest(backup);
+    }
+
+    /**
+     * Gets the size of a backup. For incremental backups, this is the size of all files in the backup,
+     * even though most of them are shared with other backups
+     *
+     * @param backup The backup
+     * @return the size in bytes
+     * @throws IOException An exception that will be thrown if the backup could not be read
+     */
+    public long getBackupSize(File backup) throws IOException {
+        return isIncremental(backup) ? store.getSize(backup) : backup.length();
+    }
+
+    /**
+     * Gets the codec of a backup
+     *
+     * @param backup The backup
+     * @return the name of the codec, or 'zip' for zip backups
+     * @throws IOException An exception that will be thrown if the backup could not be read
+     */
+    public String getBackupCodec(File backup) throws IOException {
+        return isIncremental(backup) ? store.getCodec(backup) : "zip";
+    }
 
-        File finalBackupFile = new File(backupFolder, System.currentTimeMillis() + "-" + modeSuffix + ".zip");
-        Files.move(tempBackupFile.toPath(), finalBackupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Writes an incremental backup as a zip archive, without creating any temporary files
+     *
+     * @param backup The backup
+     * @param out    The stream the archive gets written to
+     * @throws IOException An exception that will be thrown if the archive could not be written
+     */
+    public void writeZip(File backup, OutputStream out) throws IOException {
+        store.writeZip(backup, out);
     }
 
     /**
@@ -146,6 +238,9 @@ public class BackupHelper {
         File backup = getBackup(name);
         if (backup != null) {
             Files.deleteIfExists(backup.toPath());
+            if (isIncremental(backup)) {
+                collectGarbage();
+            }
         }
     }
 
@@ -155,10 +250,14 @@ public class BackupHelper {
      * @return <code>true</code> if a temporary backup is created, otherwise <code>false</code>
      */
     public boolean isTempBackupCreated() {
-        File[] tempBackupFiles = backupFolder.listFiles(file -> file.getName().endsWith("_tmp.zip"));
+        File[] tempBackupFiles = backupFolder.listFiles(this::isTempBackup);
         return tempBackupFiles != null && tempBackupFiles.length > 0;
     }
 
+    private boolean isTempBackup(File file) {
+        return file.getName().endsWith("_tmp.zip") || file.getName().endsWith("_tmp." + BackupStore.MANIFEST_EXTENSION);
+    }
+
     /**
      * Clears all old folders in order to prevent conflicts
      *
@@ -178,17 +277,12 @@ public class BackupHelper {
     }
 
     /**
-     * Restores a backup
+     * Restores a zip backup
      *
-     * @param name             The name of the backup
-     * @param haltAfterRestore <code>true</code> if the server should be halted after the restore, otherwise <code>false</code>
+     * @param backup The backup
+     * @throws IOException An exception that will be thrown if the backup could not be restored
      */
-    public void restoreBackup(String name, boolean haltAfterRestore) {
-        if (!backupExists(name)) return;
-
-        File backup = getBackup(name);
-        if (backup == null) return;
-
+    private void restoreZip(File backup) throws IOException {
         try (ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(backup.toPath()))) {
             clearOldFolders(new FileInputStream(backup));
 
@@ -206,8 +300,26 @@ public class BackupHelper {
                     }
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Restores a backup. The server is only halted if the backup got restored
+     *
+     * @param name             The name of the backup
+     * @param haltAfterRestore <code>true</code> if the server should be halted after the restore, otherwise <code>false</code>
+     * @throws IOException An exception that will be thrown if the backup could not be restored
+     */
+    public void restoreBackup(String name, boolean haltAfterRestore) throws IOException {
+        if (!backupExists(name)) return;
+
+        File backup = getBackup(name);
+        if (backup == null) return;
+
+        if (isIncremental(backup)) {
+            store.restore(backup);
+        } else {
+            restoreZip(backup);
         }
 
         if (haltAfterRestore) {
@@ -221,11 +333,37 @@ public class BackupHelper {
      * @return a list of all backups
      */
     public ArrayList<File> getBackups() {
-        File[] backupFiles = FileUtils.listFiles(backupFolder, new String[]{"zip"}, true).toArray(new File[0]);
+        File[] backupFiles = listBackupFiles().stream()
+                .filter(file -> !isTempBackup(file))
+                .toArray(File[]::new);
         Arrays.sort(backupFiles);
         return new ArrayList<>(Arrays.asList(backupFiles));
     }
 
+    /**
+     * Gets the time the backups were last changed. Covers created, deleted
+     * and still growing backups without reading any of them
+     *
+     * @return the last modification time in milliseconds
+     */
+    public long getLastModified() {
+        long lastModified = backupFolder.lastModified();
+        for (File backup : listBackupFiles()) {
+            lastModified = Math.max(lastModified, backup.lastModified());
+        }
+        return lastModified;
+    }
+
+    /**
+     * Lists the files in the backup folder that look like backups. Only the top level is listed,
+     * as the 'store' folder holds the chunks and the files staged for a restore
+     *
+     * @return the backup files, including temporary ones
+     */
+    private Collection<File> listBackupFiles() {
+        return FileUtils.listFiles(backupFolder, BACKUP_EXTENSIONS, false);
+    }
+
     /**
      * Gets a backup
      *
@@ -233,7 +371,8 @@ public class BackupHelper {
      * @return the backup
      */
     public File getBackup(String name) {
-        File[] backupFiles = backupFolder.listFiles(file -> file.getName().startsWith(name + "-") && file.getName().endsWith(".zip"));
+        File[] backupFiles = backupFolder.listFiles(file -> file.getName().startsWith(name + "-") && !isTempBackup(file)
+                && (file.getName().endsWith(".zip") || isIncremental(file)));
         return (backupFiles == null || backupFiles.length == 0) ? null : backupFiles[0];
     }
 }
\ No newline at end of file
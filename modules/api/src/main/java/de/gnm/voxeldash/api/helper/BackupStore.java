@@ -0,0 +1,667 @@
+package de.gnm.voxeldash.api.helper;
+
+import de.gnm.voxeldash.api.entities.BackupCodec;
+import org.apache.commons.io.FileUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Stores incremental backups. Files are split into chunks of {@link ParallelZipWriter#CHUNK_SIZE}, and every chunk
+ * is stored once under the SHA-256 of its content in 'store/chunks', no matter how many backups contain it.
+ * A backup itself is a manifest that lists the files with the hashes of their chunks.
+ * <p>
+ * The size, modification time and chunks of every file that was backed up are kept in a file index in 'store/index',
+ * which uses the same format as the manifests. Files whose size and modification time did not change since they
+ * were last backed up, no matter by which backup, are not read again and reuse their chunks.
+ * <p>
+ * The chunks are stored as raw deflate data that ends with a sync flush, or as they are if the backup uses the
+ * {@link BackupCodec#STORE} codec or deflate does not make them smaller. Either way, a zip of a backup can be
+ * written without compressing anything again.
+ */
+class BackupStore {
+
+    static final String MANIFEST_EXTENSION = "manifest";
+
+    private static final int MANIFEST_MAGIC = 0x56444246;
+    private static final int MANIFEST_VERSION = 2;
+
+    /**
+     * Set in the size of a chunk that is stored without compression
+     */
+    private static final int CHUNK_STORED = 0x80000000;
+    private static final int HASH_LENGTH = 32;
+    private static final int SCAN_BATCH_SIZE = 256;
+
+    /**
+     * Shared by all stores, as the platforms and the routes each create their own {@link BackupHelper}.
+     * Guards the start of a backup against the garbage collection of the chunks
+     */
+    private static final Object LOCK = new Object();
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final File backupFolder;
+    private final File chunkFolder;
+    private final File indexFile;
+
+    /**
+     * Basic constructor of the {@link BackupStore}
+     *
+     * @param backupFolder The backup folder, the manifests are stored next to the zip backups
+     */
+    BackupStore(File backupFolder) {
+        this.backupFolder = backupFolder;
+        this.chunkFolder = new File(backupFolder, "store/chunks");
+        this.indexFile = new File(backupFolder, "store/index");
+    }
+
+    /**
+     * Gets the lock that needs to be held while a backup is started or the chunks are collected
+     *
+     * @return the lock
+     */
+    static Object getLock() {
+        return LOCK;
+    }
+
+    /**
+     * Checks if a file is a manifest
+     *
+     * @param file The file
+     * @return <code>true</code> if the file is a manifest, otherwise <code>false</code>
+     */
+    static boolean isManifest(File file) {
+        return file.getName().endsWith("." + MANIFEST_EXTENSION);
+    }
+
+    /**
+     * Creates a backup of the given files. The files are listed and checked for changes in parallel, and only the
+     * files whose size or modification time changed since they were last backed up are read again.
+     * The chunks of those files are hashed and compressed in parallel
+     *
+     * @param manifestFile     The file the manifest gets written to
+     * @param previous         The manifest of the last backup, only used if there is no file index yet, or null
+     * @param paths            The files and directories to back up, they are stored under their own name
+     * @param excludeDirectory The directories that should not be backed up
+     * @param codec            The compression of the chunks that are not stored yet
+     * @throws IOException if a file could not be read or the backup could not be written
+     */
+    void create(File manifestFile, File previous, File[] paths, Predicate<File> excludeDirectory, BackupCodec codec) throws IOException {
+        Map<String, FileRecord> indexed = new LinkedHashMap<>();
+        File source = indexFile.exists() ? indexFile : previous;
+        if (source != null) {
+            for (FileRecord record : readManifest(source).files) {
+                indexed.put(record.name, record);
+            }
+        }
+
+        String[] names = new String[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            names[i] = paths[i].getName();
+        }
+        List<ScannedFile> files = ParallelZipWriter.POOL.invoke(new ScanTask(paths, names, excludeDirectory));
+
+        List<FileRecord> records = new ArrayList<>();
+        ArrayDeque<ForkJoinTask<?>> pending = new ArrayDeque<>();
+
+        try {
+            for (ScannedFile scanned : files) {
+                File file = scanned.file;
+                long size = scanned.size;
+                long lastModified = scanned.lastModified;
+
+                FileRecord unchanged = indexed.get(scanned.name);
+                if (unchanged != null && unchanged.size == size && unchanged.lastModified == lastModified) {
+                    records.add(unchanged);
+                    continue;
+                }
+
+                int chunks = (int) ((size + ParallelZipWriter.CHUNK_SIZE - 1) / ParallelZipWriter.CHUNK_SIZE);
+                FileRecord record = new FileRecord(scanned.name, size, lastModified, new byte[chunks][]);
+                records.add(record);
+
+                for (int i = 0; i < chunks; i++) {
+                    while (pending.size() >= ParallelZipWriter.MAX_PENDING_CHUNKS) {
+                        await(pending.poll());
+                    }
+
+                    long position = (long) i * ParallelZipWriter.CHUNK_SIZE;
+                    int index = i;
+                    pending.add(ParallelZipWriter.POOL.submit(() -> {
+                        record.hashes[index] = storeChunk(file, position, codec);
+                        return null;
+                    }));
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                await(pending.poll());
+            }
+        } finally {
+            pending.forEach(task -> task.cancel(false));
+        }
+
+        writeManifest(manifestFile, new Manifest(codec.toString(), records));
+
+        for (FileRecord record : records) {
+            indexed.put(record.name, record);
+        }
+        indexFile.getParentFile().mkdirs();
+        writeManifest(indexFile, new Manifest(codec.toString(), new ArrayList<>(indexed.values())));
+    }
+
+    private static void await(ForkJoinTask<?> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while creating the backup");
+        } catch (ExecutionException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) throw (IOException) cause;
+            }
+            throw new IOException("Could not store a file", e.getCause());
+        }
+    }
+
+    /**
+     * Reads a chunk of a file and stores it, unless a chunk with the same content is already stored. Runs on the pool
+     *
+     * @param file     The file
+     * @param position The position of the chunk in the file
+     * @param codec    The compression of the chunk
+     * @return the hash of the chunk
+     * @throws IOException if the file could not be read or the chunk could not be written
+     */
+    private byte[] storeChunk(File file, long position, BackupCodec codec) throws IOException {
+        byte[] input = new byte[ParallelZipWriter.CHUNK_SIZE];
+        int length = ParallelZipWriter.read(file, position, input);
+
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        digest.update(input, 0, length);
+        byte[] hash = digest.digest();
+
+        File chunkFile = getChunkFile(hash);
+        if (chunkFile.exists()) return hash;
+
+        CRC32 crc = new CRC32();
+        crc.update(input, 0, length);
+        byte[] data = codec.isStore() ? null : ParallelZipWriter.deflate(input, length, false, codec.getLevel());
+        boolean stored = data == null || data.length >= length;
+
+        chunkFile.getParentFile().mkdirs();
+        File tempFile = File.createTempFile(chunkFile.getName(), ".tmp", chunkFile.getParentFile());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(stored ? length | CHUNK_STORED : length);
+            out.writeInt((int) crc.getValue());
+            if (stored) {
+                out.write(input, 0, length);
+            } else {
+                out.write(data);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        }
+        Files.move(tempFile.toPath(), chunkFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        return hash;
+    }
+
+    /**
+     * Reads a stored chunk
+     *
+     * @param hash The hash of the chunk
+     * @return the chunk
+     * @throws IOException if the chunk is missing or could not be read
+     */
+    private StoredChunk readChunk(byte[] hash) throws IOException {
+        File chunkFile = getChunkFile(hash);
+        if (!chunkFile.exists()) throw new FileNotFoundException("Missing backup chunk " + toHex(hash));
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(chunkFile)))) {
+            int header = in.readInt();
+            long crc = in.readInt() & 0xFFFFFFFFL;
+            byte[] data = new byte[(int) chunkFile.length() - 8];
+            in.readFully(data);
+            return new StoredChunk((header & CHUNK_STORED) != 0, header & ~CHUNK_STORED, crc, data);
+        }
+    }
+
+    /**
+     * Reads a stored chunk as raw deflate data. Chunks that are stored without compression are wrapped into
+     * stored deflate blocks, so they don't need to be compressed either
+     *
+     * @param hash The hash of the chunk
+     * @return the chunk
+     * @throws IOException if the chunk is missing or could not be read
+     */
+    private ParallelZipWriter.DeflatedChunk readDeflatedChunk(byte[] hash) throws IOException {
+        StoredChunk chunk = readChunk(hash);
+        byte[] data = chunk.stored ? ParallelZipWriter.toStoredBlocks(chunk.data, chunk.size) : chunk.data;
+        return new ParallelZipWriter.DeflatedChunk(data, chunk.crc, chunk.size);
+    }
+
+    /**
+     * Writes a backup as a zip archive. The stored chunks are copied into the archive as they are
+     *
+     * @param manifestFile The manifest of the backup
+     * @param out          The stream the archive gets written to
+     * @throws IOException if the backup could not be read or the archive could not be written
+     */
+    void writeZip(File manifestFile, OutputStream out) throws IOException {
+        Manifest manifest = readManifest(manifestFile);
+
+        try (ParallelZipWriter zipWriter = new ParallelZipWriter(out)) {
+            for (FileRecord record : manifest.files) {
+                List<ParallelZipWriter.ChunkReader> chunks = new ArrayList<>(record.hashes.length);
+                for (byte[] hash : record.hashes) {
+                    chunks.add(() -> readDeflatedChunk(hash));
+                }
+                zipWriter.addDeflated(record.name, record.lastModified, chunks);
+            }
+        }
+    }
+
+    /**
+     * Restores the files of a backup relative to the working directory. All chunks are checked and the files are
+     * restored into a staging folder first, so a missing or corrupt chunk fails the restore before any file of the
+     * server gets deleted
+     *
+     * @param manifestFile The manifest of the backup
+     * @throws IOException if the backup could not be read or a file could not be written
+     */
+    void restore(File manifestFile) throws IOException {
+        Manifest manifest = readManifest(manifestFile);
+
+        for (FileRecord record : manifest.files) {
+            for (byte[] hash : record.hashes) {
+                checkChunk(hash);
+            }
+        }
+
+        File stagingFolder = new File(backupFolder, "store/restore");
+        FileUtils.deleteDirectory(stagingFolder);
+
+        try {
+            stage(manifest, stagingFolder);
+
+            for (FileRecord record : manifest.files) {
+                File parentDir = new File(record.name).getParentFile();
+                if (parentDir != null && parentDir.exists() && !parentDir.equals(new File("."))) {
+                    FileUtils.deleteDirectory(parentDir);
+                }
+            }
+
+            for (FileRecord record : manifest.files) {
+                File file = new File(record.name);
+                if (file.getParentFile() != null) {
+                    file.getParentFile().mkdirs();
+                }
+                Files.move(new File(stagingFolder, record.name).toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                file.setLastModified(record.lastModified);
+            }
+        } finally {
+            FileUtils.deleteDirectory(stagingFolder);
+        }
+    }
+
+    /**
+     * Checks that a chunk exists and that its header matches its length, without reading the chunk
+     *
+     * @param hash The hash of the chunk
+     * @throws IOException if the chunk is missing or corrupt
+     */
+    private void checkChunk(byte[] hash) throws IOException {
+        File chunkFile = getChunkFile(hash);
+        if (!chunkFile.exists()) throw new FileNotFoundException("Missing backup chunk " + toHex(hash));
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(chunkFile))) {
+            int header = in.readInt();
+            long dataLength = chunkFile.length() - 8;
+            int size = header & ~CHUNK_STORED;
+
+            boolean valid = (header & CHUNK_STORED) != 0 ? size == dataLength : dataLength > 0;
+            if (!valid || size > ParallelZipWriter.CHUNK_SIZE) throw new IOException("Corrupt backup chunk " + toHex(hash));
+        } catch (EOFException e) {
+            throw new IOException("Corrupt backup chunk " + toHex(hash), e);
+        }
+    }
+
+    /**
+     * Writes the files of a backup into a staging folder and checks the CRC of every chunk
+     *
+     * @param manifest      The manifest of the backup
+     * @param stagingFolder The folder the files get written to
+     * @throws IOException if a chunk is missing or corrupt, or a file could not be written
+     */
+    private void stage(Manifest manifest, File stagingFolder) throws IOException {
+        Inflater inflater = new Inflater(true);
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[ParallelZipWriter.CHUNK_SIZE];
+        try {
+            for (FileRecord record : manifest.files) {
+                File file = new File(stagingFolder, record.name);
+                file.getParentFile().mkdirs();
+
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                    for (byte[] hash : record.hashes) {
+                        StoredChunk chunk = readChunk(hash);
+                        byte[] data = chunk.data;
+                        int length = chunk.stored ? chunk.data.length : 0;
+
+                        if (!chunk.stored) {
+                            inflater.reset();
+                            inflater.setInput(chunk.data);
+
+                            while (length < chunk.size) {
+                                int count = inflater.inflate(buffer, length, chunk.size - length);
+                                if (count == 0 && (inflater.needsInput() || inflater.finished())) break;
+                                length += count;
+                            }
+                            data = buffer;
+                        }
+
+                        crc.reset();
+                        crc.update(data, 0, length);
+                        if (length != chunk.size || crc.getValue() != chunk.crc) {
+                            throw new IOException("Corrupt backup chunk " + toHex(hash));
+                        }
+
+                        out.write(data, 0, length);
+                    }
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt backup chunk", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Gets the total size of the files in a backup
+     *
+     * @param manifestFile The manifest of the backup
+     * @return the size in bytes
+     * @throws IOException if the manifest could not be read
+     */
+    long getSize(File manifestFile) throws IOException {
+        return readManifest(manifestFile, true).totalSize;
+    }
+
+    /**
+     * Gets the codec a backup was created with. Chunks that were already stored by an earlier
+     * backup keep the codec they were stored with
+     *
+     * @param manifestFile The manifest of the backup
+     * @return the name of the codec
+     * @throws IOException if the manifest could not be read
+     */
+    String getCodec(File manifestFile) throws IOException {
+        return readManifest(manifestFile, true).codec;
+    }
+
+    /**
+     * Deletes all chunks that no backup refers to anymore, and the files in the index that refer to them.
+     * Must not run while a backup is created, as the new backup might refer to chunks that no manifest lists yet
+     *
+     * @throws IOException if a manifest could not be read
+     */
+    void collectGarbage() throws IOException {
+        if (!chunkFolder.exists()) return;
+
+        Set<String> referenced = new HashSet<>();
+        File[] manifests = backupFolder.listFiles(BackupStore::isManifest);
+        if (manifests != null) {
+            for (File manifestFile : manifests) {
+                for (FileRecord record : readManifest(manifestFile).files) {
+                    for (byte[] hash : record.hashes) {
+                        referenced.add(toHex(hash));
+                    }
+                }
+            }
+        }
+
+        for (File chunkFile : FileUtils.listFiles(chunkFolder, null, true)) {
+            if (!referenced.contains(chunkFile.getName())) {
+                Files.deleteIfExists(chunkFile.toPath());
+            }
+        }
+
+        if (indexFile.exists()) {
+            List<FileRecord> kept = new ArrayList<>();
+            for (FileRecord record : readManifest(indexFile).files) {
+                if (Arrays.stream(record.hashes).allMatch(hash -> referenced.contains(toHex(hash)))) kept.add(record);
+            }
+            writeManifest(indexFile, new Manifest(BackupCodec.DEFAULT.toString(), kept));
+        }
+    }
+
+    private File getChunkFile(byte[] hash) {
+        String hex = toHex(hash);
+        return new File(new File(chunkFolder, hex.substring(0, 2)), hex);
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private Manifest readManifest(File manifestFile) throws IOException {
+        return readManifest(manifestFile, false);
+    }
+
+    /**
+     * Reads a manifest
+     *
+     * @param manifestFile The manifest
+     * @param headerOnly   true to skip the files
+     * @return the manifest, without files if only the header was read
+     * @throws IOException if the manifest could not be read
+     */
+    private Manifest readManifest(File manifestFile, boolean headerOnly) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(manifestFile))))) {
+            int version = in.readInt() == MANIFEST_MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > MANIFEST_VERSION) {
+                throw new IOException("Unsupported backup manifest: " + manifestFile.getName());
+            }
+
+            long totalSize = in.readLong();
+            String codec = version >= 2 ? in.readUTF() : BackupCodec.DEFAULT.toString();
+            if (headerOnly) return new Manifest(codec, totalSize, Collections.emptyList());
+
+            int count = in.readInt();
+            List<FileRecord> files = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                byte[][] hashes = new byte[in.readInt()][HASH_LENGTH];
+                for (byte[] hash : hashes) {
+                    in.readFully(hash);
+                }
+                files.add(new FileRecord(name, size, lastModified, hashes));
+            }
+            return new Manifest(codec, totalSize, files);
+        }
+    }
+
+    private void writeManifest(File manifestFile, Manifest manifest) throws IOException {
+        File tempFile = new File(manifestFile.getParentFile(), manifestFile.getName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(MANIFEST_VERSION);
+            out.writeLong(manifest.totalSize);
+            out.writeUTF(manifest.codec);
+            out.writeInt(manifest.files.size());
+            for (FileRecord record : manifest.files) {
+                out.writeUTF(record.name);
+                out.writeLong(record.size);
+                out.writeLong(record.lastModified);
+                out.writeInt(record.hashes.length);
+                for (byte[] hash : record.hashes) {
+                    out.write(hash);
+                }
+            }
+        }
+
+        Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Lists files and reads their attributes in parallel. Large directories are split into batches,
+     * and every subdirectory is scanned as its own task. The files keep the order of the directory listings
+     */
+    private static class ScanTask extends RecursiveTask<List<ScannedFile>> {
+        private static final long serialVersionUID = 1L;
+
+        private final File[] files;
+        private final String[] names;
+        private final int from;
+        private final int to;
+        private final Predicate<File> excludeDirectory;
+
+        private ScanTask(File[] files, String[] names, Predicate<File> excludeDirectory) {
+            this(files, names, 0, files.length, excludeDirectory);
+        }
+
+        private ScanTask(File[] files, String[] names, int from, int to, Predicate<File> excludeDirectory) {
+            this.files = files;
+            this.names = names;
+            this.from = from;
+            this.to = to;
+            this.excludeDirectory = excludeDirectory;
+        }
+
+        @Override
+        protected List<ScannedFile> compute() {
+            if (to - from > SCAN_BATCH_SIZE) {
+                int middle = (from + to) >>> 1;
+                ScanTask second = new ScanTask(files, names, middle, to, excludeDirectory);
+                second.fork();
+                List<ScannedFile> result = new ScanTask(files, names, from, middle, excludeDirectory).compute();
+                result.addAll(second.join());
+                return result;
+            }
+
+            List<Object> parts = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(files[i].toPath(), BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue;
+                }
+
+                if (!attributes.isDirectory()) {
+                    parts.add(new ScannedFile(names[i], files[i], attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    continue;
+                }
+
+                File[] children = files[i].listFiles();
+                if (children == null || excludeDirectory.test(files[i])) continue;
+
+                String[] childNames = new String[children.length];
+                for (int j = 0; j < children.length; j++) {
+                    childNames[j] = names[i] + "/" + children[j].getName();
+                }
+                parts.add(new ScanTask(children, childNames, excludeDirectory).fork());
+            }
+
+            List<ScannedFile> result = new ArrayList<>();
+            for (Object part : parts) {
+                if (part instanceof ScanTask) {
+                    result.addAll(((ScanTask) part).join());
+                } else {
+                    result.add((ScannedFile) part);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class ScannedFile {
+        private final String name;
+        private final File file;
+        private final long size;
+        private final long lastModified;
+
+        private ScannedFile(String name, File file, long size, long lastModified) {
+            this.name = name;
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static class Manifest {
+        private final String codec;
+        private final long totalSize;
+        private final List<FileRecord> files;
+
+        private Manifest(String codec, List<FileRecord> files) {
+            this(codec, files.stream().mapToLong(record -> record.size).sum(), files);
+        }
+
+        private Manifest(String codec, long totalSize, List<FileRecord> files) {
+            this.codec = codec;
+            this.totalSize = totalSize;
+            this.files = files;
+        }
+    }
+
+    private static class StoredChunk {
+        private final boolean stored;
+        private final int size;
+        private final long crc;
+        private final byte[] data;
+
+        private StoredChunk(boolean stored, int size, long crc, byte[] data) {
+            this.stored = stored;
+            this.size = size;
+            this.crc = crc;
+            this.data = data;
+        }
+    }
+
+    private static class FileRecord {
+        private final String name;
+        private final long size;
+        private final long lastModified;
+        private final byte[][] hashes;
+
+        private FileRecord(String name, long size, long lastModified, byte[][] hashes) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hashes = hashes;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package de.gnm.voxeldash.api.helper;
+
+import de.gnm.voxeldash.api.http.Response;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.DateUtils;
+import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.zip.CRC32C;
+
+/**
+ * Handles the validators of the API responses. The entity tags are weak, as the same tag is sent
+ * for the gzip, deflate and identity representation created by the compression handler
+ */
+public class ConditionalRequestHelper {
+
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    /**
+     * Checks if the client already has the current version of the data.
+     * If the client sent an 'If-None-Match' header, 'If-Modified-Since' is ignored
+     *
+     * @param exchange     The HTTP server exchange
+     * @param etag         The current entity tag
+     * @param lastModified The time the data was last modified, or a value &lt;= 0 if it is unknown
+     * @return true if the client can use its cached version
+     */
+    public static boolean isNotModified(HttpServerExchange exchange, String etag, long lastModified) {
+        if (exchange.getRequestHeaders().contains(Headers.IF_NONE_MATCH)) {
+            return !ETagUtils.handleIfNoneMatch(exchange, new ETag(true, etag), true);
+        }
+
+        if (lastModified > 0 && exchange.getRequestHeaders().contains(Headers.IF_MODIFIED_SINCE)) {
+            return !DateUtils.handleIfModifiedSince(exchange, new Date(lastModified));
+        }
+
+        return false;
+    }
+
+    /**
+     * Creates an empty '304 Not Modified' response
+     *
+     * @param etag         The current entity tag
+     * @param lastModified The time the data was last modified, or a value &lt;= 0 if it is unknown
+     * @return the response
+     */
+    public static Response notModified(String etag, long lastModified) {
+        return withValidators(new Response().code(304), etag, lastModified);
+    }
+
+    /**
+     * Adds the 'ETag', 'Last-Modified' and 'Cache-Control' headers to a successful response
+     *
+     * @param response     The response
+     * @param etag         The current entity tag
+     * @param lastModified The time the data was last modified, or a value &lt;= 0 if it is unknown
+     * @return the response
+     */
+    public static Response withValidators(Response response, String etag, long lastModified) {
+        if (response.getStatusCode() != 200 && response.getStatusCode() != 304) return response;
+
+        response.header(Headers.ETAG_STRING, new ETag(true, etag).toString());
+        response.header(Headers.CACHE_CONTROL_STRING, CACHE_CONTROL);
+        if (lastModified > 0) {
+            response.header(Headers.LAST_MODIFIED_STRING, DateUtils.toDateString(new Date(lastModified)));
+        }
+
+        return response;
+    }
+
+    /**
+     * Renders the body of a successful response to fingerprint it. If the client already
+     * has the same body, a '304 Not Modified' response is returned instead
+     *
+     * @param exchange The HTTP server exchange
+     * @param response The response of the route
+     * @return the rendered response with an 'ETag' header, or a '304 Not Modified' response
+     * @throws IOException if the body could not be rendered
+     */
+    public static Response fingerprintBody(HttpServerExchange exchange, Response response) throws IOException {
+        if (response.getStatusCode() != 200 || response.isStreaming()) return response;
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.writeTo(body);
+        byte[] bytes = body.toByteArray();
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes);
+        String etag = Long.toHexString(checksum.getValue()) + "-" + Integer.toHexString(bytes.length);
+
+        if (isNotModified(exchange, etag, 0)) {
+            return notModified(etag, 0);
+        }
+
+        Response rendered = new Response().code(response.getStatusCode()).type(response.getContentType()).raw(bytes);
+        response.getHeaders().forEach(rendered::header);
+
+        return withValidators(rendered, etag, 0);
+    }
+}
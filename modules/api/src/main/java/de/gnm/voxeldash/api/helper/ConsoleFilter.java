@@ -0,0 +1,118 @@
+package de.gnm.voxeldash.api.helper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which console lines a websocket client receives. The filter is compiled once when the client
+ * attaches to the console and checked for every line before it gets serialised.
+ * Lines without a '[Logger/LEVEL]' part, e.g. the lines of a stack trace, follow the decision
+ * for the last line that had one, so a client that only wants errors still gets their stack traces.
+ * Lines before the first line with a '[Logger/LEVEL]' part don't pass a level or logger filter.
+ * As the filter remembers the last decision, every stream of lines needs its own {@link #copy()}.
+ * The patterns come from the client, so they are compiled and checked by the {@link RegexHelper}:
+ * a line whose check takes too long does not pass the filter.
+ */
+public class ConsoleFilter {
+
+    private final int minSeverity;
+    private final String loggerPrefix;
+    private final Pattern include;
+    private final Pattern exclude;
+    private boolean lastSourceMatched;
+
+    /**
+     * Basic constructor of the {@link ConsoleFilter}
+     *
+     * @param minLevel     The minimum level of the lines, or null for all levels
+     * @param loggerPrefix The start of the logger name, or null for all loggers
+     * @param include      A pattern that needs to be found in the line, or null
+     * @param exclude      A pattern that must not be found in the line, or null
+     * @throws IllegalArgumentException if the level is unknown or a pattern is invalid, too long or has nested quantifiers
+     */
+    public ConsoleFilter(String minLevel, String loggerPrefix, String include, String exclude) {
+        if (minLevel != null) {
+            this.minSeverity = LogLineHelper.getSeverity(minLevel.toUpperCase(Locale.ROOT));
+            if (minSeverity == -1) throw new IllegalArgumentException("Unknown level: " + minLevel);
+        } else {
+            this.minSeverity = -1;
+        }
+
+        this.loggerPrefix = loggerPrefix != null ? loggerPrefix.toLowerCase(Locale.ROOT) : null;
+        this.include = include != null ? RegexHelper.compile(include) : null;
+        this.exclude = exclude != null ? RegexHelper.compile(exclude) : null;
+    }
+
+    /**
+     * Constructor of a {@link ConsoleFilter} that shares the compiled patterns of another filter
+     *
+     * @param filter The filter to copy
+     */
+    private ConsoleFilter(ConsoleFilter filter) {
+        this.minSeverity = filter.minSeverity;
+        this.loggerPrefix = filter.loggerPrefix;
+        this.include = filter.include;
+        this.exclude = filter.exclude;
+    }
+
+    /**
+     * Creates a copy of this filter that starts without a previous line, e.g. to replay the history
+     * without affecting the decisions for the live lines
+     *
+     * @return the copy
+     */
+    public ConsoleFilter copy() {
+        return new ConsoleFilter(this);
+    }
+
+    /**
+     * Creates a filter from the 'filter' object of an attach message
+     *
+     * @param node The filter object with the optional fields 'level', 'logger', 'include' and 'exclude'
+     * @return the filter, or null if the node does not filter anything
+     * @throws IllegalArgumentException if the level is unknown or a pattern is invalid
+     */
+    public static ConsoleFilter fromJson(JsonNode node) {
+        if (node == null || !node.isObject()) return null;
+
+        String level = getText(node, "level");
+        String logger = getText(node, "logger");
+        String include = getText(node, "include");
+        String exclude = getText(node, "exclude");
+
+        if (level == null && logger == null && include == null && exclude == null) return null;
+        return new ConsoleFilter(level, logger, include, exclude);
+    }
+
+    private static String getText(JsonNode node, String key) {
+        JsonNode value = node.get(key);
+        if (value == null || value.isNull() || value.asText().isEmpty()) return null;
+        return value.asText();
+    }
+
+    /**
+     * Checks if a console line passes the filter. Lines need to be checked in the order they were received
+     *
+     * @param message The console line
+     * @return true if the client should receive the line
+     */
+    public synchronized boolean matches(String message) {
+        String text = LogLineHelper.stripFormatting(message);
+
+        if (minSeverity != -1 || loggerPrefix != null) {
+            String level = LogLineHelper.getLevel(text);
+            String logger = LogLineHelper.getLogger(text);
+
+            if (level != null || logger != null) {
+                lastSourceMatched = (minSeverity == -1 || LogLineHelper.getSeverity(level) >= minSeverity)
+                        && (loggerPrefix == null || (logger != null && logger.toLowerCase(Locale.ROOT).startsWith(loggerPrefix)));
+            }
+            if (!lastSourceMatched) return false;
+        }
+
+        if (include != null && !RegexHelper.find(include, text, false)) return false;
+        return exclude == null || !RegexHelper.find(exclude, text, true);
+    }
+}
@@ -0,0 +1,24 @@
+package de.gnm.voxeldash.api.helper;
+
+/**
+ * All modes the API routes can be executed in
+ */
+public enum ExecutionMode {
+
+    /**
+     * Executes all routes on the worker threads of the HTTP server
+     */
+    WORKER,
+
+    /**
+     * Executes routes on separate bounded thread pools for regular, long-running and streaming work
+     */
+    POOLED,
+
+    /**
+     * Executes every request on its own virtual thread. Falls back to {@link #POOLED}
+     * if virtual threads are not supported by the running Java version
+     */
+    VIRTUAL
+
+}
@@ -1,8 +1,6 @@
 package de.gnm.voxeldash.api.helper;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import java.io.File;
 import java.io.IOException;
@@ -11,8 +9,6 @@ import java.nio.file.Paths;
 
 public class FileHelper {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
-
     /**
      * Gets a normalized path that is guaranteed to be within the root directory.
      * If the requested path would escape the root, returns the root instead.
@@ -46,23 +42,30 @@ public class FileHelper {
     }
 
     /**
-     * Converts an array of files to a JSON array
+     * Writes an array of files as a JSON array
      *
-     * @param files The array of files
-     * @return The JSON array
+     * @param generator The generator to write to
+     * @param files     The array of files
+     * @return The amount of files that were written
+     * @throws IOException if the array could not be written
      */
-    public static ArrayNode getFilesAsJsonArray(File[] files) {
-        ArrayNode arrayNode = MAPPER.createArrayNode();
+    public static int writeFilesAsJsonArray(JsonGenerator generator, File[] files) throws IOException {
+        int count = 0;
+
+        generator.writeStartArray();
         for (File file : files) {
             if (file.getName().equals("voxeldash.db")) continue;
 
-            ObjectNode objectNode = MAPPER.createObjectNode();
-            objectNode.put("name", file.getName());
-            objectNode.put("is_folder", !file.isFile());
-            objectNode.put("last_modified", file.lastModified());
-            objectNode.put("size", file.length());
-            arrayNode.add(objectNode);
+            generator.writeStartObject();
+            generator.writeStringField("name", file.getName());
+            generator.writeBooleanField("is_folder", !file.isFile());
+            generator.writeNumberField("last_modified", file.lastModified());
+            generator.writeNumberField("size", file.length());
+            generator.writeEndObject();
+            count++;
         }
-        return arrayNode;
+        generator.writeEndArray();
+
+        return count;
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package de.gnm.voxeldash.api.helper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.gnm.voxeldash.api.entities.OnlinePlayer;
+import de.gnm.voxeldash.api.entities.World;
+import de.gnm.voxeldash.api.entities.widget.Widget;
+import de.gnm.voxeldash.api.entities.widget.WidgetDataPoint;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes entities with a {@link JsonGenerator}, so the routes and the websocket channels send the same fields
+ */
+public class JsonWriterHelper {
+
+    /**
+     * Writes an online player as a JSON object
+     *
+     * @param json   the generator
+     * @param player the player
+     * @throws IOException if the player could not be written
+     */
+    public static void writeOnlinePlayer(JsonGenerator json, OnlinePlayer player) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("name", player.getName());
+        json.writeStringField("uuid", player.getUuid().toString());
+        json.writeStringField("world", player.getWorld());
+        json.writeStringField("ipAddress", player.getIpAddress());
+        json.writeNumberField("health", player.getHealth());
+        json.writeNumberField("hunger", player.getHunger());
+        json.writeBooleanField("op", player.isOp());
+        json.writeStringField("gamemode", player.getGamemode());
+        json.writeNumberField("playtime", player.getPlaytime());
+        json.writeEndObject();
+    }
+
+    /**
+     * Writes a world as a JSON object
+     *
+     * @param json  the generator
+     * @param world the world
+     * @throws IOException if the world could not be written
+     */
+    public static void writeWorld(JsonGenerator json, World world) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("name", world.getName());
+        json.writeStringField("environment", world.getEnvironment());
+        json.writeNumberField("playerCount", world.getPlayerCount());
+        json.writeNumberField("time", world.getTime());
+        json.writeStringField("weather", world.getWeather());
+        json.writeStringField("difficulty", world.getDifficulty());
+        json.writeNumberField("seed", world.getSeed());
+        json.writeBooleanField("hardcore", world.isHardcore());
+        json.writeStringField("worldType", world.getWorldType());
+        json.writeEndObject();
+    }
+
+    /**
+     * Writes the definition of a widget as a JSON object, optionally with its data
+     *
+     * @param json     the generator
+     * @param widget   the widget
+     * @param data     the data points to include, or null
+     * @param metadata the metadata to include, or null
+     * @throws IOException if the widget could not be written
+     */
+    public static void writeWidget(JsonGenerator json, Widget widget, List<WidgetDataPoint> data,
+                                   Map<String, Object> metadata) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", widget.getId());
+        json.writeStringField("translationKey", widget.getTranslationKey());
+        json.writeStringField("type", widget.getType().name());
+        json.writeStringField("color", widget.getColor());
+
+        if (widget.getUnit() != null) {
+            json.writeStringField("unit", widget.getUnit());
+        }
+
+        json.writeObjectFieldStart("defaultSize");
+        json.writeNumberField("width", widget.getDefaultSize().getWidth());
+        json.writeNumberField("height", widget.getDefaultSize().getHeight());
+        json.writeNumberField("minWidth", widget.getDefaultSize().getMinWidth());
+        json.writeNumberField("minHeight", widget.getDefaultSize().getMinHeight());
+        json.writeEndObject();
+
+        writeWidgetData(json, data, metadata);
+        json.writeEndObject();
+    }
+
+    /**
+     * Writes the 'data' and 'metadata' fields of a widget. Empty or missing values are skipped
+     *
+     * @param json     the generator
+     * @param data     the data points, or null
+     * @param metadata the metadata, or null
+     * @throws IOException if the data could not be written
+     */
+    public static void writeWidgetData(JsonGenerator json, List<WidgetDataPoint> data, Map<String, Object> metadata) throws IOException {
+        if (data != null && !data.isEmpty()) {
+            json.writeArrayFieldStart("data");
+            for (WidgetDataPoint point : data) {
+                json.writeStartObject();
+                json.writeNumberField("timestamp", point.getTimestamp());
+                json.writeStringField("label", point.getLabel());
+                json.writeNumberField("value", point.getValue());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+
+        if (metadata != null && !metadata.isEmpty()) {
+            json.writeObjectFieldStart("metadata");
+            for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof String) {
+                    json.writeStringField(entry.getKey(), (String) value);
+                } else if (value instanceof Number) {
+                    json.writeNumberField(entry.getKey(), ((Number) value).doubleValue());
+                } else if (value instanceof Boolean) {
+                    json.writeBooleanField(entry.getKey(), (Boolean) value);
+                } else if (value != null) {
+                    json.writeStringField(entry.getKey(), value.toString());
+                }
+            }
+            json.writeEndObject();
+        }
+    }
+}
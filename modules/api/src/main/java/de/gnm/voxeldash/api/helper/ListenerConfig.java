@@ -0,0 +1,265 @@
+package de.gnm.voxeldash.api.helper;
+
+import io.undertow.Undertow;
+import io.undertow.UndertowOptions;
+import org.xnio.Options;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The configuration of the HTTP listener, read from a properties file next to the database.
+ * Missing values fall back to the defaults, so the file only needs to contain the values that should change.
+ */
+public class ListenerConfig {
+
+    public static final String FILE_NAME = "webserver.properties";
+
+    private static final Logger LOG = Logger.getLogger("ListenerConfig");
+
+    private String host = "0.0.0.0";
+    private int port = 7867;
+    private int ioThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private int workerThreads = ioThreads * 8;
+    private int bufferSize = 16 * 1024;
+    private boolean directBuffers = true;
+    private boolean http2 = true;
+    private int maxConcurrentStreams = 100;
+    private int idleTimeout = 0;
+    private int noRequestTimeout = 60_000;
+    private int backlog = 1000;
+    private boolean tls = false;
+    private String keyStoreFile = "voxeldash.p12";
+    private String keyStorePassword = "";
+    private String keyStoreType = "PKCS12";
+
+    private File baseFolder = new File(".");
+
+    /**
+     * Loads the listener configuration from the given folder. If the file does not exist yet,
+     * it gets created with the default values
+     *
+     * @param folder the folder containing the configuration file
+     * @return the listener configuration
+     */
+    public static ListenerConfig load(File folder) {
+        ListenerConfig config = new ListenerConfig();
+        config.baseFolder = folder;
+
+        File file = new File(folder, FILE_NAME);
+        Properties properties = new Properties();
+
+        if (file.exists()) {
+            try (Reader reader = Files.newBufferedReader(file.toPath())) {
+                properties.load(reader);
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Failed to read " + FILE_NAME + ", using the default listener configuration", e);
+            }
+        }
+
+        config.host = properties.getProperty("host", config.host);
+        config.port = getInt(properties, "port", config.port);
+        config.ioThreads = getInt(properties, "io-threads", config.ioThreads);
+        config.workerThreads = getInt(properties, "worker-threads", config.workerThreads);
+        config.bufferSize = getInt(properties, "buffer-size", config.bufferSize);
+        config.directBuffers = getBoolean(properties, "direct-buffers", config.directBuffers);
+        config.http2 = getBoolean(properties, "http2", config.http2);
+        config.maxConcurrentStreams = getInt(properties, "http2-max-concurrent-streams", config.maxConcurrentStreams);
+        config.idleTimeout = getInt(properties, "idle-timeout", config.idleTimeout);
+        config.noRequestTimeout = getInt(properties, "no-request-timeout", config.noRequestTimeout);
+        config.backlog = getInt(properties, "backlog", config.backlog);
+        config.tls = getBoolean(properties, "tls", config.tls);
+        config.keyStoreFile = properties.getProperty("tls-keystore", config.keyStoreFile);
+        config.keyStorePassword = properties.getProperty("tls-keystore-password", config.keyStorePassword);
+        config.keyStoreType = properties.getProperty("tls-keystore-type", config.keyStoreType);
+
+        if (!file.exists()) config.save(file);
+
+        return config;
+    }
+
+    /**
+     * Writes the configuration to a file
+     *
+     * @param file the file to write to
+     */
+    private void save(File file) {
+        Properties properties = new Properties();
+        properties.setProperty("host", host);
+        properties.setProperty("port", String.valueOf(port));
+        properties.setProperty("io-threads", String.valueOf(ioThreads));
+        properties.setProperty("worker-threads", String.valueOf(workerThreads));
+        properties.setProperty("buffer-size", String.valueOf(bufferSize));
+        properties.setProperty("direct-buffers", String.valueOf(directBuffers));
+        properties.setProperty("http2", String.valueOf(http2));
+        properties.setProperty("http2-max-concurrent-streams", String.valueOf(maxConcurrentStreams));
+        properties.setProperty("idle-timeout", String.valueOf(idleTimeout));
+        properties.setProperty("no-request-timeout", String.valueOf(noRequestTimeout));
+        properties.setProperty("backlog", String.valueOf(backlog));
+        properties.setProperty("tls", String.valueOf(tls));
+        properties.setProperty("tls-keystore", keyStoreFile);
+        properties.setProperty("tls-keystore-password", keyStorePassword);
+        properties.setProperty("tls-keystore-type", keyStoreType);
+
+        try (OutputStream outputStream = Files.newOutputStream(file.toPath())) {
+            properties.store(outputStream, "VoxelDash web server. Timeouts are in milliseconds, 0 disables them. "
+                    + "The idle timeout also closes quiet websocket connections. HTTP/2 is negotiated via ALPN with TLS and via h2c upgrade without it");
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to write " + FILE_NAME, e);
+        }
+    }
+
+    /**
+     * Applies the thread, buffer, protocol and listener settings to a server builder
+     *
+     * @param builder the builder of the server
+     * @return the builder
+     * @throws IllegalStateException if TLS is enabled, but the key store could not be loaded
+     */
+    public Undertow.Builder apply(Undertow.Builder builder) {
+        builder.setIoThreads(ioThreads)
+                .setWorkerThreads(workerThreads)
+                .setBufferSize(bufferSize)
+                .setDirectBuffers(directBuffers)
+                .setSocketOption(Options.BACKLOG, backlog)
+                .setSocketOption(Options.TCP_NODELAY, true)
+                .setServerOption(UndertowOptions.ENABLE_HTTP2, http2)
+                .setServerOption(UndertowOptions.HTTP2_SETTINGS_MAX_CONCURRENT_STREAMS, maxConcurrentStreams)
+                .setServerOption(UndertowOptions.IDLE_TIMEOUT, idleTimeout)
+                .setServerOption(UndertowOptions.NO_REQUEST_TIMEOUT, noRequestTimeout)
+                .setServerOption(UndertowOptions.ALWAYS_SET_KEEP_ALIVE, true);
+
+        if (tls) {
+            builder.addHttpsListener(port, host, createSslContext());
+        } else {
+            builder.addHttpListener(port, host);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Creates the SSL context from the configured key store. There is no fallback to plain HTTP,
+     * as sessions and passwords would then be sent in cleartext
+     *
+     * @return the SSL context
+     * @throws IllegalStateException if the key store could not be loaded
+     */
+    private SSLContext createSslContext() {
+        File file = new File(keyStoreFile);
+        if (!file.isAbsolute()) file = new File(baseFolder, keyStoreFile);
+
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            char[] password = keyStorePassword.toCharArray();
+
+            KeyStore keyStore = KeyStore.getInstance(keyStoreType);
+            keyStore.load(inputStream, password);
+
+            KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(keyStore, password);
+
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+            return sslContext;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load the TLS key store " + file
+                    + ", fix it or set 'tls=false' in " + FILE_NAME, e);
+        }
+    }
+
+    /**
+     * Gets an integer property
+     *
+     * @param properties   the properties
+     * @param key          the key of the property
+     * @param defaultValue the value to use if the property is missing or invalid
+     * @return the value of the property
+     */
+    private static int getInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warning("Invalid value for " + key + " in " + FILE_NAME + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets a boolean property
+     *
+     * @param properties   the properties
+     * @param key          the key of the property
+     * @param defaultValue the value to use if the property is missing
+     * @return the value of the property
+     */
+    private static boolean getBoolean(Properties properties, String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Gets the host the listener binds to
+     *
+     * @return the host
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets the port the listener binds to
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Gets the amount of IO threads
+     *
+     * @return the amount of IO threads
+     */
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * Gets the amount of worker threads
+     *
+     * @return the amount of worker threads
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Checks if HTTP/2 is enabled
+     *
+     * @return true if HTTP/2 is enabled
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * Checks if the listener uses TLS
+     *
+     * @return true if the listener uses TLS
+     */
+    public boolean isTls() {
+        return tls;
+    }
+}
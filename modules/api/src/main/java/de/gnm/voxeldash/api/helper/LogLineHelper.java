@@ -0,0 +1,177 @@
+package de.gnm.voxeldash.api.helper;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Parses console lines in the '[HH:mm:ss] [Logger/LEVEL]: message' format used by all platforms
+ */
+public class LogLineHelper {
+
+    private static final Pattern ANSI_PATTERN = Pattern.compile("\u001B\\[[0-9;]*[A-Za-z]|\u00A7[0-9a-fk-orA-FK-OR]");
+    private static final String[] LEVELS = {"TRACE", "DEBUG", "INFO", "WARN", "ERROR"};
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * Removes ANSI escape sequences and Minecraft color codes from a line
+     *
+     * @param line the line
+     * @return the line without formatting codes
+     */
+    public static String stripFormatting(String line) {
+        if (line.indexOf('\u001B') == -1 && line.indexOf('\u00A7') == -1) return line;
+        return ANSI_PATTERN.matcher(line).replaceAll("");
+    }
+
+    /**
+     * Gets the '[Logger/LEVEL]' part of a line
+     *
+     * @param line the line without formatting codes
+     * @return the part between the brackets, or null if the line has another format
+     */
+    private static String getSource(String line) {
+        int start = line.indexOf("] [");
+        if (start == -1 || start > 16) return null;
+
+        int end = line.indexOf("]:", start + 3);
+        if (end == -1) return null;
+
+        return line.substring(start + 3, end);
+    }
+
+    /**
+     * Gets the level of a line. 'WARNING' and 'SEVERE' are mapped to 'WARN' and 'ERROR'
+     *
+     * @param line the line without formatting codes
+     * @return the level in upper case, or null if the line has no level
+     */
+    public static String getLevel(String line) {
+        String source = getSource(line);
+        if (source == null) return null;
+
+        String level = source.substring(source.lastIndexOf('/') + 1).trim().toUpperCase(Locale.ROOT);
+        switch (level) {
+            case "WARNING":
+                return "WARN";
+            case "SEVERE":
+            case "FATAL":
+                return "ERROR";
+            case "FINE":
+            case "FINER":
+            case "FINEST":
+                return "DEBUG";
+            default:
+                return getSeverity(level) == -1 ? null : level;
+        }
+    }
+
+    /**
+     * Gets the name of the logger (or thread) of a line
+     *
+     * @param line the line without formatting codes
+     * @return the logger name, or null if the line has no logger
+     */
+    public static String getLogger(String line) {
+        String source = getSource(line);
+        if (source == null) return null;
+
+        int separator = source.lastIndexOf('/');
+        return separator <= 0 ? null : source.substring(0, separator);
+    }
+
+    /**
+     * Gets the message of a line without the time and the '[Logger/LEVEL]' part
+     *
+     * @param line the line without formatting codes
+     * @return the message, or the whole line if it has another format
+     */
+    public static String getContent(String line) {
+        String source = getSource(line);
+        if (source == null) return line;
+
+        int start = line.indexOf("]:") + 2;
+        return start < line.length() ? line.substring(start).trim() : "";
+    }
+
+    /**
+     * Gets the severity of a level, so levels can be compared
+     *
+     * @param level the level in upper case
+     * @return the severity, higher is more severe, or -1 if the level is unknown
+     */
+    public static int getSeverity(String level) {
+        if (level == null) return -1;
+
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equals(level)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets all levels that are at least as severe as the given one
+     *
+     * @param minLevel the minimum level
+     * @return the levels, or an empty array if the level is unknown
+     */
+    public static String[] getLevelsFrom(String minLevel) {
+        int severity = getSeverity(minLevel);
+        if (severity == -1) return new String[0];
+
+        String[] levels = new String[LEVELS.length - severity];
+        System.arraycopy(LEVELS, severity, levels, 0, levels.length);
+        return levels;
+    }
+
+    /**
+     * Splits a text into lower case search tokens. Everything that is not a letter or digit separates tokens
+     *
+     * @param text the text
+     * @return the distinct tokens in the order they appear
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String word : getWords(text)) {
+            if (isToken(word)) tokens.add(word);
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits a text into lower case words, including the words that are too short or too long to be search tokens.
+     * Everything that is not a letter or digit separates words
+     *
+     * @param text the text
+     * @return the distinct words in the order they appear
+     */
+    public static Set<String> getWords(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+
+        for (int i = 0; i <= text.length(); i++) {
+            boolean partOfWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (partOfWord && start == -1) {
+                start = i;
+            } else if (!partOfWord && start != -1) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+
+        return words;
+    }
+
+    /**
+     * Checks if a word gets indexed as a search token. Shorter and longer words are not in the index
+     * and need to be looked up in the lines themselves
+     *
+     * @param word the word
+     * @return true if the word is a search token
+     */
+    public static boolean isToken(String word) {
+        return word.length() >= MIN_TOKEN_LENGTH && word.length() <= MAX_TOKEN_LENGTH;
+    }
+}
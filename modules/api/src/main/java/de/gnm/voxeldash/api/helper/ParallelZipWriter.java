@@ -0,0 +1,669 @@
+package de.gnm.voxeldash.api.helper;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a zip archive while the files are compressed in parallel. Every file is split into chunks that are
+ * deflated independently on a shared {@link ForkJoinPool}, and the compressed chunks are written in order, so the
+ * archive looks exactly like the one a {@link java.util.zip.ZipOutputStream} would write and can be read
+ * with a {@link java.util.zip.ZipInputStream}.
+ * <p>
+ * All chunks but the last one of a file end with a sync flush, so the chunks of a file form a single deflate
+ * stream. Files that fit into one chunk are written with their sizes in the local header and stored uncompressed
+ * if deflating does not make them smaller. Larger files use a data descriptor, as their sizes are only known
+ * once the last chunk is written. Only a limited number of chunks is compressed ahead of the writer.
+ */
+public class ParallelZipWriter implements Closeable {
+
+    static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    static final int MAX_PENDING_CHUNKS = PARALLELISM * 4;
+
+    private static final long LOCAL_HEADER_SIGNATURE = 0x04034b50L;
+    private static final long DATA_DESCRIPTOR_SIGNATURE = 0x08074b50L;
+    private static final long CENTRAL_HEADER_SIGNATURE = 0x02014b50L;
+    private static final long ZIP64_END_SIGNATURE = 0x06064b50L;
+    private static final long ZIP64_LOCATOR_SIGNATURE = 0x07064b50L;
+    private static final long END_SIGNATURE = 0x06054b50L;
+
+    private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+    private static final int FLAG_UTF8 = 0x800;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    /**
+     * Shared by all writers, so concurrent backups do not compete with more threads than there are cores.
+     * One core is left for the server itself
+     */
+    static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("VoxelDash-Zip-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    /**
+     * An empty, final deflate block. Ends a deflate stream after a sync flush
+     */
+    private static final byte[] FINAL_BLOCK = {0x03, 0x00};
+    private static final int MAX_STORED_BLOCK = 0xFFFF;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private final OutputStream out;
+    private final ArrayDeque<ForkJoinTask<Chunk>> pending = new ArrayDeque<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private long written;
+    private boolean finished;
+    private boolean failed;
+
+    /**
+     * Basic constructor of the {@link ParallelZipWriter}
+     *
+     * @param out The stream the archive gets written to. It is closed together with the writer
+     */
+    public ParallelZipWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Adds a file to the archive. The file is compressed in the background, this method only blocks
+     * while too many chunks are waiting to be written
+     *
+     * @param file      The file
+     * @param entryName The name of the entry in the archive
+     * @throws IOException if a previous file could not be read or written
+     */
+    public void addFile(File file, String entryName) throws IOException {
+        if (finished || failed) throw new IOException("The archive is already finished");
+
+        Entry entry = new Entry(entryName, toDosTime(file.lastModified()));
+        long length = file.length();
+        int chunks = (int) Math.max(1, (length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+
+        for (int i = 0; i < chunks; i++) {
+            writePending(MAX_PENDING_CHUNKS - 1);
+
+            long position = (long) i * CHUNK_SIZE;
+            int size = (int) Math.min(CHUNK_SIZE, Math.max(0, length - position));
+            boolean single = chunks == 1;
+            boolean last = i == chunks - 1;
+            pending.add(POOL.submit(() -> compress(file, entry, position, size, single, last)));
+        }
+    }
+
+    /**
+     * Adds an empty directory entry to the archive
+     *
+     * @param entryName    The name of the entry in the archive, without the trailing slash
+     * @param lastModified The time the directory was last modified in milliseconds
+     * @throws IOException if a previous file could not be read or written
+     */
+    public void addDirectory(String entryName, long lastModified) throws IOException {
+        if (finished || failed) throw new IOException("The archive is already finished");
+
+        Entry entry = new Entry(entryName + "/", toDosTime(lastModified));
+        writePending(MAX_PENDING_CHUNKS - 1);
+        pending.add(POOL.submit(() -> new Chunk(entry, true, true, METHOD_STORED, new byte[0], 0, 0, 0)));
+    }
+
+    /**
+     * Adds a file to the archive whose content is already deflated, e.g. by {@link #deflate(byte[], int, boolean)}.
+     * The chunks are read in the background and written as they are, followed by the end of the deflate stream
+     *
+     * @param entryName    The name of the entry in the archive
+     * @param lastModified The time the file was last modified in milliseconds
+     * @param chunks       The readers of the chunks, in order. All chunks need to end with a sync flush
+     * @throws IOException if a previous file could not be read or written
+     */
+    public void addDeflated(String entryName, long lastModified, List<ChunkReader> chunks) throws IOException {
+        if (finished || failed) throw new IOException("The archive is already finished");
+
+        Entry entry = new Entry(entryName, toDosTime(lastModified));
+        for (ChunkReader reader : chunks) {
+            writePending(MAX_PENDING_CHUNKS - 1);
+            pending.add(POOL.submit(() -> {
+                DeflatedChunk chunk = reader.read();
+                return new Chunk(entry, false, false, METHOD_DEFLATED, chunk.data, chunk.data.length, chunk.crc, chunk.size);
+            }));
+        }
+
+        writePending(MAX_PENDING_CHUNKS - 1);
+        pending.add(POOL.submit(() -> new Chunk(entry, false, true, METHOD_DEFLATED, FINAL_BLOCK, FINAL_BLOCK.length, 0, 0)));
+    }
+
+    /**
+     * Writes all remaining files and the central directory. The underlying stream is flushed, but not closed
+     *
+     * @throws IOException if a file could not be read or the archive could not be written
+     */
+    public void finish() throws IOException {
+        if (finished) return;
+        if (failed) throw new IOException("The archive could not be written completely");
+
+        writePending(0);
+        try {
+            writeCentralDirectory();
+            out.flush();
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+        finished = true;
+    }
+
+    /**
+     * Finishes the archive and closes the underlying stream. If a file could not be added,
+     * the archive is left incomplete and the chunks that are still compressed are discarded
+     *
+     * @throws IOException if the archive could not be finished
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!failed) finish();
+        } finally {
+            pending.forEach(task -> task.cancel(false));
+            pending.clear();
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the oldest chunks until only the given number of chunks is still pending
+     *
+     * @param maxPending The number of chunks that may stay pending
+     * @throws IOException if a chunk could not be compressed or written
+     */
+    private void writePending(int maxPending) throws IOException {
+        try {
+            while (pending.size() > maxPending) {
+                writeChunk(awaitNext());
+            }
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the oldest chunk that has not been written yet
+     *
+     * @return the compressed chunk
+     * @throws IOException if the chunk could not be compressed
+     */
+    private Chunk awaitNext() throws IOException {
+        ForkJoinTask<Chunk> task = pending.poll();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing the archive");
+        } catch (ExecutionException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) throw (IOException) cause;
+            }
+            throw new IOException("Could not compress a file", e.getCause());
+        }
+    }
+
+    /**
+     * Reads and compresses a chunk of a file. Runs on the pool
+     *
+     * @param file     The file
+     * @param entry    The entry the chunk belongs to
+     * @param position The position of the chunk in the file
+     * @param size     The size of the chunk
+     * @param single   true if the chunk is the whole file
+     * @param last     true if the chunk is the last one of the file
+     * @return the compressed chunk
+     * @throws IOException if the file could not be read
+     */
+    private static Chunk compress(File file, Entry entry, long position, int size, boolean single, boolean last) throws IOException {
+        byte[] input = new byte[size];
+        int length = read(file, position, input);
+
+        CRC32 crc = new CRC32();
+        crc.update(input, 0, length);
+
+        byte[] output = deflate(input, length, last);
+        if (single && output.length >= length) {
+            return new Chunk(entry, true, last, METHOD_STORED, input, length, crc.getValue(), length);
+        }
+        return new Chunk(entry, single, last, METHOD_DEFLATED, output, output.length, crc.getValue(), length);
+    }
+
+    /**
+     * Reads a part of a file. Fewer bytes are read if the file got shorter in the meantime
+     *
+     * @param file     The file
+     * @param position The position to start reading at
+     * @param input    The buffer to fill
+     * @return the number of bytes read
+     * @throws IOException if the file could not be read
+     */
+    static int read(File file, long position, byte[] input) throws IOException {
+        int length = 0;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(input);
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + length);
+                if (read == -1) break;
+                length += read;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Deflates a chunk with the deflater of the current thread
+     *
+     * @param input  The data
+     * @param length The length of the data
+     * @param last   true to end the deflate stream, false to end the chunk with a sync flush
+     * @return the raw deflate data
+     */
+    static byte[] deflate(byte[] input, int length, boolean last) {
+        return deflate(input, length, last, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Deflates a chunk with the deflater of the current thread
+     *
+     * @param input  The data
+     * @param length The length of the data
+     * @param last   true to end the deflate stream, false to end the chunk with a sync flush
+     * @param level  The compression level
+     * @return the raw deflate data
+     */
+    static byte[] deflate(byte[] input, int length, boolean last, int level) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(input, 0, length);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, length / 2));
+        byte[] buffer = new byte[Math.max(64, Math.min(length, 64 * 1024))];
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } else {
+            int count;
+            do {
+                count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                output.write(buffer, 0, count);
+            } while (count == buffer.length || !deflater.needsInput());
+        }
+
+        return output.toByteArray();
+    }
+
+    /**
+     * Wraps data into stored deflate blocks, which is what a sync flush produces for data that is not compressed
+     *
+     * @param input  The data
+     * @param length The length of the data
+     * @return the raw deflate data
+     */
+    static byte[] toStoredBlocks(byte[] input, int length) {
+        int blocks = (length + MAX_STORED_BLOCK - 1) / MAX_STORED_BLOCK;
+        byte[] output = new byte[length + blocks * 5];
+
+        int position = 0;
+        for (int offset = 0; offset < length; offset += MAX_STORED_BLOCK) {
+            int size = Math.min(MAX_STORED_BLOCK, length - offset);
+            output[position++] = 0x00;
+            output[position++] = (byte) size;
+            output[position++] = (byte) (size >>> 8);
+            output[position++] = (byte) ~size;
+            output[position++] = (byte) (~size >>> 8);
+            System.arraycopy(input, offset, output, position, size);
+            position += size;
+        }
+
+        return output;
+    }
+
+    /**
+     * Writes a compressed chunk, together with the local header before the first chunk of a file
+     * and the data descriptor after the last one
+     *
+     * @param chunk The chunk
+     * @throws IOException if the chunk could not be written
+     */
+    private void writeChunk(Chunk chunk) throws IOException {
+        Entry entry = chunk.entry;
+
+        if (entry.offset == -1) {
+            entry.offset = written;
+            entry.method = chunk.method;
+            if (chunk.single) {
+                entry.crc = chunk.crc;
+                entry.compressedSize = chunk.length;
+                entry.size = chunk.uncompressedSize;
+            } else {
+                entry.flags |= FLAG_DATA_DESCRIPTOR;
+            }
+            writeLocalHeader(entry);
+            entries.add(entry);
+        }
+
+        writeBytes(chunk.data, chunk.length);
+
+        if (!chunk.single) {
+            entry.crc = combineCrc(entry.crc, chunk.crc, chunk.uncompressedSize);
+            entry.compressedSize += chunk.length;
+            entry.size += chunk.uncompressedSize;
+
+            if (chunk.last) {
+                writeInt(DATA_DESCRIPTOR_SIGNATURE);
+                writeInt(entry.crc);
+                if (entry.compressedSize >= ZIP64_MAGIC || entry.size >= ZIP64_MAGIC) {
+                    writeLong(entry.compressedSize);
+                    writeLong(entry.size);
+                } else {
+                    writeInt(entry.compressedSize);
+                    writeInt(entry.size);
+                }
+            }
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        boolean sizesKnown = (entry.flags & FLAG_DATA_DESCRIPTOR) == 0;
+
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(VERSION_DEFAULT);
+        writeShort(entry.flags);
+        writeShort(entry.method);
+        writeInt(entry.dosTime);
+        writeInt(sizesKnown ? entry.crc : 0);
+        writeInt(sizesKnown ? entry.compressedSize : 0);
+        writeInt(sizesKnown ? entry.size : 0);
+        writeShort(entry.name.length);
+        writeShort(0);
+        writeBytes(entry.name, entry.name.length);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long start = written;
+
+        for (Entry entry : entries) {
+            boolean zip64Size = entry.size >= ZIP64_MAGIC;
+            boolean zip64CompressedSize = entry.compressedSize >= ZIP64_MAGIC;
+            boolean zip64Offset = entry.offset >= ZIP64_MAGIC;
+            int extraLength = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+            int version = extraLength > 0 ? VERSION_ZIP64 : VERSION_DEFAULT;
+
+            writeInt(CENTRAL_HEADER_SIGNATURE);
+            writeShort(version);
+            writeShort(version);
+            writeShort(entry.flags);
+            writeShort(entry.method);
+            writeInt(entry.dosTime);
+            writeInt(entry.crc);
+            writeInt(zip64CompressedSize ? ZIP64_MAGIC : entry.compressedSize);
+            writeInt(zip64Size ? ZIP64_MAGIC : entry.size);
+            writeShort(entry.name.length);
+            writeShort(extraLength > 0 ? extraLength + 4 : 0);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeInt(0);
+            writeInt(zip64Offset ? ZIP64_MAGIC : entry.offset);
+            writeBytes(entry.name, entry.name.length);
+
+            if (extraLength > 0) {
+                writeShort(0x0001);
+                writeShort(extraLength);
+                if (zip64Size) writeLong(entry.size);
+                if (zip64CompressedSize) writeLong(entry.compressedSize);
+                if (zip64Offset) writeLong(entry.offset);
+            }
+        }
+
+        long size = written - start;
+        long end = written;
+        boolean zip64 = entries.size() >= ZIP64_MAGIC_COUNT || size >= ZIP64_MAGIC || start >= ZIP64_MAGIC;
+
+        if (zip64) {
+            writeInt(ZIP64_END_SIGNATURE);
+            writeLong(44);
+            writeShort(VERSION_ZIP64);
+            writeShort(VERSION_ZIP64);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entries.size());
+            writeLong(entries.size());
+            writeLong(size);
+            writeLong(start);
+
+            writeInt(ZIP64_LOCATOR_SIGNATURE);
+            writeInt(0);
+            writeLong(end);
+            writeInt(1);
+        }
+
+        writeInt(END_SIGNATURE);
+        writeShort(0);
+        writeShort(0);
+        writeShort(Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+        writeShort(Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+        writeInt(Math.min(size, ZIP64_MAGIC));
+        writeInt(Math.min(start, ZIP64_MAGIC));
+        writeShort(0);
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        written += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value & ZIP64_MAGIC);
+        writeInt(value >>> 32);
+    }
+
+    private void writeBytes(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        written += length;
+    }
+
+    /**
+     * Converts a timestamp into the MS-DOS date and time used by zip entries
+     *
+     * @param time The time in milliseconds
+     * @return the date in the upper and the time in the lower 16 bits
+     */
+    private static long toDosTime(long time) {
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        if (date.getYear() < 1980) return (1 << 21) | (1 << 16);
+
+        return ((long) (date.getYear() - 1980) << 25) | ((long) date.getMonthValue() << 21) | ((long) date.getDayOfMonth() << 16)
+                | ((long) date.getHour() << 11) | ((long) date.getMinute() << 5) | (date.getSecond() >> 1);
+    }
+
+    /**
+     * Calculates the CRC-32 of two concatenated blocks from the checksums of both blocks, as done by zlib's crc32_combine
+     *
+     * @param crc1    The checksum of the first block
+     * @param crc2    The checksum of the second block
+     * @param length2 The length of the second block
+     * @return the checksum of both blocks
+     */
+    static long combineCrc(long crc1, long crc2, long length2) {
+        if (length2 <= 0) return crc1;
+
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        squareMatrix(even, odd);
+        squareMatrix(odd, even);
+
+        do {
+            squareMatrix(even, odd);
+            if ((length2 & 1) != 0) crc1 = multiplyMatrix(even, crc1);
+            length2 >>= 1;
+            if (length2 == 0) break;
+
+            squareMatrix(odd, even);
+            if ((length2 & 1) != 0) crc1 = multiplyMatrix(odd, crc1);
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long multiplyMatrix(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) sum ^= matrix[i];
+        }
+        return sum;
+    }
+
+    private static void squareMatrix(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = multiplyMatrix(matrix, matrix[n]);
+        }
+    }
+
+    /**
+     * Reads a chunk that is already deflated
+     */
+    @FunctionalInterface
+    public interface ChunkReader {
+
+        /**
+         * Reads the chunk
+         *
+         * @return the chunk
+         * @throws IOException if the chunk could not be read
+         */
+        DeflatedChunk read() throws IOException;
+    }
+
+    /**
+     * A chunk of a file that is already deflated and ends with a sync flush
+     */
+    public static class DeflatedChunk {
+        private final byte[] data;
+        private final long crc;
+        private final int size;
+
+        /**
+         * Basic constructor of the {@link DeflatedChunk}
+         *
+         * @param data The raw deflate data
+         * @param crc  The CRC-32 of the uncompressed data
+         * @param size The size of the uncompressed data
+         */
+        public DeflatedChunk(byte[] data, long crc, int size) {
+            this.data = data;
+            this.crc = crc;
+            this.size = size;
+        }
+
+        /**
+         * Gets the raw deflate data
+         *
+         * @return the raw deflate data
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Gets the CRC-32 of the uncompressed data
+         *
+         * @return the CRC-32 of the uncompressed data
+         */
+        public long getCrc() {
+            return crc;
+        }
+
+        /**
+         * Gets the size of the uncompressed data
+         *
+         * @return the size of the uncompressed data
+         */
+        public int getSize() {
+            return size;
+        }
+    }
+
+    private static class Entry {
+        private final byte[] name;
+        private final long dosTime;
+        private int flags = FLAG_UTF8;
+        private int method;
+        private long crc;
+        private long compressedSize;
+        private long size;
+        private long offset = -1;
+
+        private Entry(String name, long dosTime) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.dosTime = dosTime;
+        }
+    }
+
+    private static class Chunk {
+        private final Entry entry;
+        private final boolean single;
+        private final boolean last;
+        private final int method;
+        private final byte[] data;
+        private final int length;
+        private final long crc;
+        private final long uncompressedSize;
+
+        private Chunk(Entry entry, boolean single, boolean last, int method, byte[] data, int length, long crc, long uncompressedSize) {
+            this.entry = entry;
+            this.single = single;
+            this.last = last;
+            this.method = method;
+            this.data = data;
+            this.length = length;
+            this.crc = crc;
+            this.uncompressedSize = uncompressedSize;
+        }
+    }
+}
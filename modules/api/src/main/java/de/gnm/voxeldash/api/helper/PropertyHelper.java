@@ -30,6 +30,15 @@ public class PropertyHelper {
         }
     }
 
+    /**
+     * Gets the time the properties file was last modified
+     *
+     * @return the last modification time in milliseconds, or 0 if the file does not exist
+     */
+    public static long getLastModified() {
+        return PROPERTIES_FILE.lastModified();
+    }
+
     /**
      * Gets a specific property from the properties file
      *
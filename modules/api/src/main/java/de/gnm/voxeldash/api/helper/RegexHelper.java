@@ -0,0 +1,187 @@
+package de.gnm.voxeldash.api.helper;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles and runs patterns that come from clients. Patterns with nested quantifiers, which can take
+ * exponential time, are rejected, and every match is limited to a fixed amount of steps, so a pattern
+ * can never stall the thread that checks it.
+ */
+public class RegexHelper {
+
+    public static final int MAX_PATTERN_LENGTH = 256;
+    public static final int MAX_STEPS = 1_000_000;
+
+    /**
+     * Compiles a pattern from a client
+     *
+     * @param regex the pattern
+     * @return the compiled pattern
+     * @throws IllegalArgumentException if the pattern is too long, has nested quantifiers or is invalid
+     */
+    public static Pattern compile(String regex) {
+        if (regex.length() > MAX_PATTERN_LENGTH) {
+            throw new IllegalArgumentException("The pattern is longer than " + MAX_PATTERN_LENGTH + " characters");
+        }
+        if (hasNestedQuantifier(regex)) {
+            throw new IllegalArgumentException("Quantified groups must not contain quantifiers: " + regex);
+        }
+        return Pattern.compile(regex);
+    }
+
+    /**
+     * Checks if a pattern can be found in a text, giving up after {@link #MAX_STEPS} steps
+     *
+     * @param pattern the pattern
+     * @param text    the text
+     * @param onLimit the result if the match took too many steps
+     * @return true if the pattern was found
+     */
+    public static boolean find(Pattern pattern, String text, boolean onLimit) {
+        try {
+            return pattern.matcher(new BoundedCharSequence(text, MAX_STEPS)).find();
+        } catch (StepLimitException e) {
+            return onLimit;
+        }
+    }
+
+    /**
+     * Checks if a group that contains a quantifier is quantified itself, e.g. '(a+)+' or '(a|b*){2,}'.
+     * Escaped characters, character classes and quoted sections are skipped
+     *
+     * @param regex the pattern
+     * @return true if the pattern has a nested quantifier
+     */
+    private static boolean hasNestedQuantifier(String regex) {
+        Deque<Boolean> groups = new ArrayDeque<>();
+        boolean quantified = false;
+        boolean closedGroupQuantified = false;
+
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            boolean afterGroup = closedGroupQuantified;
+            closedGroupQuantified = false;
+
+            switch (c) {
+                case '\\' -> {
+                    if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                        int end = regex.indexOf("\\E", i + 2);
+                        i = end == -1 ? regex.length() : end + 1;
+                    } else {
+                        i++;
+                    }
+                }
+                case '[' -> i = skipCharacterClass(regex, i);
+                case '(' -> {
+                    groups.push(quantified);
+                    quantified = false;
+                }
+                case ')' -> {
+                    closedGroupQuantified = quantified;
+                    boolean outerQuantified = !groups.isEmpty() && groups.pop();
+                    quantified |= outerQuantified;
+                }
+                case '*', '+', '{' -> {
+                    if (afterGroup && isRepeating(regex, i)) return true;
+                    quantified |= isRepeating(regex, i);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if the quantifier at a position can repeat its element more than once
+     *
+     * @param regex    the pattern
+     * @param position the position of '*', '+' or '{'
+     * @return false for bounded quantifiers like '{0,1}' or '{1}'
+     */
+    private static boolean isRepeating(String regex, int position) {
+        if (regex.charAt(position) != '{') return true;
+
+        int end = regex.indexOf('}', position);
+        if (end == -1) return false;
+
+        String[] bounds = regex.substring(position + 1, end).split(",", -1);
+        try {
+            if (bounds.length == 1) return Integer.parseInt(bounds[0].trim()) > 1;
+            return bounds[1].trim().isEmpty() || Integer.parseInt(bounds[1].trim()) > 1;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds the end of a character class, which may contain escaped characters and nested classes
+     *
+     * @param regex the pattern
+     * @param start the position of the opening '['
+     * @return the position of the closing ']', or the end of the pattern
+     */
+    private static int skipCharacterClass(String regex, int start) {
+        int depth = 0;
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']' && i > start + 1 && --depth == 0) {
+                return i;
+            }
+        }
+        return regex.length();
+    }
+
+    /**
+     * A text that stops the matcher once it got read too often
+     */
+    private static class BoundedCharSequence implements CharSequence {
+
+        private final String text;
+        private final int[] remaining;
+
+        private BoundedCharSequence(String text, int steps) {
+            this(text, new int[]{steps});
+        }
+
+        private BoundedCharSequence(String text, int[] remaining) {
+            this.text = text;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--remaining[0] < 0) throw new StepLimitException();
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new BoundedCharSequence(text.substring(start, end), remaining);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static class StepLimitException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private StepLimitException() {
+            super(null, null, false, false);
+        }
+    }
+}
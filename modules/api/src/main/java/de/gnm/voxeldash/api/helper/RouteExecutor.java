@@ -0,0 +1,176 @@
+package de.gnm.voxeldash.api.helper;
+
+import de.gnm.voxeldash.api.http.RouteMeta;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+public class RouteExecutor {
+
+    private static final Logger LOG = Logger.getLogger("RouteExecutor");
+
+    private static final int FAST_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int FAST_QUEUE_SIZE = 256;
+    private static final int LONG_RUNNING_POOL_SIZE = 4;
+    private static final int LONG_RUNNING_QUEUE_SIZE = 32;
+    private static final int STREAMING_POOL_SIZE = 8;
+    private static final int STREAMING_QUEUE_SIZE = 64;
+
+    private final ExecutionMode mode;
+    private ExecutorService virtualExecutor;
+    private Executor fastExecutor;
+    private Executor longRunningExecutor;
+    private Executor streamingExecutor;
+
+    /**
+     * Basic constructor of the {@link RouteExecutor}
+     *
+     * @param mode The requested execution mode
+     */
+    public RouteExecutor(ExecutionMode mode) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            virtualExecutor = createVirtualExecutor();
+            if (virtualExecutor == null) {
+                LOG.info("Virtual threads are not supported by this Java version, falling back to pooled execution");
+                mode = ExecutionMode.POOLED;
+            }
+        }
+
+        this.mode = mode;
+
+        switch (mode) {
+            case VIRTUAL -> {
+                fastExecutor = virtualExecutor;
+                longRunningExecutor = new BoundedExecutor(virtualExecutor, LONG_RUNNING_POOL_SIZE);
+                streamingExecutor = virtualExecutor;
+            }
+            case POOLED -> {
+                fastExecutor = createPool("fast", FAST_POOL_SIZE, FAST_QUEUE_SIZE);
+                longRunningExecutor = createPool("long-running", LONG_RUNNING_POOL_SIZE, LONG_RUNNING_QUEUE_SIZE);
+                streamingExecutor = createPool("streaming", STREAMING_POOL_SIZE, STREAMING_QUEUE_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Dispatches the exchange to the executor matching the route.
+     * The server answers with 503 if the executor is saturated.
+     *
+     * @param exchange The HTTP request/response exchange
+     * @param route    The matched route
+     * @param handler  The handler that executes the route
+     */
+    public void dispatch(HttpServerExchange exchange, RouteMeta route, HttpHandler handler) {
+        Executor executor = route.isLongRunning() ? longRunningExecutor : fastExecutor;
+        if (executor == null) {
+            exchange.dispatch(handler);
+            return;
+        }
+
+        exchange.dispatch(executor, handler);
+    }
+
+    /**
+     * Hands the transfer of a streamed response over to the streaming executor,
+     * so that the current thread can be released
+     *
+     * @param exchange   The HTTP request/response exchange
+     * @param handler    The handler that transfers the response
+     * @param onRejected Called if the streaming executor is saturated and the server answers with 503 instead
+     * @return true if the transfer was dispatched, false if it should be done on the current thread
+     */
+    public boolean dispatchStream(HttpServerExchange exchange, HttpHandler handler, Runnable onRejected) {
+        if (mode != ExecutionMode.POOLED) return false;
+
+        exchange.dispatch(task -> {
+            try {
+                streamingExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                onRejected.run();
+                throw e;
+            }
+        }, handler);
+        return true;
+    }
+
+    /**
+     * Gets the execution mode that is actually used
+     *
+     * @return the execution mode
+     */
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Stops all executors
+     */
+    public void stop() {
+        if (virtualExecutor != null) virtualExecutor.shutdown();
+        if (fastExecutor instanceof ExecutorService) ((ExecutorService) fastExecutor).shutdown();
+        if (longRunningExecutor instanceof ExecutorService) ((ExecutorService) longRunningExecutor).shutdown();
+        if (streamingExecutor instanceof ExecutorService) ((ExecutorService) streamingExecutor).shutdown();
+    }
+
+    /**
+     * Creates a bounded thread pool
+     *
+     * @param name      The name of the pool
+     * @param size      The amount of threads
+     * @param queueSize The maximum amount of waiting tasks
+     * @return the thread pool
+     */
+    private static ExecutorService createPool(String name, int size, int queueSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "VoxelDash-" + name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor if the running Java version supports it
+     *
+     * @return the executor, or null if virtual threads are not supported
+     */
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Limits the amount of tasks that run concurrently on a delegate executor.
+     * Waiting tasks block on their own (virtual) thread instead of a queue.
+     */
+    private static class BoundedExecutor implements Executor {
+        private final Executor delegate;
+        private final Semaphore permits;
+
+        private BoundedExecutor(Executor delegate, int limit) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(limit);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            delegate.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+    }
+}
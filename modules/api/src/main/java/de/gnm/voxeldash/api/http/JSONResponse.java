@@ -1,16 +1,27 @@
 package de.gnm.voxeldash.api.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 
 public class JSONResponse extends Response {
 
-    private final ObjectMapper mapper = new ObjectMapper();
-    private final ObjectNode node = mapper.createObjectNode();
+    /**
+     * Shared mapper for all JSON responses. The generators neither close nor flush the
+     * target stream, so that small responses still get sent with a content length
+     */
+    static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+
+    private final ObjectNode node = MAPPER.createObjectNode();
 
     /**
      * Creates a new JSON response.
@@ -90,7 +101,21 @@ public class JSONResponse extends Response {
      */
     @Override
     public InputStream getInputStream() {
-        return new ByteArrayInputStream(node.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            return new ByteArrayInputStream(MAPPER.writeValueAsBytes(node));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Serializes the JSON response directly into the output stream
+     * @param outputStream The output stream to write to
+     * @throws IOException if the body could not be written
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        MAPPER.writeValue(outputStream, node);
     }
 
     @Override
@@ -0,0 +1,41 @@
+package de.gnm.voxeldash.api.http;
+
+import java.lang.reflect.Method;
+
+/**
+ * All request types a route method can accept
+ */
+public enum RequestType {
+
+    /**
+     * The route method does not take any parameters
+     */
+    NONE,
+
+    /**
+     * The route method takes a {@link JSONRequest}
+     */
+    JSON,
+
+    /**
+     * The route method takes a {@link RawRequest}
+     */
+    RAW;
+
+    /**
+     * Resolves the request type of a route method
+     *
+     * @param method The route method
+     * @return the request type, or null if the method signature is not supported
+     */
+    public static RequestType fromMethod(Method method) {
+        if (method.getParameterCount() == 0) return NONE;
+        if (method.getParameterCount() > 1) return null;
+
+        Class<?> parameterType = method.getParameterTypes()[0];
+        if (parameterType.equals(JSONRequest.class)) return JSON;
+        if (parameterType.equals(RawRequest.class)) return RAW;
+
+        return null;
+    }
+}
@@ -1,7 +1,9 @@
 package de.gnm.voxeldash.api.http;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 
@@ -10,6 +12,7 @@ public class Response {
     private int statusCode = 200;
     private ContentType contentType = ContentType.TEXT;
     private InputStream inputStream;
+    private boolean streaming = false;
     private HashMap<String, String> headers = new HashMap<>();
 
     /**
@@ -39,6 +42,37 @@ public class Response {
         return inputStream;
     }
 
+    /**
+     * Writes the body of the response to the given output stream
+     *
+     * @param outputStream The output stream to write to
+     * @throws IOException if the body could not be written
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        try (InputStream inputStream = getInputStream()) {
+            if (inputStream == null) return;
+            inputStream.transferTo(outputStream);
+        }
+    }
+
+    /**
+     * Closes the body of the response without sending it, e.g. if the response could not be dispatched
+     *
+     * @throws IOException if the body could not be closed
+     */
+    public void close() throws IOException {
+        if (inputStream != null) inputStream.close();
+    }
+
+    /**
+     * Check if the response was created from a stream (e.g. a file download)
+     *
+     * @return true if the response is streamed
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
     /**
      * Get the headers of the response
      *
@@ -78,6 +112,7 @@ public class Response {
      */
     public Response stream(InputStream inputStream) {
         this.inputStream = inputStream;
+        this.streaming = true;
         return this;
     }
 
@@ -89,6 +124,19 @@ public class Response {
      */
     public Response raw(String output) {
         this.inputStream = new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8));
+        this.streaming = false;
+        return this;
+    }
+
+    /**
+     * Set the raw output of the response
+     *
+     * @param output The raw output
+     * @return The response
+     */
+    public Response raw(byte[] output) {
+        this.inputStream = new ByteArrayInputStream(output);
+        this.streaming = false;
         return this;
     }
 
@@ -0,0 +1,38 @@
+package de.gnm.voxeldash.api.http;
+
+import java.util.Map;
+
+public class RouteMatch {
+
+    private final RouteMeta route;
+    private final Map<String, String> pathVariables;
+
+    /**
+     * Constructor for RouteMatch
+     *
+     * @param route         The matched route
+     * @param pathVariables The path variables extracted from the request path
+     */
+    public RouteMatch(RouteMeta route, Map<String, String> pathVariables) {
+        this.route = route;
+        this.pathVariables = pathVariables;
+    }
+
+    /**
+     * Get the matched route
+     *
+     * @return The matched route
+     */
+    public RouteMeta getRoute() {
+        return route;
+    }
+
+    /**
+     * Get the path variables extracted from the request path
+     *
+     * @return The path variables
+     */
+    public Map<String, String> getPathVariables() {
+        return pathVariables;
+    }
+}
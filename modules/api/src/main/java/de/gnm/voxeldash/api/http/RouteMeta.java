@@ -1,8 +1,19 @@
 package de.gnm.voxeldash.api.http;
 
+import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.Fingerprint;
+import de.gnm.voxeldash.api.annotations.LongRunning;
+import de.gnm.voxeldash.api.annotations.RequiresFeatures;
+import de.gnm.voxeldash.api.entities.Feature;
+import de.gnm.voxeldash.api.entities.PermissionLevel;
 import de.gnm.voxeldash.api.routes.BaseRoute;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 public class RouteMeta {
 
@@ -10,6 +21,15 @@ public class RouteMeta {
     private final Method method;
     private final HTTPMethod httpMethod;
     private final String path;
+    private final String[] parameterNames;
+    private final RequestType requestType;
+    private final MethodHandle invoker;
+    private final boolean authenticated;
+    private final boolean longRunning;
+    private final boolean fingerprinted;
+    private final MethodHandle fingerprinter;
+    private final Feature[] requiredFeatures;
+    private final PermissionLevel requiredLevel;
 
     /**
      * Constructor for RouteMeta
@@ -24,6 +44,85 @@ public class RouteMeta {
         this.method = method;
         this.httpMethod = httpMethod;
         this.path = path;
+        this.parameterNames = resolveParameterNames(path);
+
+        this.requestType = RequestType.fromMethod(method);
+        if (requestType == null) {
+            throw new IllegalArgumentException("Unsupported route signature: " + method);
+        }
+
+        this.invoker = createInvoker(route, method, requestType, Response.class);
+        this.authenticated = method.isAnnotationPresent(AuthenticatedRoute.class);
+        this.longRunning = method.isAnnotationPresent(LongRunning.class);
+
+        RequiresFeatures requiresFeatures = method.getAnnotation(RequiresFeatures.class);
+        this.requiredFeatures = requiresFeatures != null ? requiresFeatures.value() : new Feature[0];
+        this.requiredLevel = requiresFeatures != null ? requiresFeatures.level() : PermissionLevel.NONE;
+
+        Fingerprint fingerprint = method.getAnnotation(Fingerprint.class);
+        this.fingerprinted = fingerprint != null;
+        this.fingerprinter = fingerprint != null && !fingerprint.value().isEmpty()
+                ? createFingerprinter(route, fingerprint.value(), requestType) : null;
+    }
+
+    /**
+     * Creates a method handle for the fingerprint method of a route with the type (Request)long
+     *
+     * @param route       The route instance
+     * @param name        The name of the fingerprint method
+     * @param requestType The request type of the route method
+     * @return The bound method handle
+     */
+    private static MethodHandle createFingerprinter(BaseRoute route, String name, RequestType requestType) {
+        for (Method candidate : route.getClass().getMethods()) {
+            if (!candidate.getName().equals(name) || candidate.getReturnType() != long.class) continue;
+
+            RequestType fingerprintType = RequestType.fromMethod(candidate);
+            if (fingerprintType == RequestType.NONE || fingerprintType == requestType) {
+                return createInvoker(route, candidate, fingerprintType, long.class);
+            }
+        }
+
+        throw new IllegalArgumentException("No fingerprint method '" + name + "' found in " + route.getClass().getName());
+    }
+
+    /**
+     * Creates a method handle bound to the route instance with the type (Request)returnType
+     *
+     * @param route       The route instance
+     * @param method      The method to call
+     * @param requestType The request type of the method
+     * @param returnType  The return type of the handle
+     * @return The bound method handle
+     */
+    private static MethodHandle createInvoker(BaseRoute route, Method method, RequestType requestType, Class<?> returnType) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(method).bindTo(route);
+
+            if (requestType == RequestType.NONE) {
+                handle = MethodHandles.dropArguments(handle, 0, Request.class);
+            }
+
+            return handle.asType(MethodType.methodType(returnType, Request.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Route method is not accessible: " + method, e);
+        }
+    }
+
+    /**
+     * Resolves the names of all parameters (e.g. ':id') in the given path
+     *
+     * @param path The path of the route
+     * @return The parameter names in order of appearance
+     */
+    private static String[] resolveParameterNames(String path) {
+        List<String> names = new ArrayList<>();
+        for (String segment : RouteTable.splitPath(path)) {
+            if (RouteTable.isParameter(segment)) {
+                names.add(segment.substring(1));
+            }
+        }
+        return names.toArray(new String[0]);
     }
 
     /**
@@ -61,4 +160,98 @@ public class RouteMeta {
     public String getPath() {
         return path;
     }
+
+    /**
+     * Get the names of the path parameters of the route
+     *
+     * @return The parameter names in order of appearance
+     */
+    public String[] getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * Get the request type the route method accepts
+     *
+     * @return The request type
+     */
+    public RequestType getRequestType() {
+        return requestType;
+    }
+
+    /**
+     * Check if the route requires an authenticated user
+     *
+     * @return true if the route requires authentication
+     */
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    /**
+     * Check if the route can block for a long time
+     *
+     * @return true if the route is long-running
+     */
+    public boolean isLongRunning() {
+        return longRunning;
+    }
+
+    /**
+     * Check if the route supports conditional requests
+     *
+     * @return true if the route is annotated with {@link Fingerprint}
+     */
+    public boolean isFingerprinted() {
+        return fingerprinted;
+    }
+
+    /**
+     * Check if the route has a fingerprint method, so that it doesn't need to be executed for unchanged data
+     *
+     * @return true if the route has a fingerprint method
+     */
+    public boolean hasFingerprintMethod() {
+        return fingerprinter != null;
+    }
+
+    /**
+     * Get the features required for the route
+     *
+     * @return The required features, empty if none are required
+     */
+    public Feature[] getRequiredFeatures() {
+        return requiredFeatures;
+    }
+
+    /**
+     * Get the permission level required for the features of the route
+     *
+     * @return The required permission level
+     */
+    public PermissionLevel getRequiredLevel() {
+        return requiredLevel;
+    }
+
+    /**
+     * Invokes the route method
+     *
+     * @param request The request to pass to the route, ignored if the route does not take one
+     * @return The response of the route
+     * @throws Throwable if the route method throws an exception
+     */
+    public Response invoke(Request request) throws Throwable {
+        return (Response) invoker.invokeExact(request);
+    }
+
+    /**
+     * Invokes the fingerprint method of the route
+     *
+     * @param request The request to pass to the fingerprint method, ignored if it does not take one
+     * @return The time the data of the route was last modified, or a value &lt;= 0 if it is unknown
+     * @throws Throwable if the fingerprint method throws an exception
+     */
+    public long fingerprint(Request request) throws Throwable {
+        return (long) fingerprinter.invokeExact(request);
+    }
 }
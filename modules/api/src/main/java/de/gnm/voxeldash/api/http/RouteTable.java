@@ -0,0 +1,126 @@
+package de.gnm.voxeldash.api.http;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class RouteTable {
+
+    private final Map<String, Node> roots = new HashMap<>();
+
+    /**
+     * Registers a route in the table
+     *
+     * @param route The route to register
+     */
+    public void register(RouteMeta route) {
+        Node node = roots.computeIfAbsent(route.getHttpMethod().name(), k -> new Node());
+
+        for (String segment : splitPath(route.getPath())) {
+            if (isParameter(segment)) {
+                if (node.parameterChild == null) node.parameterChild = new Node();
+                node = node.parameterChild;
+            } else {
+                node = node.staticChildren.computeIfAbsent(segment, k -> new Node());
+            }
+        }
+
+        if (node.route == null) {
+            node.route = route;
+        }
+    }
+
+    /**
+     * Matches a request path against the registered routes.
+     * Static segments are preferred over parameter segments.
+     *
+     * @param requestMethod The HTTP method of the request
+     * @param path          The path of the request
+     * @return the matched route with its path variables, or null if no route was found
+     */
+    public RouteMatch match(String requestMethod, String path) {
+        Node root = roots.get(requestMethod);
+        if (root == null || !path.startsWith("/")) return null;
+
+        String[] segments = splitPath(path);
+        String[] values = new String[segments.length];
+
+        RouteMeta route = find(root, segments, 0, values, 0);
+        if (route == null) return null;
+
+        String[] parameterNames = route.getParameterNames();
+        Map<String, String> pathVariables = new HashMap<>(parameterNames.length * 2);
+        for (int i = 0; i < parameterNames.length; i++) {
+            pathVariables.put(parameterNames[i], values[i]);
+        }
+
+        return new RouteMatch(route, pathVariables);
+    }
+
+    /**
+     * Walks the tree to find a route for the given segments
+     *
+     * @param node       The current node
+     * @param segments   The segments of the request path
+     * @param index      The index of the current segment
+     * @param values     The captured parameter values
+     * @param valueCount The amount of captured parameter values
+     * @return the matched route, or null if no route was found
+     */
+    private RouteMeta find(Node node, String[] segments, int index, String[] values, int valueCount) {
+        if (index == segments.length) return node.route;
+
+        String segment = segments[index];
+
+        Node staticChild = node.staticChildren.get(segment);
+        if (staticChild != null) {
+            RouteMeta route = find(staticChild, segments, index + 1, values, valueCount);
+            if (route != null) return route;
+        }
+
+        if (node.parameterChild != null && !segment.isEmpty()) {
+            values[valueCount] = segment;
+            return find(node.parameterChild, segments, index + 1, values, valueCount + 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Splits a path into its segments, ignoring the leading slash
+     *
+     * @param path The path to split
+     * @return the segments of the path
+     */
+    static String[] splitPath(String path) {
+        int count = 1;
+        for (int i = 1; i < path.length(); i++) {
+            if (path.charAt(i) == '/') count++;
+        }
+
+        String[] segments = new String[count];
+        int start = 1;
+        for (int i = 0; i < count; i++) {
+            int end = path.indexOf('/', start);
+            if (end == -1) end = path.length();
+            segments[i] = path.substring(start, end);
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    /**
+     * Checks if a route segment is a parameter (e.g. ':id')
+     *
+     * @param segment The segment to check
+     * @return true if the segment is a parameter
+     */
+    static boolean isParameter(String segment) {
+        return segment.length() > 1 && segment.charAt(0) == ':';
+    }
+
+    private static class Node {
+        private final Map<String, Node> staticChildren = new HashMap<>();
+        private Node parameterChild;
+        private RouteMeta route;
+    }
+}
@@ -0,0 +1,78 @@
+package de.gnm.voxeldash.api.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A JSON response that is written field by field through a {@link JsonGenerator}
+ * directly into the response, without building a tree or an intermediate string first.
+ * The body is only generated once the response gets sent, so all checks that can fail
+ * need to happen before the response is created.
+ */
+public class StreamingJSONResponse extends Response {
+
+    private final JSONWriter writer;
+
+    /**
+     * Creates a new streaming JSON response
+     *
+     * @param writer The writer for the fields of the root object
+     */
+    public StreamingJSONResponse(JSONWriter writer) {
+        super();
+        this.writer = writer;
+        type(ContentType.JSON);
+    }
+
+    /**
+     * Writes the root object of the response to the output stream
+     *
+     * @param outputStream The output stream to write to
+     * @throws IOException if the body could not be written
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = JSONResponse.MAPPER.getFactory().createGenerator(outputStream)) {
+            generator.writeStartObject();
+            writer.write(generator);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Generates the body into memory. Only used if the body can't be written directly
+     *
+     * @return The JSON response as an {@link InputStream}
+     */
+    @Override
+    public InputStream getInputStream() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            writeTo(outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+    /**
+     * Writes the fields of the root object of a {@link StreamingJSONResponse}
+     */
+    @FunctionalInterface
+    public interface JSONWriter {
+
+        /**
+         * Writes the fields of the root object
+         *
+         * @param generator The generator, positioned inside the root object
+         * @throws IOException if the fields could not be written
+         */
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
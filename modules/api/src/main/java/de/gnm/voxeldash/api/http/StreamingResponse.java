@@ -0,0 +1,80 @@
+package de.gnm.voxeldash.api.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A response whose body is generated while it gets sent, e.g. a zip archive that is built from
+ * several files. The body is written directly into the response without a temporary file,
+ * so all checks that can fail need to happen before the response is created.
+ */
+public class StreamingResponse extends Response {
+
+    private final BodyWriter writer;
+
+    /**
+     * Creates a new streaming response
+     *
+     * @param writer The writer for the body
+     */
+    public StreamingResponse(BodyWriter writer) {
+        super();
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the body of the response to the output stream
+     *
+     * @param outputStream The output stream to write to
+     * @throws IOException if the body could not be written
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        writer.write(outputStream);
+    }
+
+    /**
+     * Streaming responses are always sent from the streaming executor
+     *
+     * @return true
+     */
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    /**
+     * Generates the body into memory. Only used if the body can't be written directly
+     *
+     * @return The body as an {@link InputStream}
+     */
+    @Override
+    public InputStream getInputStream() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            writeTo(outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+    /**
+     * Writes the body of a {@link StreamingResponse}
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+
+        /**
+         * Writes the body
+         *
+         * @param outputStream The output stream of the response
+         * @throws IOException if the body could not be written
+         */
+        void write(OutputStream outputStream) throws IOException;
+    }
+}
@@ -3,9 +3,12 @@ package de.gnm.voxeldash.api.routes;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.Fingerprint;
+import de.gnm.voxeldash.api.annotations.LongRunning;
 import de.gnm.voxeldash.api.annotations.Method;
 import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.annotations.RequiresFeatures;
+import de.gnm.voxeldash.api.entities.BackupCodec;
 import de.gnm.voxeldash.api.entities.BackupPart;
 import de.gnm.voxeldash.api.helper.BackupHelper;
 import de.gnm.voxeldash.api.entities.Feature;
@@ -14,6 +17,8 @@ import de.gnm.voxeldash.api.http.JSONRequest;
 import de.gnm.voxeldash.api.http.JSONResponse;
 import de.gnm.voxeldash.api.http.RawRequest;
 import de.gnm.voxeldash.api.http.Response;
+import de.gnm.voxeldash.api.http.StreamingResponse;
+import org.apache.commons.io.FilenameUtils;
 
 import java.io.BufferedInputStream;
 import java.io.File;
@@ -34,16 +39,19 @@ public class BackupRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(Feature.Backups)
+    @Fingerprint("backupsModified")
     @Path("/backups/list")
     @Method(GET)
     public Response listBackups() {
         ArrayNode backups = getMapper().createArrayNode();
         try {
             for (File backup : backupHelper.getBackups()) { ObjectNode backupNode = getMapper().createObjectNode();
-                String[] nameParts = backup.getName().replace(".zip", "").split("-");
+                String[] nameParts = FilenameUtils.getBaseName(backup.getName()).split("-");
 
                 backupNode.put("id", Long.parseLong(nameParts[0]));
-                backupNode.put("size", backup.length());
+                backupNode.put("size", backupHelper.getBackupSize(backup));
+                backupNode.put("incremental", backupHelper.isIncremental(backup));
+                backupNode.put("codec", backupHelper.getBackupCodec(backup));
 
                 ArrayNode partNames = getMapper().createArrayNode();
                 for (BackupPart part : BackupPart.fromBackupBit(Integer.parseInt(nameParts[1]))) {
@@ -60,6 +68,10 @@ public class BackupRouter extends BaseRoute {
         return new JSONResponse().add("backups", backups);
     }
 
+    public long backupsModified() {
+        return backupHelper.getLastModified();
+    }
+
     @AuthenticatedRoute
     @RequiresFeatures(Feature.Backups)
     @Path("/backups/download/:backupName")
@@ -72,6 +84,12 @@ public class BackupRouter extends BaseRoute {
         File backupFile = backupHelper.getBackup(backupName);
         if (backupFile == null) return new JSONResponse().error("Backup not found");
 
+        if (backupHelper.isIncremental(backupFile)) {
+            return new StreamingResponse(out -> backupHelper.writeZip(backupFile, out))
+                    .header("Content-Type", "application/zip")
+                    .header("Content-Disposition", "attachment; filename=\"" + FilenameUtils.getBaseName(backupFile.getName()) + ".zip\"");
+        }
+
         try {
             BufferedInputStream in = new BufferedInputStream(Files.newInputStream(backupFile.toPath()));
             return new Response()
@@ -86,6 +104,7 @@ public class BackupRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(value = Feature.Backups, level = PermissionLevel.FULL)
+    @LongRunning
     @Path("/backups/restore")
     @Method(POST)
     public Response restoreBackup(JSONRequest request) {
@@ -94,7 +113,11 @@ public class BackupRouter extends BaseRoute {
         String backupName = request.get("backupName");
         boolean haltAfterRestore = request.getBoolean("haltAfterRestore");
 
-        backupHelper.restoreBackup(backupName, haltAfterRestore);
+        try {
+            backupHelper.restoreBackup(backupName, haltAfterRestore);
+        } catch (Exception e) {
+            return new JSONResponse().error("Error restoring backup: " + e.getMessage());
+        }
 
         return new JSONResponse().message("Backup restored");
     }
@@ -119,6 +142,7 @@ public class BackupRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(value = Feature.Backups, level = PermissionLevel.FULL)
+    @LongRunning
     @Path("/backups/create")
     @Method(POST)
     public Response createBackup(JSONRequest request) {
@@ -137,7 +161,16 @@ public class BackupRouter extends BaseRoute {
                 return new JSONResponse().error("Invalid backup mode");
             }
 
-            backupHelper.createBackup(backupModeRaw, backupHelper.getBackupDirectories(backupBit).toArray(new File[0]));
+            BackupCodec codec = BackupCodec.DEFAULT;
+            if (request.has("codec")) {
+                try {
+                    codec = BackupCodec.parse(request.get("codec"));
+                } catch (IllegalArgumentException e) {
+                    return new JSONResponse().error("Invalid backup codec");
+                }
+            }
+
+            backupHelper.createBackup(backupModeRaw, codec, backupHelper.getBackupDirectories(backupBit).toArray(new File[0]));
             return new JSONResponse().message("Backup created");
         } catch (Exception e) {
             return new JSONResponse().error("Error creating backup: " + e.getMessage());
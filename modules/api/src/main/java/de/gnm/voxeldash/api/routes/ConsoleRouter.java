@@ -0,0 +1,105 @@
+package de.gnm.voxeldash.api.routes;
+
+import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.LongRunning;
+import de.gnm.voxeldash.api.annotations.Method;
+import de.gnm.voxeldash.api.annotations.Path;
+import de.gnm.voxeldash.api.annotations.RequiresFeatures;
+import de.gnm.voxeldash.api.controller.LogArchive;
+import de.gnm.voxeldash.api.entities.ConsoleLine;
+import de.gnm.voxeldash.api.entities.Feature;
+import de.gnm.voxeldash.api.helper.LogLineHelper;
+import de.gnm.voxeldash.api.http.JSONRequest;
+import de.gnm.voxeldash.api.http.JSONResponse;
+import de.gnm.voxeldash.api.http.Response;
+import de.gnm.voxeldash.api.http.StreamingJSONResponse;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static de.gnm.voxeldash.api.http.HTTPMethod.GET;
+
+public class ConsoleRouter extends BaseRoute {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    @AuthenticatedRoute
+    @RequiresFeatures(Feature.Console)
+    @LongRunning
+    @Path("/console/search")
+    @Method(GET)
+    public Response searchConsole(JSONRequest request) {
+        LogArchive archive = getLoader().getLogArchive();
+        if (archive == null) return new JSONResponse().error("The console archive is not available");
+
+        String query = getText(request, "query");
+        String level = getText(request, "level");
+        String logger = getText(request, "logger");
+
+        if (level != null && LogLineHelper.getSeverity(level.toUpperCase(Locale.ROOT)) == -1) {
+            return new JSONResponse().error("Unknown level: " + level);
+        }
+
+        Pattern regex = null;
+        String regexText = getText(request, "regex");
+        if (regexText != null) {
+            try {
+                regex = Pattern.compile(regexText);
+            } catch (PatternSyntaxException e) {
+                return new JSONResponse().error("Invalid regex: " + e.getDescription());
+            }
+        }
+
+        long from, to, before;
+        int limit;
+        try {
+            from = getLong(request, "from", 0);
+            to = getLong(request, "to", Long.MAX_VALUE);
+            before = getLong(request, "before", Long.MAX_VALUE);
+            limit = (int) Math.max(1, Math.min(getLong(request, "limit", DEFAULT_LIMIT), MAX_LIMIT));
+        } catch (NumberFormatException e) {
+            return new JSONResponse().error("Invalid number: " + e.getMessage());
+        }
+
+        List<ConsoleLine> lines = archive.search(query, level, logger, regex, from, to, before, limit + 1);
+        boolean hasMore = lines.size() > limit;
+        if (hasMore) lines = lines.subList(0, limit);
+        List<ConsoleLine> page = lines;
+
+        return new StreamingJSONResponse(json -> {
+            json.writeArrayFieldStart("lines");
+            for (ConsoleLine line : page) {
+                String text = LogLineHelper.stripFormatting(line.getMessage());
+                json.writeStartObject();
+                json.writeNumberField("seq", line.getSequence());
+                json.writeNumberField("timestamp", line.getTimestamp());
+                json.writeStringField("level", LogLineHelper.getLevel(text));
+                json.writeStringField("logger", LogLineHelper.getLogger(text));
+                json.writeStringField("message", line.getMessage());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            if (hasMore) {
+                json.writeNumberField("nextCursor", page.get(page.size() - 1).getSequence());
+            } else {
+                json.writeNullField("nextCursor");
+            }
+        });
+    }
+
+    private static String getText(JSONRequest request, String key) {
+        if (!request.has(key)) return null;
+
+        String value = request.get(key);
+        return value.isBlank() ? null : value;
+    }
+
+    private static long getLong(JSONRequest request, String key, long defaultValue) {
+        String value = getText(request, key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+}
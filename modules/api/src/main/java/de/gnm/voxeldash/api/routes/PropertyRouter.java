@@ -1,6 +1,7 @@
 package de.gnm.voxeldash.api.routes;
 
 import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.Fingerprint;
 import de.gnm.voxeldash.api.annotations.Method;
 import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.annotations.RequiresFeatures;
@@ -39,10 +40,15 @@ public class PropertyRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(Feature.Properties)
+    @Fingerprint("propertiesModified")
     @Path("/properties")
     @Method(GET)
     public JSONResponse getProperties() {
         return new JSONResponse().add("properties", PropertyHelper.getProperties());
     }
 
+    public long propertiesModified() {
+        return PropertyHelper.getLastModified();
+    }
+
 }
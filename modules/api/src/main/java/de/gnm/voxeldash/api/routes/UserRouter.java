@@ -8,6 +8,7 @@ import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.controller.AccountController;
 import de.gnm.voxeldash.api.controller.PermissionController;
 import de.gnm.voxeldash.api.controller.SessionController;
+import de.gnm.voxeldash.api.entities.Account;
 import de.gnm.voxeldash.api.entities.Feature;
 import de.gnm.voxeldash.api.entities.PermissionLevel;
 import de.gnm.voxeldash.api.entities.UserPermissions;
@@ -61,12 +62,12 @@ public class UserRouter extends BaseRoute {
         AccountController accountController = getController(AccountController.class);
         PermissionController permissionController = getController(PermissionController.class);
 
-        List<Map<String, Object>> users = accountController.getAllAccounts();
+        List<Account> users = accountController.getAllAccounts();
         List<Map<String, Object>> result = new ArrayList<>();
 
-        for (Map<String, Object> user : users) {
-            int userId = (int) user.get("id");
-            String username = (String) user.get("username");
+        for (Account user : users) {
+            int userId = user.getId();
+            String username = user.getUsername();
             
             UserPermissions permissions = permissionController.getPermissions(userId);
             boolean isAdmin = permissionController.isAdmin(userId);
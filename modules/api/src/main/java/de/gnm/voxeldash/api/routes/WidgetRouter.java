@@ -1,36 +1,36 @@
 package de.gnm.voxeldash.api.routes;
 
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.Fingerprint;
 import de.gnm.voxeldash.api.annotations.Method;
 import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.controller.WidgetRegistry;
 import de.gnm.voxeldash.api.entities.widget.Widget;
-import de.gnm.voxeldash.api.entities.widget.WidgetDataPoint;
+import de.gnm.voxeldash.api.helper.JsonWriterHelper;
 import de.gnm.voxeldash.api.http.JSONResponse;
 import de.gnm.voxeldash.api.http.RawRequest;
 import de.gnm.voxeldash.api.http.Response;
+import de.gnm.voxeldash.api.http.StreamingJSONResponse;
 
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
 
 import static de.gnm.voxeldash.api.http.HTTPMethod.GET;
 
 public class WidgetRouter extends BaseRoute {
 
     @AuthenticatedRoute
+    @Fingerprint("widgetsModified")
     @Path("/widgets")
     @Method(GET)
     public Response listWidgets() {
         WidgetRegistry registry = getLoader().getWidgetRegistry();
 
-        ArrayNode widgetsArray = getMapper().createArrayNode();
-        for (Widget widget : registry.getAllWidgets()) {
-            widgetsArray.add(widgetToJson(widget, false));
-        }
+        return new StreamingJSONResponse(json -> writeWidgets(json, registry.getAllWidgets(), false));
+    }
 
-        return new JSONResponse().add("widgets", widgetsArray);
+    public long widgetsModified() {
+        return getLoader().getWidgetRegistry().getLastModified();
     }
 
     @AuthenticatedRoute
@@ -46,7 +46,10 @@ public class WidgetRouter extends BaseRoute {
             return new JSONResponse().error("Widget not found", 404);
         }
 
-        return new JSONResponse().add("widget", widgetToJson(widget, true));
+        return new StreamingJSONResponse(json -> {
+            json.writeFieldName("widget");
+            writeWidget(json, widget, true);
+        });
     }
 
     @AuthenticatedRoute
@@ -55,65 +58,22 @@ public class WidgetRouter extends BaseRoute {
     public Response getAllWidgetData() {
         WidgetRegistry registry = getLoader().getWidgetRegistry();
 
-        ArrayNode widgetsArray = getMapper().createArrayNode();
-        for (Widget widget : registry.getAllWidgets()) {
-            widgetsArray.add(widgetToJson(widget, true));
-        }
-
-        return new JSONResponse().add("widgets", widgetsArray);
+        return new StreamingJSONResponse(json -> writeWidgets(json, registry.getAllWidgets(), true));
     }
 
-    private ObjectNode widgetToJson(Widget widget, boolean includeData) {
-        ObjectNode node = getMapper().createObjectNode();
-        node.put("id", widget.getId());
-        node.put("translationKey", widget.getTranslationKey());
-        node.put("type", widget.getType().name());
-        node.put("color", widget.getColor());
-
-        if (widget.getUnit() != null) {
-            node.put("unit", widget.getUnit());
+    private void writeWidgets(JsonGenerator json, Iterable<Widget> widgets, boolean includeData) throws IOException {
+        json.writeArrayFieldStart("widgets");
+        for (Widget widget : widgets) {
+            writeWidget(json, widget, includeData);
         }
+        json.writeEndArray();
+    }
 
-        ObjectNode sizeNode = getMapper().createObjectNode();
-        sizeNode.put("width", widget.getDefaultSize().getWidth());
-        sizeNode.put("height", widget.getDefaultSize().getHeight());
-        sizeNode.put("minWidth", widget.getDefaultSize().getMinWidth());
-        sizeNode.put("minHeight", widget.getDefaultSize().getMinHeight());
-        node.set("defaultSize", sizeNode);
-
+    private void writeWidget(JsonGenerator json, Widget widget, boolean includeData) throws IOException {
         if (includeData) {
-            List<WidgetDataPoint> dataPoints = widget.getData();
-            if (dataPoints != null && !dataPoints.isEmpty()) {
-                ArrayNode dataArray = getMapper().createArrayNode();
-                for (WidgetDataPoint point : dataPoints) {
-                    ObjectNode pointNode = getMapper().createObjectNode();
-                    pointNode.put("timestamp", point.getTimestamp());
-                    pointNode.put("label", point.getLabel());
-                    pointNode.put("value", point.getValue());
-                    dataArray.add(pointNode);
-                }
-                node.set("data", dataArray);
-            }
-
-            Map<String, Object> metadata = widget.getMetadata();
-            if (metadata != null && !metadata.isEmpty()) {
-                ObjectNode metaNode = getMapper().createObjectNode();
-                for (Map.Entry<String, Object> entry : metadata.entrySet()) {
-                    Object value = entry.getValue();
-                    if (value instanceof String) {
-                        metaNode.put(entry.getKey(), (String) value);
-                    } else if (value instanceof Number) {
-                        metaNode.put(entry.getKey(), ((Number) value).doubleValue());
-                    } else if (value instanceof Boolean) {
-                        metaNode.put(entry.getKey(), (Boolean) value);
-                    } else if (value != null) {
-                        metaNode.put(entry.getKey(), value.toString());
-                    }
-                }
-                node.set("metadata", metaNode);
-            }
+            JsonWriterHelper.writeWidget(json, widget, widget.getData(), widget.getMetadata());
+        } else {
+            JsonWriterHelper.writeWidget(json, widget, null, null);
         }
-
-        return node;
     }
 }
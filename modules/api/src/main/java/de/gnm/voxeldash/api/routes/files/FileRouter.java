@@ -1,7 +1,7 @@
 package de.gnm.voxeldash.api.routes.files;
 
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.LongRunning;
 import de.gnm.voxeldash.api.annotations.Method;
 import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.annotations.RequiresFeatures;
@@ -11,6 +11,7 @@ import de.gnm.voxeldash.api.http.JSONRequest;
 import de.gnm.voxeldash.api.http.JSONResponse;
 import de.gnm.voxeldash.api.http.RawRequest;
 import de.gnm.voxeldash.api.http.Response;
+import de.gnm.voxeldash.api.http.StreamingJSONResponse;
 import de.gnm.voxeldash.api.routes.BaseRoute;
 import de.gnm.voxeldash.api.helper.FileHelper;
 
@@ -40,12 +41,13 @@ public class FileRouter extends BaseRoute {
                 return new JSONResponse().error("The directory does not exist");
             }
 
-            ArrayNode files = FileHelper.getFilesAsJsonArray(Objects.requireNonNull(directory.listFiles()));
-            JSONResponse response = new JSONResponse();
-            response.add("files", files);
-            response.add("count", files.size());
+            File[] files = Objects.requireNonNull(directory.listFiles());
 
-            return response;
+            return new StreamingJSONResponse(json -> {
+                json.writeFieldName("files");
+                int count = FileHelper.writeFilesAsJsonArray(json, files);
+                json.writeNumberField("count", count);
+            });
         } catch (Exception e) {
             return new JSONResponse().error("Error accessing directory: " + e.getMessage());
         }
@@ -216,6 +218,7 @@ public class FileRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(value = Feature.FileManager, level = PermissionLevel.FULL)
+    @LongRunning
     @Path("/files/upload/stop")
     @Method(POST)
     public Response finalizeUpload(JSONRequest request) {
@@ -273,6 +276,7 @@ public class FileRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(value = Feature.FileManager, level = PermissionLevel.FULL)
+    @LongRunning
     @Path("/files/copy")
     @Method(POST)
     public Response copyFile(JSONRequest request) {
@@ -1,6 +1,7 @@
 package de.gnm.voxeldash.api.routes.files;
 
 import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.LongRunning;
 import de.gnm.voxeldash.api.annotations.Method;
 import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.annotations.RequiresFeatures;
@@ -11,6 +12,7 @@ import de.gnm.voxeldash.api.helper.FileHelper;
 import de.gnm.voxeldash.api.http.JSONRequest;
 import de.gnm.voxeldash.api.http.JSONResponse;
 import de.gnm.voxeldash.api.http.Response;
+import de.gnm.voxeldash.api.http.StreamingResponse;
 import de.gnm.voxeldash.api.routes.BaseRoute;
 import org.apache.commons.io.FileUtils;
 
@@ -108,6 +110,7 @@ public class FolderRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(Feature.FileManager)
+    @LongRunning
     @Path("/folder/download")
     @Method(GET)
     public Response downloadFolder(JSONRequest request) {
@@ -126,12 +129,9 @@ public class FolderRouter extends BaseRoute {
                 return new JSONResponse().error("Cannot download the server root directory");
             }
 
-            InputStream zipStream = ArchiveHelper.createZipStream(directory);
-
-            return new Response()
+            return new StreamingResponse(out -> ArchiveHelper.writeZip(directory, out))
                     .header("Content-Type", "application/zip")
-                    .header("Content-Disposition", "attachment; filename=\"" + directory.getName() + ".zip\"")
-                    .stream(zipStream);
+                    .header("Content-Disposition", "attachment; filename=\"" + directory.getName() + ".zip\"");
         } catch (Exception e) {
             return new JSONResponse().error("Error downloading folder: " + e.getMessage());
         }
@@ -139,6 +139,7 @@ public class FolderRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(value = Feature.FileManager, level = PermissionLevel.FULL)
+    @LongRunning
     @Path("/folder/copy")
     @Method(POST)
     public Response copyFolder(JSONRequest request) {
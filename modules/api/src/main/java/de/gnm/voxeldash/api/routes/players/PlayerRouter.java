@@ -11,14 +11,19 @@ import de.gnm.voxeldash.api.entities.Feature;
 import de.gnm.voxeldash.api.entities.OfflinePlayer;
 import de.gnm.voxeldash.api.entities.OnlinePlayer;
 import de.gnm.voxeldash.api.entities.PermissionLevel;
+import de.gnm.voxeldash.api.helper.JsonWriterHelper;
 import de.gnm.voxeldash.api.http.JSONRequest;
 import de.gnm.voxeldash.api.http.JSONResponse;
+import de.gnm.voxeldash.api.http.Response;
+import de.gnm.voxeldash.api.http.StreamingJSONResponse;
 import de.gnm.voxeldash.api.pipes.players.BanPipe;
 import de.gnm.voxeldash.api.pipes.players.OnlinePlayerPipe;
 import de.gnm.voxeldash.api.pipes.players.OperatorPipe;
 import de.gnm.voxeldash.api.pipes.players.WhitelistPipe;
 import de.gnm.voxeldash.api.routes.BaseRoute;
 
+import java.util.List;
+
 import static de.gnm.voxeldash.api.http.HTTPMethod.*;
 
 public class PlayerRouter extends BaseRoute {
@@ -27,25 +32,17 @@ public class PlayerRouter extends BaseRoute {
     @RequiresFeatures(Feature.Players)
     @Path("/players/online")
     @Method(GET)
-    public JSONResponse getOnlinePlayers() {
+    public Response getOnlinePlayers() {
         OnlinePlayerPipe pipe = getPipe(OnlinePlayerPipe.class);
-        ArrayNode players = getMapper().createArrayNode();
-
-        for (OnlinePlayer player : pipe.getOnlinePlayers()) {
-            ObjectNode playerNode = getMapper().createObjectNode();
-            playerNode.put("name", player.getName());
-            playerNode.put("uuid", player.getUuid().toString());
-            playerNode.put("world", player.getWorld());
-            playerNode.put("ipAddress", player.getIpAddress());
-            playerNode.put("health", player.getHealth());
-            playerNode.put("hunger", player.getHunger());
-            playerNode.put("op", player.isOp());
-            playerNode.put("gamemode", player.getGamemode());
-            playerNode.put("playtime", player.getPlaytime());
-            players.add(playerNode);
-        }
-
-        return new JSONResponse().add("players", players);
+        List<OnlinePlayer> players = pipe.getOnlinePlayers();
+
+        return new StreamingJSONResponse(json -> {
+            json.writeArrayFieldStart("players");
+            for (OnlinePlayer player : players) {
+                JsonWriterHelper.writeOnlinePlayer(json, player);
+            }
+            json.writeEndArray();
+        });
     }
 
     @AuthenticatedRoute
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.Fingerprint;
 import de.gnm.voxeldash.api.annotations.Method;
 import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.annotations.RequiresFeatures;
@@ -39,6 +40,7 @@ public class ResourceRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(Feature.Resources)
+    @Fingerprint
     @Path("/resources/list")
     @Method(GET)
     public JSONResponse getResources(JSONRequest request) {
@@ -1,8 +1,10 @@
 package de.gnm.voxeldash.api.routes.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.LongRunning;
 import de.gnm.voxeldash.api.annotations.Method;
 import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.annotations.RequiresFeatures;
@@ -12,12 +14,15 @@ import de.gnm.voxeldash.api.entities.PermissionLevel;
 import de.gnm.voxeldash.api.entities.ResourceType;
 import de.gnm.voxeldash.api.http.JSONRequest;
 import de.gnm.voxeldash.api.http.JSONResponse;
+import de.gnm.voxeldash.api.http.Response;
+import de.gnm.voxeldash.api.http.StreamingJSONResponse;
 import de.gnm.voxeldash.api.pipes.ServerInfoPipe;
 import de.gnm.voxeldash.api.pipes.resources.ResourcePipe;
 import de.gnm.voxeldash.api.routes.BaseRoute;
 import de.gnm.voxeldash.api.store.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
@@ -114,9 +119,10 @@ public class StoreRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(Feature.Resources)
+    @LongRunning
     @Path("/store/search")
     @Method(GET)
-    public JSONResponse search(JSONRequest request) {
+    public Response search(JSONRequest request) {
         String providerId = request.has("provider") ? request.get("provider") : "modrinth";
         StoreProvider provider = StoreProviderRegistry.getInstance().getProvider(providerId);
         if (provider == null) {
@@ -151,29 +157,33 @@ public class StoreRouter extends BaseRoute {
         }
 
         StoreSearchResult result = provider.search(query, resourceType, gameVersion, loader, page, pageSize);
-
-        ObjectNode response = getMapper().createObjectNode();
-        response.put("totalHits", result.getTotalHits());
-        response.put("page", result.getPage());
-        response.put("pageSize", result.getPageSize());
-        response.put("totalPages", result.getTotalPages());
-        response.put("gameVersion", gameVersion);
-        response.put("loader", loader);
-
-        ArrayNode projectsArray = getMapper().createArrayNode();
-        for (StoreProject project : result.getProjects()) {
-            projectsArray.add(projectToJson(project));
-        }
-        response.set("projects", projectsArray);
-
-        return new JSONResponse().add("result", response);
+        String resultGameVersion = gameVersion;
+        String resultLoader = loader;
+
+        return new StreamingJSONResponse(json -> {
+            json.writeObjectFieldStart("result");
+            json.writeNumberField("totalHits", result.getTotalHits());
+            json.writeNumberField("page", result.getPage());
+            json.writeNumberField("pageSize", result.getPageSize());
+            json.writeNumberField("totalPages", result.getTotalPages());
+            json.writeStringField("gameVersion", resultGameVersion);
+            json.writeStringField("loader", resultLoader);
+
+            json.writeArrayFieldStart("projects");
+            for (StoreProject project : result.getProjects()) {
+                writeProject(json, project);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        });
     }
 
     @AuthenticatedRoute
     @RequiresFeatures(Feature.Resources)
+    @LongRunning
     @Path("/store/project")
     @Method(GET)
-    public JSONResponse getProject(JSONRequest request) {
+    public Response getProject(JSONRequest request) {
         String providerId = request.has("provider") ? request.get("provider") : "modrinth";
         StoreProvider provider = StoreProviderRegistry.getInstance().getProvider(providerId);
         if (provider == null) {
@@ -190,14 +200,18 @@ public class StoreRouter extends BaseRoute {
             return new JSONResponse().error("Project not found");
         }
 
-        return new JSONResponse().add("project", projectToJson(project));
+        return new StreamingJSONResponse(json -> {
+            json.writeFieldName("project");
+            writeProject(json, project);
+        });
     }
 
     @AuthenticatedRoute
     @RequiresFeatures(Feature.Resources)
+    @LongRunning
     @Path("/store/versions")
     @Method(GET)
-    public JSONResponse getVersions(JSONRequest request) {
+    public Response getVersions(JSONRequest request) {
         String providerId = request.has("provider") ? request.get("provider") : "modrinth";
         StoreProvider provider = StoreProviderRegistry.getInstance().getProvider(providerId);
         if (provider == null) {
@@ -231,20 +245,23 @@ public class StoreRouter extends BaseRoute {
         }
 
         StoreVersion[] versions = provider.getVersions(projectId, gameVersion, loader);
+        String resultGameVersion = gameVersion;
+        String resultLoader = loader;
 
-        ArrayNode versionsArray = getMapper().createArrayNode();
-        for (StoreVersion version : versions) {
-            versionsArray.add(versionToJson(version));
-        }
-
-        return new JSONResponse()
-                .add("versions", versionsArray)
-                .add("gameVersion", gameVersion)
-                .add("loader", loader);
+        return new StreamingJSONResponse(json -> {
+            json.writeArrayFieldStart("versions");
+            for (StoreVersion version : versions) {
+                writeVersion(json, version);
+            }
+            json.writeEndArray();
+            json.writeStringField("gameVersion", resultGameVersion);
+            json.writeStringField("loader", resultLoader);
+        });
     }
 
     @AuthenticatedRoute
     @RequiresFeatures(value = Feature.Resources, level = PermissionLevel.FULL)
+    @LongRunning
     @Path("/store/install")
     @Method(POST)
     public JSONResponse installResource(JSONRequest request) {
@@ -386,63 +403,54 @@ public class StoreRouter extends BaseRoute {
         return resourcePipe.getResourceFolder(type);
     }
 
-    private ObjectNode projectToJson(StoreProject project) {
-        ObjectNode node = getMapper().createObjectNode();
-        node.put("id", project.getId());
-        node.put("slug", project.getSlug());
-        node.put("name", project.getName());
-        node.put("description", project.getDescription());
-        node.put("author", project.getAuthor());
-        node.put("iconUrl", project.getIconUrl());
-        node.put("downloads", project.getDownloads());
-        node.put("projectType", project.getProjectType());
-        node.put("dateCreated", project.getDateCreated());
-        node.put("dateModified", project.getDateModified());
-        node.put("latestVersion", project.getLatestVersion());
-
-        ArrayNode versionsArray = getMapper().createArrayNode();
-        for (String version : project.getGameVersions()) {
-            versionsArray.add(version);
-        }
-        node.set("gameVersions", versionsArray);
-
-        return node;
+    private void writeProject(JsonGenerator json, StoreProject project) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", project.getId());
+        json.writeStringField("slug", project.getSlug());
+        json.writeStringField("name", project.getName());
+        json.writeStringField("description", project.getDescription());
+        json.writeStringField("author", project.getAuthor());
+        json.writeStringField("iconUrl", project.getIconUrl());
+        json.writeNumberField("downloads", project.getDownloads());
+        json.writeStringField("projectType", project.getProjectType());
+        json.writeStringField("dateCreated", project.getDateCreated());
+        json.writeStringField("dateModified", project.getDateModified());
+        json.writeStringField("latestVersion", project.getLatestVersion());
+
+        json.writeFieldName("gameVersions");
+        json.writeArray(project.getGameVersions(), 0, project.getGameVersions().length);
+
+        json.writeEndObject();
     }
 
-    private ObjectNode versionToJson(StoreVersion version) {
-        ObjectNode node = getMapper().createObjectNode();
-        node.put("id", version.getId());
-        node.put("projectId", version.getProjectId());
-        node.put("name", version.getName());
-        node.put("versionNumber", version.getVersionNumber());
-        node.put("changelog", version.getChangelog());
-        node.put("versionType", version.getVersionType());
-        node.put("downloads", version.getDownloads());
-        node.put("datePublished", version.getDatePublished());
-
-        ArrayNode gameVersionsArray = getMapper().createArrayNode();
-        for (String gv : version.getGameVersions()) {
-            gameVersionsArray.add(gv);
-        }
-        node.set("gameVersions", gameVersionsArray);
+    private void writeVersion(JsonGenerator json, StoreVersion version) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", version.getId());
+        json.writeStringField("projectId", version.getProjectId());
+        json.writeStringField("name", version.getName());
+        json.writeStringField("versionNumber", version.getVersionNumber());
+        json.writeStringField("changelog", version.getChangelog());
+        json.writeStringField("versionType", version.getVersionType());
+        json.writeNumberField("downloads", version.getDownloads());
+        json.writeStringField("datePublished", version.getDatePublished());
 
-        ArrayNode loadersArray = getMapper().createArrayNode();
-        for (String loader : version.getLoaders()) {
-            loadersArray.add(loader);
-        }
-        node.set("loaders", loadersArray);
+        json.writeFieldName("gameVersions");
+        json.writeArray(version.getGameVersions(), 0, version.getGameVersions().length);
+
+        json.writeFieldName("loaders");
+        json.writeArray(version.getLoaders(), 0, version.getLoaders().length);
 
-        ArrayNode filesArray = getMapper().createArrayNode();
+        json.writeArrayFieldStart("files");
         for (StoreFile file : version.getFiles()) {
-            ObjectNode fileNode = getMapper().createObjectNode();
-            fileNode.put("url", file.getUrl());
-            fileNode.put("filename", file.getFilename());
-            fileNode.put("primary", file.isPrimary());
-            fileNode.put("size", file.getSize());
-            filesArray.add(fileNode);
+            json.writeStartObject();
+            json.writeStringField("url", file.getUrl());
+            json.writeStringField("filename", file.getFilename());
+            json.writeBooleanField("primary", file.isPrimary());
+            json.writeNumberField("size", file.getSize());
+            json.writeEndObject();
         }
-        node.set("files", filesArray);
+        json.writeEndArray();
 
-        return node;
+        json.writeEndObject();
     }
 }
@@ -3,6 +3,8 @@ package de.gnm.voxeldash.api.routes.worlds;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.gnm.voxeldash.api.annotations.AuthenticatedRoute;
+import de.gnm.voxeldash.api.annotations.Fingerprint;
+import de.gnm.voxeldash.api.annotations.LongRunning;
 import de.gnm.voxeldash.api.annotations.Method;
 import de.gnm.voxeldash.api.annotations.Path;
 import de.gnm.voxeldash.api.annotations.RequiresFeatures;
@@ -20,6 +22,7 @@ public class WorldRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(Feature.Worlds)
+    @Fingerprint
     @Path("/worlds")
     @Method(GET)
     public JSONResponse getWorlds() {
@@ -90,6 +93,7 @@ public class WorldRouter extends BaseRoute {
 
     @AuthenticatedRoute
     @RequiresFeatures(value = Feature.Worlds, level = PermissionLevel.FULL)
+    @LongRunning
     @Path("/worlds/create")
     @Method(POST)
     public JSONResponse createWorld(JSONRequest request) {
@@ -165,19 +165,11 @@ public class VoxelDashBungee extends Plugin {
         registry.registerAction(new ScheduleAction(
             "backup",
             "schedules.actions.backup",
-            ActionInputType.NUMBER,
+            ActionInputType.TEXT,
             "schedules.actions.backup_input",
             metadata -> {
                 try {
-                    int backupMode = 0;
-                    if (metadata != null && !metadata.isEmpty()) {
-                        try {
-                            backupMode = Integer.parseInt(metadata);
-                        } catch (NumberFormatException ignored) {
-                        }
-                    }
-                    backupHelper.createBackup(String.valueOf(backupMode),
-                        backupHelper.getBackupDirectories(backupMode).toArray(new File[0]));
+                    backupHelper.createScheduledBackup(metadata);
                 } catch (Exception e) {
                     getLogger().log(Level.SEVERE, "Failed to create backup", e);
                 }
@@ -190,19 +190,11 @@ public class VoxelDashVanilla {
         registry.registerAction(new ScheduleAction(
             "backup",
             "schedules.actions.backup",
-            ActionInputType.NUMBER,
+            ActionInputType.TEXT,
             "schedules.actions.backup_input",
             metadata -> {
                 try {
-                    int backupMode = 0;
-                    if (metadata != null && !metadata.isEmpty()) {
-                        try {
-                            backupMode = Integer.parseInt(metadata);
-                        } catch (NumberFormatException ignored) {
-                        }
-                    }
-                    backupHelper.createBackup(String.valueOf(backupMode),
-                        backupHelper.getBackupDirectories(backupMode).toArray(new File[0]));
+                    backupHelper.createScheduledBackup(metadata);
                 } catch (Exception e) {
                     LOG.error("Failed to create backup", e);
                 }
@@ -4,7 +4,7 @@ import useWebSocket, {ReadyState} from 'react-use-websocket';
 import {ServerInfoContext} from "@/contexts/ServerInfoContext.tsx";
 
 interface SocketContextType {
-    attachEventListener: (eventName: string) => void;
+    attachEventListener: (eventName: string, options?: Record<string, unknown>) => void;
     detachEventListener: (eventName: string) => void;
     lastMessage: MessageEvent | null;
     readyState: ReadyState;
@@ -20,10 +20,13 @@ export const SocketProvider = (props: SocketProps) => {
     const {serverInfo} = useContext(ServerInfoContext)!;
 
     const [socketUrl, setSocketUrl] = useState<string | null>(null);
-    const {sendMessage, lastMessage, readyState} = useWebSocket(socketUrl);
+    const {sendMessage, lastMessage, readyState} = useWebSocket(socketUrl, {
+        shouldReconnect: () => true,
+        reconnectInterval: 2000,
+    });
 
-    const attachEventListener = (eventName: string) => {
-        sendMessage(JSON.stringify({event: 'ATTACH', name: eventName}));
+    const attachEventListener = (eventName: string, options?: Record<string, unknown>) => {
+        sendMessage(JSON.stringify({...options, event: 'ATTACH', name: eventName}));
     }
 
     const detachEventListener = (eventName: string) => {
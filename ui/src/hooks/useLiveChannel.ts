@@ -0,0 +1,62 @@
+import {useContext, useEffect, useRef, useState} from "react";
+import {ReadyState} from "react-use-websocket";
+import {SocketContext} from "@/contexts/SocketContext";
+
+export interface LiveMessage {
+    event: string;
+    revision: number;
+    full: boolean;
+}
+
+/**
+ * Attaches to a live websocket channel (e.g. PLAYERS) and passes its messages to the handler.
+ * The first message is always the full state, every following one only contains the changes.
+ * If a change got lost, the channel is attached again to get the full state.
+ * Returns whether the channel currently delivers the state, so pages can poll the REST route until it does,
+ * e.g. while the socket is reconnecting.
+ */
+export function useLiveChannel<T extends LiveMessage>(name: string, onMessage: (message: T) => void): boolean {
+    const {lastMessage, readyState, attachEventListener, detachEventListener} = useContext(SocketContext)!;
+    const revisionRef = useRef<number | null>(null);
+    const handlerRef = useRef(onMessage);
+    handlerRef.current = onMessage;
+    const [live, setLive] = useState(false);
+
+    useEffect(() => {
+        if (readyState !== ReadyState.OPEN) {
+            setLive(false);
+            return;
+        }
+
+        revisionRef.current = null;
+        attachEventListener(name);
+        return () => detachEventListener(name);
+    }, [readyState, name]);
+
+    useEffect(() => {
+        if (!lastMessage) return;
+
+        let data: T;
+        try {
+            data = JSON.parse(lastMessage.data);
+        } catch {
+            return;
+        }
+        if (Array.isArray(data) || data.event !== name) return;
+
+        if (!data.full) {
+            if (revisionRef.current === null) return;
+            if (data.revision !== revisionRef.current + 1) {
+                revisionRef.current = null;
+                attachEventListener(name);
+                return;
+            }
+        }
+
+        revisionRef.current = data.revision;
+        if (data.full) setLive(true);
+        handlerRef.current(data);
+    }, [lastMessage]);
+
+    return live;
+}
@@ -6,6 +6,7 @@ import {SocketContext} from "@/contexts/SocketContext";
 import {postRequest} from "@/lib/RequestUtil";
 import {parseAnsi, stripAnsi} from "@/lib/AnsiUtil";
 import {PaperPlaneRightIcon, TerminalWindowIcon} from "@phosphor-icons/react";
+import {ReadyState} from "react-use-websocket";
 
 interface LogEntry {
     text: string;
@@ -16,13 +17,16 @@ interface SocketMessage {
     data: string;
     event: string;
     message: string;
+    seq?: number;
+    skipped?: boolean;
 }
 
 const Console = () => {
-    const {lastMessage, attachEventListener, detachEventListener} = useContext(SocketContext)!;
+    const {lastMessage, readyState, attachEventListener, detachEventListener} = useContext(SocketContext)!;
     const [log, setLog] = useState<LogEntry[]>([]);
     const [input, setInput] = useState<string>('');
     const bottomRef = useRef<HTMLDivElement>(null);
+    const lastSeqRef = useRef<number>(0);
 
     const [history, setHistory] = useState<string[]>(() => {
         const saved = localStorage.getItem("consoleHistory");
@@ -36,17 +40,38 @@ const Console = () => {
     }, [log]);
 
     useEffect(() => {
-        attachEventListener('CONSOLE');
+        if (readyState !== ReadyState.OPEN) return;
+
+        attachEventListener('CONSOLE', {batch: true, since: lastSeqRef.current});
         return () => detachEventListener('CONSOLE');
-    }, []);
+    }, [readyState]);
 
     useEffect(() => {
         if (lastMessage) {
             try {
-                const data = JSON.parse(lastMessage.data) as SocketMessage;
-                if (data.event === 'CONSOLE') {
-                    const message = data.message;
-                    setLog((prev) => [...prev, {text: message, color: getLogColor(message)}]);
+                const parsed = JSON.parse(lastMessage.data) as SocketMessage | SocketMessage[];
+                const entries: LogEntry[] = [];
+
+                for (const data of Array.isArray(parsed) ? parsed : [parsed]) {
+                    if (data.event === 'CONSOLE_GAP' && data.skipped) {
+                        attachEventListener('CONSOLE', {batch: true, since: lastSeqRef.current});
+                        continue;
+                    }
+                    if (data.event === 'CONSOLE_GAP') {
+                        lastSeqRef.current = 0;
+                        entries.push({text: '--- Some console output is no longer available ---', color: 'text-muted-foreground'});
+                        continue;
+                    }
+                    if (data.event !== 'CONSOLE') continue;
+                    if (data.seq !== undefined) {
+                        if (data.seq <= lastSeqRef.current) continue;
+                        lastSeqRef.current = data.seq;
+                    }
+                    entries.push({text: data.message, color: getLogColor(data.message)});
+                }
+
+                if (entries.length > 0) {
+                    setLog((prev) => [...prev, ...entries]);
                 }
             } catch (e) {
                 console.error(e);
@@ -1,7 +1,7 @@
 import { useCallback, useEffect, useMemo, useRef, useState } from "react";
 import GridLayout from "react-grid-layout";
-import { jsonRequest } from "@/lib/RequestUtil";
-import { Widget, SavedLayout } from "@/types/widget";
+import { Widget, WidgetDataPoint, WidgetMetadata, SavedLayout } from "@/types/widget";
+import { useLiveChannel, LiveMessage } from "@/hooks/useLiveChannel";
 import WidgetCard from "./components/WidgetCard";
 import { useResizeObserver } from "@/hooks/useResizeObserver";
 import { DotsThreeIcon, ArrowsClockwiseIcon, GridFourIcon } from "@phosphor-icons/react";
@@ -30,22 +30,35 @@ const LAYOUT_VERSION = 1;
 const GRID_COLS = 6;
 const ROW_HEIGHT = 80;
 
+interface WidgetsMessage extends LiveMessage {
+    widgets: (Partial<Widget> & { id: string; size?: number; data?: WidgetDataPoint[]; metadata?: WidgetMetadata })[];
+}
+
 const Overview = () => {
     const [widgets, setWidgets] = useState<Widget[]>([]);
     const [layout, setLayout] = useState<LayoutItem[]>([]);
     const [isLoading, setIsLoading] = useState(true);
     const [containerRef, containerSize] = useResizeObserver<HTMLDivElement>();
 
-    const fetchWidgets = useCallback(async () => {
-        try {
-            const response = await jsonRequest("widgets/data");
-            if (response.widgets) {
-                setWidgets(response.widgets);
-            }
-        } catch (error) {
-            console.error("Failed to fetch widgets:", error);
+    useLiveChannel<WidgetsMessage>("WIDGETS", (message) => {
+        if (message.full) {
+            setWidgets(message.widgets as Widget[]);
+            setIsLoading(false);
+            return;
         }
-    }, []);
+
+        const changes = new Map(message.widgets.map(w => [w.id, w]));
+        setWidgets(current => current.map(widget => {
+            const change = changes.get(widget.id);
+            if (!change) return widget;
+
+            let data = widget.data;
+            if (change.data) {
+                data = [...(data ?? []), ...change.data].slice(-(change.size ?? change.data.length));
+            }
+            return {...widget, data, metadata: change.metadata ?? widget.metadata};
+        }));
+    });
 
     const loadSavedLayout = useCallback((widgetList: Widget[]): LayoutItem[] => {
         try {
@@ -140,18 +153,6 @@ const Overview = () => {
         });
     }, [widgets, widgetIds, loadSavedLayout, generateDefaultLayout]);
 
-    useEffect(() => {
-        const loadData = async () => {
-            setIsLoading(true);
-            await fetchWidgets();
-            setIsLoading(false);
-        };
-        loadData();
-
-        const interval = setInterval(fetchWidgets, 10000);
-        return () => clearInterval(interval);
-    }, [fetchWidgets]);
-
     const saveLayout = useCallback((newLayout: LayoutItem[]) => {
         const layoutData: SavedLayout = {
             layouts: newLayout.map(l => ({
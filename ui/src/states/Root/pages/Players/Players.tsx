@@ -4,11 +4,17 @@ import { t } from "i18next";
 import { jsonRequest } from "@/lib/RequestUtil";
 import { OnlinePlayer, BannedPlayer, WhitelistData } from "@/types/player";
 import { ScrollArea } from "@/components/ui/scroll-area";
+import { useLiveChannel, LiveMessage } from "@/hooks/useLiveChannel";
 import { Tabs, TabsContent, TabsList, TabsTrigger } from "@/components/ui/tabs";
 import OnlinePlayersTab from "./components/OnlinePlayersTab";
 import WhitelistTab from "./components/WhitelistTab";
 import BannedPlayersTab from "./components/BannedPlayersTab";
 
+interface PlayersMessage extends LiveMessage {
+    players: OnlinePlayer[];
+    removed: string[];
+}
+
 const Players = () => {
     const [onlinePlayers, setOnlinePlayers] = useState<OnlinePlayer[]>([]);
     const [whitelistData, setWhitelistData] = useState<WhitelistData>({ players: [], enabled: false });
@@ -30,9 +36,26 @@ const Players = () => {
     };
 
     const fetchAllData = async () => {
-        await Promise.all([fetchOnlinePlayers(), fetchWhitelist(), fetchBannedPlayers()]);
+        await Promise.all([fetchWhitelist(), fetchBannedPlayers()]);
     };
 
+    const live = useLiveChannel<PlayersMessage>("PLAYERS", (message) => {
+        if (message.full) {
+            setOnlinePlayers(message.players);
+            return;
+        }
+
+        setOnlinePlayers(current => {
+            const changed = new Map(message.players.map(player => [player.uuid, player]));
+            const removed = new Set(message.removed);
+            const updated = current
+                .filter(player => !removed.has(player.uuid))
+                .map(player => changed.get(player.uuid) ?? player);
+            const known = new Set(updated.map(player => player.uuid));
+            return [...updated, ...message.players.filter(player => !known.has(player.uuid))];
+        });
+    });
+
     useEffect(() => {
         fetchAllData();
 
@@ -40,6 +63,14 @@ const Players = () => {
         return () => clearInterval(interval);
     }, []);
 
+    useEffect(() => {
+        if (live) return;
+
+        fetchOnlinePlayers();
+        const interval = setInterval(fetchOnlinePlayers, 10000);
+        return () => clearInterval(interval);
+    }, [live]);
+
     return (
         <div className="flex flex-col p-6 pt-0 gap-6" style={{ height: 'calc(100vh - 5.5rem)' }}>
             <div className="flex items-center justify-between p-4 rounded-xl border bg-card shrink-0">
@@ -1,13 +1,19 @@
-import {useEffect, useState} from "react";
+import {useState} from "react";
 import {GlobeHemisphereWestIcon} from "@phosphor-icons/react";
 import {t} from "i18next";
 import {jsonRequest, postRequest} from "@/lib/RequestUtil";
 import {World, CreateWorldRequest} from "@/types/world";
 import {ScrollArea} from "@/components/ui/scroll-area";
 import {toast} from "@/hooks/use-toast";
+import {useLiveChannel, LiveMessage} from "@/hooks/useLiveChannel";
 import WorldCard from "./components/WorldCard";
 import CreateWorldDialog from "./components/CreateWorldDialog";
 
+interface WorldsMessage extends LiveMessage {
+    worlds: World[];
+    removed: string[];
+}
+
 const Worlds = () => {
     const [worlds, setWorlds] = useState<World[]>([]);
     const [isCreating, setIsCreating] = useState(false);
@@ -71,12 +77,22 @@ const Worlds = () => {
         }
     };
 
-    useEffect(() => {
-        fetchWorlds();
+    useLiveChannel<WorldsMessage>("WORLDS", (message) => {
+        if (message.full) {
+            setWorlds(message.worlds);
+            return;
+        }
 
-        const interval = setInterval(fetchWorlds, 10000);
-        return () => clearInterval(interval);
-    }, []);
+        setWorlds(current => {
+            const changed = new Map(message.worlds.map(world => [world.name, world]));
+            const removed = new Set(message.removed);
+            const updated = current
+                .filter(world => !removed.has(world.name))
+                .map(world => changed.get(world.name) ?? world);
+            const known = new Set(updated.map(world => world.name));
+            return [...updated, ...message.worlds.filter(world => !known.has(world.name))];
+        });
+    });
 
     const mainWorldName = worlds.length > 0 ? worlds[0].name : null;
 
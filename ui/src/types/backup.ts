@@ -4,4 +4,6 @@ export interface Backup {
   id: number
   size: number
   modes: BackupType[]
+  incremental?: boolean
+  codec?: string
 }
\ No newline at end of file